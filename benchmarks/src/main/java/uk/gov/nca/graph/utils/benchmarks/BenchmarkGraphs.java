@@ -0,0 +1,133 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Utility class for creating graphs of a known shape to run benchmarks against
+ */
+public class BenchmarkGraphs {
+  private BenchmarkGraphs(){}
+
+  /**
+   * Add vertices to a graph as connected components, with the size of each component
+   * determined by the distribution:
+   *
+   * <ul>
+   *   <li>singletons - every vertex is its own component</li>
+   *   <li>small - components of 10 vertices</li>
+   *   <li>mixed - component sizes drawn from a power law, so most components are small but a few are large</li>
+   *   <li>giant - a single component containing 90% of the vertices, with the rest as singletons</li>
+   * </ul>
+   */
+  public static void createComponents(Graph graph, int vertices, String distribution, long seed){
+    Random r = new Random(seed);
+
+    List<Integer> sizes = new ArrayList<>();
+    int remaining = vertices;
+    switch (distribution){
+      case "singletons":
+        while(remaining-- > 0)
+          sizes.add(1);
+        break;
+      case "small":
+        while(remaining > 0) {
+          sizes.add(Math.min(10, remaining));
+          remaining -= 10;
+        }
+        break;
+      case "mixed":
+        while(remaining > 0) {
+          //Inverse transform sampling of a power law with exponent 2.5
+          int size = (int) Math.floor(Math.pow(1.0 - r.nextDouble(), -1.0 / 1.5));
+          size = Math.min(size, remaining);
+          sizes.add(size);
+          remaining -= size;
+        }
+        break;
+      case "giant":
+        int giant = (int) (vertices * 0.9);
+        sizes.add(giant);
+        remaining -= giant;
+        while(remaining-- > 0)
+          sizes.add(1);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown distribution " + distribution);
+    }
+
+    for(int size : sizes)
+      createComponent(graph, size, r);
+  }
+
+  private static void createComponent(Graph graph, int size, Random r){
+    List<Vertex> component = new ArrayList<>(size);
+    for(int i = 0; i < size; i++){
+      Vertex v = createPerson(graph, r);
+
+      //Attach to a random existing vertex, so the component is connected
+      if(!component.isEmpty())
+        v.addEdge("knows", component.get(r.nextInt(component.size())), "weight", r.nextDouble());
+
+      component.add(v);
+    }
+  }
+
+  /**
+   * Create a star graph, with a single hub vertex connected to spokes vertices,
+   * each of which is connected to a further leavesPerSpoke vertices. The hub is returned.
+   */
+  public static Vertex createHub(Graph graph, int spokes, int leavesPerSpoke, long seed){
+    Random r = new Random(seed);
+
+    Vertex hub = createPerson(graph, r);
+    for(int i = 0; i < spokes; i++){
+      Vertex spoke = createPerson(graph, r);
+      hub.addEdge("knows", spoke);
+
+      for(int j = 0; j < leavesPerSpoke; j++)
+        spoke.addEdge("knows", createPerson(graph, r));
+    }
+
+    return hub;
+  }
+
+  /**
+   * Create a list of the given size, for use as a multi-valued property
+   */
+  public static List<Object> createList(int size, String prefix){
+    Object[] values = new Object[size];
+    for(int i = 0; i < size; i++)
+      values[i] = prefix + i;
+
+    return Arrays.asList(values);
+  }
+
+  private static Vertex createPerson(Graph graph, Random r){
+    return graph.addVertex(T.label, "Person",
+        "name", "Person " + r.nextInt(1000000),
+        "age", r.nextInt(100),
+        "nationality", r.nextBoolean() ? "British" : "French");
+  }
+}
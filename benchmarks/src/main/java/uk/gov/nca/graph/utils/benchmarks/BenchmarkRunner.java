@@ -0,0 +1,52 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for running the benchmarks, which accepts the standard JMH command line
+ * options but defaults to writing results as JSON to jmh-result.json, so that results
+ * from different runs can be compared.
+ */
+public class BenchmarkRunner {
+  private BenchmarkRunner(){}
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmdOptions;
+    try {
+      cmdOptions = new CommandLineOptions(args);
+    }catch (CommandLineOptionException e){
+      System.err.println("Error parsing command line: " + e.getMessage());
+      System.exit(1);
+      return;
+    }
+
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+    if(!cmdOptions.getResultFormat().hasValue())
+      builder = builder.resultFormat(ResultFormatType.JSON);
+    if(!cmdOptions.getResult().hasValue())
+      builder = builder.result("jmh-result.json");
+
+    new Runner(builder.build()).run();
+  }
+}
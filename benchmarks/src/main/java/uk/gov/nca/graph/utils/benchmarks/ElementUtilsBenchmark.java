@@ -0,0 +1,127 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.nca.graph.utils.ElementUtils;
+import uk.gov.nca.graph.utils.GraphUtils;
+
+/**
+ * Benchmarks for copying multi-valued properties, and for the hop queries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ElementUtilsBenchmark {
+
+  @Param({"10", "1000"})
+  public int listSize;
+
+  @Param({"1000"})
+  public int hubDegree;
+
+  private Graph graph;
+  private Vertex source;
+  private Vertex target;
+  private Vertex hub;
+
+  private List<Object> targetValues;
+
+  @Setup(Level.Trial)
+  public void setupGraph(){
+    graph = TinkerGraph.open();
+
+    //Overlapping lists, so half of the values are duplicates that need filtering out
+    source = graph.addVertex(T.label, "Person",
+        "aliases", BenchmarkGraphs.createList(listSize, "alias"),
+        "name", "Michelle");
+    targetValues = BenchmarkGraphs.createList(listSize, "alias")
+        .subList(listSize / 2, listSize);
+
+    hub = BenchmarkGraphs.createHub(graph, hubDegree, 10, 0L);
+  }
+
+  @Setup(Level.Invocation)
+  public void resetTarget(){
+    if(target != null)
+      target.remove();
+
+    target = graph.addVertex(T.label, "Person", "aliases", targetValues, "name", "Shell");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown(){
+    GraphUtils.closeGraph(graph);
+  }
+
+  @Benchmark
+  public Vertex copyProperties(){
+    ElementUtils.copyProperties(source, target);
+    return target;
+  }
+
+  @Benchmark
+  public Vertex copyProperty(){
+    ElementUtils.copyProperty(source.property("aliases"), target);
+    return target;
+  }
+
+  @Benchmark
+  public List<Vertex> getOneHopVertices(){
+    return ElementUtils.getOneHopVertices(graph, hub, "knows", Direction.OUT, "Person");
+  }
+
+  @Benchmark
+  public List<Vertex> getTwoHopVertices(){
+    return ElementUtils.getTwoHopVertices(graph, hub, "knows", Direction.BOTH, "Person", "knows", Direction.BOTH);
+  }
+
+  @Benchmark
+  public List<Vertex> streamTwoHopVertices(){
+    return ElementUtils.streamTwoHopVertices(graph, hub, "knows", Direction.BOTH, "Person", "knows", Direction.BOTH)
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<Vertex> streamTwoHopVerticesLimited(){
+    return ElementUtils.streamTwoHopVertices(graph, hub, "knows", Direction.BOTH, "Person", "knows", Direction.BOTH, null, true, 100)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,133 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.nca.graph.utils.CleaningInputStream;
+import uk.gov.nca.graph.utils.GraphCleaner;
+
+/**
+ * Benchmarks comparing the original character by character cleaning loop
+ * used by CleanGraph against GraphCleaner and CleaningInputStream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphCleanerBenchmark {
+
+  @Param({"64"})
+  public int sizeMb;
+
+  private File input;
+  private File output;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    input = File.createTempFile("benchmark", ".graphml");
+    output = File.createTempFile("benchmark", ".clean.graphml");
+
+    Random r = new Random(0);
+    byte[] line = "<node id=\"n\"><data key=\"name\">Héllo\u0007 Wörld €</data></node>\n"
+        .getBytes(StandardCharsets.UTF_8);
+
+    try(OutputStream os = new BufferedOutputStream(new FileOutputStream(input))){
+      long target = sizeMb * 1024L * 1024L;
+      long written = 0;
+      while(written < target){
+        os.write(line);
+        if(r.nextInt(10) == 0)
+          os.write(r.nextInt(32));
+
+        written += line.length;
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown(){
+    input.delete();
+    output.delete();
+  }
+
+  @Benchmark
+  public void legacyClean() throws IOException {
+    try(
+        BufferedReader reader = new BufferedReader(new FileReader(input));
+        BufferedWriter writer = new BufferedWriter(new FileWriter(output))
+    ){
+      int r;
+      while ((r = reader.read()) != -1) {
+        if(GraphCleaner.isClean(r))
+          writer.write(r);
+      }
+    }
+  }
+
+  @Benchmark
+  public long cleanFile() throws IOException {
+    return GraphCleaner.cleanFile(input, output, GraphCleaner.DEFAULT_BUFFER_SIZE, 1);
+  }
+
+  @Benchmark
+  public long cleanFileParallel() throws IOException {
+    return GraphCleaner.cleanFile(input, output, GraphCleaner.DEFAULT_BUFFER_SIZE,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  @Benchmark
+  public long cleaningInputStreamXml() throws IOException {
+    byte[] buffer = new byte[8192];
+    long total = 0;
+
+    try(InputStream is = new CleaningInputStream(new FileInputStream(input), true)){
+      int read;
+      while((read = is.read(buffer)) != -1)
+        total += read;
+    }
+
+    return total;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.nca.graph.utils.GraphSplitter;
+import uk.gov.nca.graph.utils.GraphUtils;
+
+/**
+ * Benchmarks for splitting graphs with different distributions of component sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphSplitterBenchmark {
+
+  @Param({"singletons", "small", "mixed", "giant"})
+  public String distribution;
+
+  @Param({"5000"})
+  public int vertices;
+
+  @Param({"1000"})
+  public int threshold;
+
+  private Graph graph;
+  private File outputDirectory;
+  private List<File> files;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    graph = TinkerGraph.open();
+    BenchmarkGraphs.createComponents(graph, vertices, distribution, 0L);
+
+    outputDirectory = Files.createTempDirectory("benchmark").toFile();
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteFiles(){
+    if(files != null)
+      files.forEach(File::delete);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown(){
+    GraphUtils.closeGraph(graph);
+    outputDirectory.delete();
+  }
+
+  @Benchmark
+  public List<File> splitGraph(){
+    files = new GraphSplitter(outputDirectory, "benchmark", "gryo", threshold).splitGraph(graph);
+    return files;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.nca.graph.utils.GraphUtils;
+
+/**
+ * Benchmarks for reading and writing graph files in each of the supported formats
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphUtilsBenchmark {
+
+  @Param({"graphml", "graphson", "gryo"})
+  public String format;
+
+  @Param({"10000", "100000"})
+  public int vertices;
+
+  private Graph graph;
+  private File inputFile;
+  private File outputFile;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    graph = TinkerGraph.open();
+    BenchmarkGraphs.createComponents(graph, vertices, "mixed", 0L);
+
+    inputFile = File.createTempFile("benchmark", "." + format);
+    outputFile = File.createTempFile("benchmark", ".out." + format);
+    GraphUtils.writeGraphFile(inputFile, format, graph);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown(){
+    GraphUtils.closeGraph(graph);
+    inputFile.delete();
+    outputFile.delete();
+  }
+
+  @Benchmark
+  public Graph readGraphFile(){
+    Graph g = TinkerGraph.open();
+    GraphUtils.readGraphFile(inputFile, format, g);
+
+    return g;
+  }
+
+  @Benchmark
+  public boolean writeGraphFile(){
+    return GraphUtils.writeGraphFile(outputFile, format, graph);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import uk.gov.nca.graph.utils.GraphUtils;
+import uk.gov.nca.graph.utils.ReadOptions;
+import uk.gov.nca.graph.utils.StringInterner;
+
+/**
+ * Measures the heap retained by a graph read from a large GraphSON file, with no interning,
+ * with labels and property keys interned, and with low-cardinality property values also
+ * interned. All three are loaded with an ElementLoader, so that only the interning differs.
+ * JMH doesn't report retained heap, so this is run as a separate main class,
+ * and accepts the number of vertices to generate as an optional argument.
+ */
+public class HeapFootprint {
+  private HeapFootprint(){}
+
+  public static void main(String[] args) throws IOException {
+    int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+    Graph graph = TinkerGraph.open();
+    BenchmarkGraphs.createComponents(graph, vertices, "mixed", 0L);
+
+    File inputFile = File.createTempFile("benchmark", ".graphson");
+    GraphUtils.writeGraphFile(inputFile, "graphson", graph);
+    GraphUtils.closeGraph(graph);
+
+    try {
+      long none = measure(inputFile, null);
+      long keys = measure(inputFile, new StringInterner());
+      long values = measure(inputFile, new StringInterner(1000, StringInterner.DEFAULT_MAX_VALUE_LENGTH));
+
+      System.out.println();
+      System.out.printf("%-10s %15s%n", "Interning", "Retained (MB)");
+      System.out.printf("%-10s %15.1f%n", "none", none / 1048576.0);
+      System.out.printf("%-10s %15.1f%n", "keys", keys / 1048576.0);
+      System.out.printf("%-10s %15.1f%n", "values", values / 1048576.0);
+    }finally{
+      inputFile.delete();
+    }
+  }
+
+  private static long measure(File inputFile, StringInterner interner){
+    long baseline = usedHeap();
+
+    Graph g = TinkerGraph.open();
+    GraphUtils.readGraphFile(inputFile, "graphson", g, new ReadOptions().setStreaming(true).setInterner(interner));
+
+    long retained = usedHeap() - baseline;
+    GraphUtils.closeGraph(g);
+
+    return retained;
+  }
+
+  private static long usedHeap(){
+    Runtime runtime = Runtime.getRuntime();
+    for(int i = 0; i < 3; i++)
+      System.gc();
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
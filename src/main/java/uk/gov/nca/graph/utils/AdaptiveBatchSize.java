@@ -0,0 +1,147 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses how many elements to add to a graph between commits whilst a load is running,
+ * as the best batch size depends heavily on the graph implementation and its backend.
+ *
+ * The batch size is adjusted after every commit using additive increase/multiplicative
+ * decrease (AIMD). If the commit took longer than the maximum commit time, throughput has
+ * dropped well below its recent average, or the heap is nearly full, then the batch size is
+ * multiplied by the decrease factor. Otherwise, the increase is added to it. The batch size
+ * always stays within the configured bounds.
+ */
+public class AdaptiveBatchSize {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveBatchSize.class);
+
+  private static final double THROUGHPUT_DROP = 0.8;
+  private static final double HEAP_LIMIT = 0.85;
+  private static final double SMOOTHING = 0.3;
+
+  private final long minBatchSize;
+  private final long maxBatchSize;
+  private final long increase;
+  private final double decrease;
+  private final long maxCommitNanos;
+
+  private long batchSize;
+  private double throughput = 0.0;
+  private long commits = 0;
+  private long decreases = 0;
+
+  /**
+   * Create a new AdaptiveBatchSize that starts at minBatchSize and increases by minBatchSize
+   * each time, halving if a commit takes more than 2 seconds
+   */
+  public AdaptiveBatchSize(long minBatchSize, long maxBatchSize){
+    this(minBatchSize, minBatchSize, maxBatchSize, minBatchSize, 0.5, 2000);
+  }
+
+  /**
+   * Create a new AdaptiveBatchSize with the given starting size and bounds, which adds
+   * increase to the batch size after a good commit and multiplies it by decrease
+   * (between 0 and 1) after a bad one
+   */
+  public AdaptiveBatchSize(long initialBatchSize, long minBatchSize, long maxBatchSize, long increase, double decrease, long maxCommitMillis){
+    if(minBatchSize < 1 || maxBatchSize < minBatchSize)
+      throw new IllegalArgumentException("Batch size bounds must be positive, and the minimum must not be greater than the maximum");
+    if(decrease <= 0.0 || decrease >= 1.0)
+      throw new IllegalArgumentException("Decrease must be between 0 and 1");
+
+    this.minBatchSize = minBatchSize;
+    this.maxBatchSize = maxBatchSize;
+    this.increase = Math.max(1, increase);
+    this.decrease = decrease;
+    this.maxCommitNanos = TimeUnit.MILLISECONDS.toNanos(maxCommitMillis);
+    this.batchSize = clamp(initialBatchSize);
+  }
+
+  /**
+   * Get the number of elements to add before the next commit
+   */
+  public synchronized long getBatchSize(){
+    return batchSize;
+  }
+
+  /**
+   * Record a commit of the given number of elements, where batchNanos is the time taken to
+   * add and commit them, and commitNanos is the time taken by the commit alone,
+   * and adjust the batch size
+   */
+  public synchronized void batchCommitted(long elements, long batchNanos, long commitNanos){
+    commits++;
+
+    double current = batchNanos > 0 ? elements * 1e9 / batchNanos : 0.0;
+
+    String reason = null;
+    if(commitNanos > maxCommitNanos){
+      reason = "slow commit";
+    }else if(throughput > 0.0 && current < throughput * THROUGHPUT_DROP){
+      reason = "throughput dropped";
+    }else if(heapUsage() > HEAP_LIMIT){
+      reason = "heap nearly full";
+    }
+
+    long previous = batchSize;
+    if(reason == null){
+      batchSize = clamp(batchSize + increase);
+    }else{
+      batchSize = clamp((long) (batchSize * decrease));
+      decreases++;
+    }
+
+    if(batchSize != previous)
+      LOGGER.debug("Batch size changed from {} to {} ({})", previous, batchSize, reason == null ? "good commit" : reason);
+
+    throughput = throughput == 0.0 ? current : (1 - SMOOTHING) * throughput + SMOOTHING * current;
+  }
+
+  /**
+   * Get the number of commits recorded
+   */
+  public synchronized long getCommits(){
+    return commits;
+  }
+
+  /**
+   * Get the number of times the batch size has been decreased
+   */
+  public synchronized long getDecreases(){
+    return decreases;
+  }
+
+  /**
+   * Get the recent average throughput, in elements per second
+   */
+  public synchronized double getThroughput(){
+    return throughput;
+  }
+
+  private long clamp(long size){
+    return Math.max(minBatchSize, Math.min(maxBatchSize, size));
+  }
+
+  private static double heapUsage(){
+    Runtime runtime = Runtime.getRuntime();
+    return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+  }
+}
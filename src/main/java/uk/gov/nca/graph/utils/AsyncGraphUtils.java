@@ -0,0 +1,335 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous versions of the file operations in {@link GraphUtils} and {@link GraphSplitter},
+ * which run on an {@link Executor} and return a {@link CompletableFuture}, so that multiple
+ * graphs can be read and written concurrently without tying up the calling thread.
+ *
+ * Where {@link GraphUtils} returns false, the future completes exceptionally with an
+ * {@link IOException}. Cancelling the future stops the operation at the next opportunity
+ * (for reads and writes, the next time the file is accessed), after which the target graph
+ * or file may be incomplete. Progress is reported to an optional {@link ProgressListener}.
+ *
+ * If no executor is provided, then {@link #getDefaultExecutor()} is used, which runs each
+ * operation on a virtual thread where the JVM supports them.
+ */
+public class AsyncGraphUtils {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncGraphUtils.class);
+
+  private static ExecutorService defaultExecutor = null;
+
+  private AsyncGraphUtils(){
+    //Utility class
+  }
+
+  /**
+   * Create a new executor that runs each task on its own virtual thread if the JVM supports them,
+   * or otherwise on a cached pool of daemon threads
+   */
+  public static ExecutorService newExecutor(){
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }catch (ReflectiveOperationException | ClassCastException e){
+      LOGGER.debug("Virtual threads are not available, a cached thread pool will be used instead");
+    }
+
+    AtomicInteger counter = new AtomicInteger();
+    return Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "async-graph-utils-" + counter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * Get the executor used when one isn't provided, creating it with {@link #newExecutor()} the first time it is needed
+   */
+  public static synchronized ExecutorService getDefaultExecutor(){
+    if(defaultExecutor == null)
+      defaultExecutor = newExecutor();
+
+    return defaultExecutor;
+  }
+
+  /**
+   * Read a graph from a File on the default executor
+   * (see {@link #readGraphFile(File, String, Graph, ReadOptions, ProgressListener, Executor)})
+   */
+  public static CompletableFuture<Graph> readGraphFile(File file, String format, Graph graph){
+    return readGraphFile(file, format, graph, null, null, getDefaultExecutor());
+  }
+
+  /**
+   * Read a graph from a File, with a format of either graphml, graphson or gryo, completing with
+   * the graph once it has been read, using the given options (see {@link ReadOptions}).
+   * If options is null, the defaults are used.
+   *
+   * Progress is reported in bytes read from the file. If the file is read through a {@link GraphCache},
+   * then progress is only reported once the read has finished.
+   */
+  public static CompletableFuture<Graph> readGraphFile(File file, String format, Graph graph, ReadOptions options,
+      ProgressListener listener, Executor executor){
+    ProgressListener progress = listener == null ? ProgressListener.NOOP : listener;
+
+    return run(executor, cancelled -> {
+      long length = file.length();
+
+      boolean read = GraphUtils.readGraphFile(file, format, graph, options,
+          stream -> new ProgressInputStream(stream, length, progress, cancelled));
+
+      checkCancelled(cancelled);
+      if(!read)
+        throw new IOException("Unable to read graph file " + file);
+
+      progress.progress(length, length);
+      return graph;
+    });
+  }
+
+  /**
+   * Write a graph to a File on the default executor
+   * (see {@link #writeGraphFile(File, String, Graph, ProgressListener, Executor)})
+   */
+  public static CompletableFuture<File> writeGraphFile(File file, String format, Graph graph){
+    return writeGraphFile(file, format, graph, null, getDefaultExecutor());
+  }
+
+  /**
+   * Write a graph to a File, with a format of either graphml, graphson or gryo, completing with the file
+   * once it has been written. Progress is reported in bytes written, as the total size isn't known in advance.
+   */
+  public static CompletableFuture<File> writeGraphFile(File file, String format, Graph graph,
+      ProgressListener listener, Executor executor){
+    ProgressListener progress = listener == null ? ProgressListener.NOOP : listener;
+
+    return run(executor, cancelled -> {
+      LOGGER.info("Writing graph file {}", file);
+
+      boolean written;
+      try (OutputStream stream = new ProgressOutputStream(new FileOutputStream(file), progress, cancelled)) {
+        written = GraphUtils.writeGraph(stream, format, graph);
+      }
+
+      checkCancelled(cancelled);
+      if(!written)
+        throw new IOException("Unable to write graph file " + file);
+
+      return file;
+    });
+  }
+
+  /**
+   * Clear a graph on the default executor (see {@link #clearGraph(Graph, ProgressListener, Executor)})
+   */
+  public static CompletableFuture<Graph> clearGraph(Graph graph){
+    return clearGraph(graph, null, getDefaultExecutor());
+  }
+
+  /**
+   * Clear a graph by dropping each vertex, committing after every 10000 vertices.
+   * Progress is reported in vertices dropped, and if the operation is cancelled then
+   * the vertices dropped so far remain dropped.
+   */
+  public static CompletableFuture<Graph> clearGraph(Graph graph, ProgressListener listener, Executor executor){
+    ProgressListener progress = listener == null ? ProgressListener.NOOP : listener;
+
+    return run(executor, cancelled -> {
+      long total = graph.traversal().V().count().next();
+      long dropped = 0;
+
+      List<Vertex> batch;
+      while(!(batch = graph.traversal().V().limit(10000).toList()).isEmpty()){
+        checkCancelled(cancelled);
+
+        batch.forEach(Element::remove);
+        GraphUtils.commitGraph(graph);
+
+        dropped += batch.size();
+        progress.progress(dropped, Math.max(total, dropped));
+      }
+
+      return graph;
+    });
+  }
+
+  /**
+   * Split a graph into sub-graphs on the default executor
+   * (see {@link #splitGraph(GraphSplitter, Graph, ProgressListener, Executor)})
+   */
+  public static CompletableFuture<List<File>> splitGraph(GraphSplitter splitter, Graph graph){
+    return splitGraph(splitter, graph, null, getDefaultExecutor());
+  }
+
+  /**
+   * Split a graph into sub-graphs using splitter (see {@link GraphSplitter#splitGraph(Graph)}),
+   * completing with the files that were written. Progress is reported in vertices processed,
+   * and replaces any {@link ProgressListener} already set on the splitter.
+   */
+  public static CompletableFuture<List<File>> splitGraph(GraphSplitter splitter, Graph graph,
+      ProgressListener listener, Executor executor){
+    ProgressListener progress = listener == null ? ProgressListener.NOOP : listener;
+
+    return run(executor, cancelled -> {
+      splitter.setProgressListener((completed, total) -> {
+        checkCancelled(cancelled);
+        progress.progress(completed, total);
+      });
+
+      try {
+        return splitter.splitGraph(graph);
+      }finally {
+        splitter.setProgressListener(null);
+      }
+    });
+  }
+
+  private static <T> CompletableFuture<T> run(Executor executor, Task<T> task){
+    CompletableFuture<T> future = new CompletableFuture<>();
+    BooleanSupplier cancelled = future::isCancelled;
+
+    executor.execute(() -> {
+      if(future.isCancelled())
+        return;
+
+      try {
+        future.complete(task.run(cancelled));
+      }catch (Throwable t){
+        LOGGER.debug("Asynchronous graph operation failed", t);
+        future.completeExceptionally(t);
+      }
+    });
+
+    return future;
+  }
+
+  private static void checkCancelled(BooleanSupplier cancelled){
+    if(cancelled.getAsBoolean())
+      throw new CancellationException();
+  }
+
+  /**
+   * Body of an asynchronous operation, which should check whether it has been cancelled
+   * at regular intervals
+   */
+  @FunctionalInterface
+  private interface Task<T> {
+    T run(BooleanSupplier cancelled) throws Exception;
+  }
+
+  /**
+   * InputStream that reports the number of bytes read, and fails once the operation has been cancelled
+   */
+  private static class ProgressInputStream extends FilterInputStream {
+    private final long length;
+    private final ProgressListener listener;
+    private final BooleanSupplier cancelled;
+    private long count = 0;
+
+    ProgressInputStream(InputStream in, long length, ProgressListener listener, BooleanSupplier cancelled){
+      super(in);
+      this.length = length;
+      this.listener = listener;
+      this.cancelled = cancelled;
+    }
+
+    @Override
+    public int read() throws IOException {
+      checkStream();
+      int b = super.read();
+      if(b != -1)
+        listener.progress(++count, length);
+
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      checkStream();
+      int n = super.read(b, off, len);
+      if(n > 0) {
+        count += n;
+        listener.progress(count, length);
+      }
+
+      return n;
+    }
+
+    private void checkStream() throws InterruptedIOException {
+      if(cancelled.getAsBoolean())
+        throw new InterruptedIOException("Operation cancelled");
+    }
+  }
+
+  /**
+   * OutputStream that reports the number of bytes written, and fails once the operation has been cancelled
+   */
+  private static class ProgressOutputStream extends FilterOutputStream {
+    private final ProgressListener listener;
+    private final BooleanSupplier cancelled;
+    private long count = 0;
+
+    ProgressOutputStream(OutputStream out, ProgressListener listener, BooleanSupplier cancelled){
+      super(out);
+      this.listener = listener;
+      this.cancelled = cancelled;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      checkStream();
+      out.write(b);
+      listener.progress(++count, -1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      checkStream();
+      out.write(b, off, len);
+      count += len;
+      listener.progress(count, -1);
+    }
+
+    private void checkStream() throws InterruptedIOException {
+      if(cancelled.getAsBoolean())
+        throw new InterruptedIOException("Operation cancelled");
+    }
+  }
+}
@@ -0,0 +1,310 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Caching wrapper around the query methods in {@link ElementUtils}, for
+ * read-heavy workloads that repeatedly query the same vertices.
+ *
+ * Results are cached against the vertex ID and the query arguments, with
+ * least recently used entries evicted once the cache reaches its maximum size,
+ * and entries expiring after a fixed time to live.
+ *
+ * The cache is not aware of changes made to the underlying graph, so callers
+ * mutating the graph should call {@link #invalidate(Vertex)} or
+ * {@link #invalidateAll()} as appropriate.
+ */
+public class CachingElementUtils {
+    private final Graph graph;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<CacheKey, CacheEntry> cache;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    //Incremented on every invalidation, so results queried during an invalidation aren't cached
+    private long generation = 0;
+
+    /**
+     * Create a new CachingElementUtils with a maximum size of 10000 entries and no expiry
+     */
+    public CachingElementUtils(Graph graph){
+        this(graph, 10000, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new CachingElementUtils with the specified maximum size and time to live.
+     *
+     * A time to live of 0 or less means that entries will not expire, and will only
+     * be removed by eviction or invalidation.
+     */
+    public CachingElementUtils(Graph graph, int maxSize, long ttl, TimeUnit unit){
+        if(maxSize <= 0)
+            throw new IllegalArgumentException("Maximum cache size must be greater than 0");
+
+        this.graph = graph;
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+
+        this.cache = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Entry<CacheKey, CacheEntry> eldest) {
+                if(size() > CachingElementUtils.this.maxSize){
+                    evictionCount++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached version of {@link ElementUtils#getLinkedProperty(Graph, Vertex, String, String)}
+     */
+    public Object getLinkedProperty(Vertex v, String edgeLabel, String property){
+        return copy(get(new CacheKey(v.id(), "getLinkedProperty", edgeLabel, property),
+            () -> ElementUtils.getLinkedProperty(graph, v, edgeLabel, property)));
+    }
+
+    /**
+     * Cached version of {@link ElementUtils#getLinkedProperty(Graph, Vertex, String, String, String)}
+     */
+    public Object getLinkedProperty(Vertex v, String edgeLabel, String vertexLabel, String property){
+        return copy(get(new CacheKey(v.id(), "getLinkedProperty", edgeLabel, vertexLabel, property),
+            () -> ElementUtils.getLinkedProperty(graph, v, edgeLabel, vertexLabel, property)));
+    }
+
+    /**
+     * Cached version of {@link ElementUtils#getOneHopVertices(Graph, Vertex, String, Direction, String)}
+     */
+    public List<Vertex> getOneHopVertices(Vertex v, String edgeLabel, Direction edgeDirection,
+        String targetLabel){
+
+        return getList(new CacheKey(v.id(), "getOneHopVertices", edgeLabel, edgeDirection, targetLabel),
+            () -> ElementUtils.getOneHopVertices(graph, v, edgeLabel, edgeDirection, targetLabel));
+    }
+
+    /**
+     * Cached version of {@link ElementUtils#getTwoHopVertices(Graph, Vertex, String, Direction, String, String, Direction)}
+     */
+    public List<Vertex> getTwoHopVertices(Vertex v,
+        String edgeLabel1, Direction edgeDirection1,
+        String intermediateNodeLabel,
+        String edgeLabel2, Direction edgeDirection2){
+
+        return getTwoHopVertices(v, edgeLabel1, edgeDirection1, intermediateNodeLabel, edgeLabel2, edgeDirection2, null);
+    }
+
+    /**
+     * Cached version of {@link ElementUtils#getTwoHopVertices(Graph, Vertex, String, Direction, String, String, Direction, String)}
+     */
+    public List<Vertex> getTwoHopVertices(Vertex v,
+        String edgeLabel1, Direction edgeDirection1,
+        String intermediateNodeLabel,
+        String edgeLabel2, Direction edgeDirection2,
+        String targetNodeLabel){
+
+        return getList(new CacheKey(v.id(), "getTwoHopVertices", edgeLabel1, edgeDirection1,
+                intermediateNodeLabel, edgeLabel2, edgeDirection2, targetNodeLabel),
+            () -> ElementUtils.getTwoHopVertices(graph, v, edgeLabel1, edgeDirection1,
+                intermediateNodeLabel, edgeLabel2, edgeDirection2, targetNodeLabel));
+    }
+
+    /**
+     * Remove all cached results for queries starting at the given vertex
+     */
+    public void invalidate(Vertex v){
+        invalidate(v.id());
+    }
+
+    /**
+     * Remove all cached results for queries starting at the vertex with the given ID
+     */
+    public synchronized void invalidate(Object vertexId){
+        generation++;
+        cache.keySet().removeIf(k -> Objects.equals(k.vertexId, vertexId));
+    }
+
+    /**
+     * Remove all cached results.
+     *
+     * As cached results may depend on vertices other than the initial vertex,
+     * this should be called if the structure of the graph has been changed.
+     */
+    public synchronized void invalidateAll(){
+        generation++;
+        cache.clear();
+    }
+
+    /**
+     * Remove any entries that have passed their time to live
+     */
+    public synchronized void cleanUp(){
+        if(ttlNanos <= 0)
+            return;
+
+        long now = System.nanoTime();
+        for(Iterator<CacheEntry> it = cache.values().iterator(); it.hasNext(); ){
+            if(it.next().isExpired(now)) {
+                it.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Return the number of entries currently held in the cache
+     */
+    public synchronized int size(){
+        return cache.size();
+    }
+
+    /**
+     * Return the number of queries that were answered from the cache
+     */
+    public synchronized long getHitCount(){
+        return hitCount;
+    }
+
+    /**
+     * Return the number of queries that had to be answered by the graph
+     */
+    public synchronized long getMissCount(){
+        return missCount;
+    }
+
+    /**
+     * Return the number of entries that have been removed due to size or expiry
+     */
+    public synchronized long getEvictionCount(){
+        return evictionCount;
+    }
+
+    /**
+     * Return the proportion of queries that were answered from the cache,
+     * or 0 if no queries have been made
+     */
+    public synchronized double getHitRate(){
+        long total = hitCount + missCount;
+        if(total == 0)
+            return 0.0;
+
+        return (double) hitCount / total;
+    }
+
+    private List<Vertex> getList(CacheKey key, Supplier<List<Vertex>> supplier){
+        //Return a copy so that callers can't modify the cached value
+        return new ArrayList<>(get(key, supplier));
+    }
+
+    private static Object copy(Object value){
+        //Linked properties may be a list of values, which callers shouldn't be able to modify
+        if(value instanceof List)
+            return new ArrayList<>((List<?>) value);
+
+        return value;
+    }
+
+    //Each key includes the name of the query, which determines the type of the cached value
+    @SuppressWarnings("unchecked")
+    private <T> T get(CacheKey key, Supplier<T> supplier){
+        long queryGeneration;
+        synchronized (this) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null) {
+                if (!entry.isExpired(System.nanoTime())) {
+                    hitCount++;
+                    return (T) entry.value;
+                }
+
+                cache.remove(key);
+                evictionCount++;
+            }
+            missCount++;
+            queryGeneration = generation;
+        }
+
+        //Query the graph outside of the lock, so that slow queries don't block other threads
+        T value = supplier.get();
+
+        synchronized (this) {
+            //Don't cache the result if the cache was invalidated whilst it was being queried
+            if(generation == queryGeneration)
+                cache.put(key, new CacheEntry(value, ttlNanos <= 0 ? Long.MAX_VALUE : System.nanoTime() + ttlNanos));
+        }
+
+        return value;
+    }
+
+    private static class CacheKey {
+        private final Object vertexId;
+        private final List<Object> arguments;
+
+        CacheKey(Object vertexId, Object... arguments){
+            this.vertexId = vertexId;
+            this.arguments = Arrays.asList(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            CacheKey cacheKey = (CacheKey) o;
+            return Objects.equals(vertexId, cacheKey.vertexId) && arguments.equals(cacheKey.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(vertexId, arguments);
+        }
+    }
+
+    private static class CacheEntry {
+        private final Object value;
+        private final long expiresAt;
+
+        CacheEntry(Object value, long expiresAt){
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now){
+            return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that removes unsupported characters from a UTF-8 encoded stream as it is read,
+ * so that dirty files can be cleaned on the fly rather than writing a cleaned copy first.
+ *
+ * Control characters are removed using the same rules as {@link GraphCleaner}. If XML
+ * cleaning is enabled, then any byte sequences that aren't valid UTF-8, and any code points
+ * that aren't permitted in XML 1.0 (surrogates, U+FFFE and U+FFFF), are also removed.
+ */
+public class CleaningInputStream extends FilterInputStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final boolean xml;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    //Cleaned bytes ready to be returned are held in [pos, limit), and any incomplete
+    //multi-byte sequence at the end of the last read is held in [tailStart, tailEnd)
+    private int pos = 0;
+    private int limit = 0;
+    private int tailStart = 0;
+    private int tailEnd = 0;
+    private boolean eof = false;
+
+    /**
+     * Create a new CleaningInputStream that removes control characters only
+     */
+    public CleaningInputStream(InputStream in){
+        this(in, false);
+    }
+
+    /**
+     * Create a new CleaningInputStream, that removes control characters and,
+     * if xml is true, any characters that are not valid in XML
+     */
+    public CleaningInputStream(InputStream in, boolean xml){
+        super(in);
+        this.xml = xml;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(pos >= limit && !fill())
+            return -1;
+
+        return buffer[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0)
+            return 0;
+
+        if(pos >= limit && !fill())
+            return -1;
+
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while(skipped < n){
+            if(pos >= limit && !fill())
+                break;
+
+            int s = (int) Math.min(n - skipped, limit - pos);
+            pos += s;
+            skipped += s;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        //Not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Read and clean the next block of data into the buffer, returning false
+     * if there is no more data to read
+     */
+    private boolean fill() throws IOException {
+        while(!eof) {
+            //Move any incomplete sequence from the previous read to the start of the buffer
+            int tail = tailEnd - tailStart;
+            System.arraycopy(buffer, tailStart, buffer, 0, tail);
+
+            int read = in.read(buffer, tail, buffer.length - tail);
+            int end = tail;
+            if (read == -1) {
+                eof = true;
+            } else {
+                end += read;
+            }
+
+            pos = 0;
+            if (xml) {
+                limit = cleanXml(end);
+            } else {
+                limit = GraphCleaner.clean(buffer, 0, end);
+                tailStart = tailEnd = 0;
+            }
+
+            if (limit > 0)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Clean the first end bytes of the buffer in place, returning the number of cleaned bytes
+     * and setting the tail to any incomplete sequence at the end of the buffer
+     */
+    private int cleanXml(int end){
+        int w = 0;
+        int i = 0;
+
+        tailStart = tailEnd = 0;
+
+        while(i < end){
+            int b = buffer[i] & 0xFF;
+
+            if(b < 0x80){
+                if(GraphCleaner.isClean(b))
+                    buffer[w++] = (byte) b;
+
+                i++;
+                continue;
+            }
+
+            //Determine the length of the sequence and the valid range of the second byte,
+            //which excludes overlong encodings, surrogates and code points above U+10FFFF
+            int len;
+            int lo = 0x80;
+            int hi = 0xBF;
+            if(b >= 0xC2 && b <= 0xDF){
+                len = 2;
+            }else if(b >= 0xE0 && b <= 0xEF){
+                len = 3;
+                if(b == 0xE0)
+                    lo = 0xA0;
+                else if(b == 0xED)
+                    hi = 0x9F;
+            }else if(b >= 0xF0 && b <= 0xF4){
+                len = 4;
+                if(b == 0xF0)
+                    lo = 0x90;
+                else if(b == 0xF4)
+                    hi = 0x8F;
+            }else{
+                //Not a valid lead byte
+                i++;
+                continue;
+            }
+
+            if(i + len > end){
+                if(eof){
+                    //Truncated sequence at the end of the stream
+                    i++;
+                    continue;
+                }
+
+                //Wait for the rest of the sequence to be read
+                tailStart = i;
+                tailEnd = end;
+                break;
+            }
+
+            if(!isValidSequence(i, len, lo, hi)){
+                i++;
+                continue;
+            }
+
+            //U+FFFE and U+FFFF are not valid XML characters
+            if(b == 0xEF && (buffer[i + 1] & 0xFF) == 0xBF && (buffer[i + 2] & 0xFF) >= 0xBE){
+                i += len;
+                continue;
+            }
+
+            for(int k = 0; k < len; k++)
+                buffer[w++] = buffer[i + k];
+
+            i += len;
+        }
+
+        return w;
+    }
+
+    private boolean isValidSequence(int i, int len, int lo, int hi){
+        int b1 = buffer[i + 1] & 0xFF;
+        if(b1 < lo || b1 > hi)
+            return false;
+
+        for(int k = 2; k < len; k++){
+            if((buffer[i + k] & 0xC0) != 0x80)
+                return false;
+        }
+
+        return true;
+    }
+}
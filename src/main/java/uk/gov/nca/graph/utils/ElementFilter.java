@@ -0,0 +1,231 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Filter and projection applied to vertices and edges as they are read, so that unwanted
+ * elements and properties are never added to the target graph.
+ *
+ * Elements can be included or excluded by label, and vertices and edges can be required
+ * to match simple property predicates of the form {@code key}, {@code !key} or
+ * {@code key op value}, where op is one of =, !=, &lt;, &lt;=, &gt; or &gt;=.
+ * Values are compared as numbers if both the property and the predicate value are numeric,
+ * and as Strings otherwise. Multi-valued properties match if any of their values match,
+ * and comparisons against a missing property never match.
+ *
+ * If property keys to keep are set, then all other properties are dropped from the
+ * elements that pass the filter.
+ */
+public class ElementFilter {
+  private static final Pattern PREDICATE = Pattern.compile("\\s*([^!=<>\\s]+)\\s*(!=|<=|>=|=|<|>)\\s*(.*?)\\s*");
+
+  private Set<String> includedVertexLabels = null;
+  private Set<String> excludedVertexLabels = Collections.emptySet();
+  private Set<String> includedEdgeLabels = null;
+  private Set<String> excludedEdgeLabels = Collections.emptySet();
+  private Set<String> propertyKeys = null;
+
+  private final List<PropertyPredicate> vertexPredicates = new ArrayList<>();
+  private final List<PropertyPredicate> edgePredicates = new ArrayList<>();
+
+  /**
+   * Set the vertex labels to keep, or null to keep all labels
+   */
+  public void setIncludedVertexLabels(Collection<String> labels){
+    includedVertexLabels = labels == null ? null : new HashSet<>(labels);
+  }
+
+  /**
+   * Set the vertex labels to drop
+   */
+  public void setExcludedVertexLabels(Collection<String> labels){
+    excludedVertexLabels = labels == null ? Collections.emptySet() : new HashSet<>(labels);
+  }
+
+  /**
+   * Set the edge labels to keep, or null to keep all labels
+   */
+  public void setIncludedEdgeLabels(Collection<String> labels){
+    includedEdgeLabels = labels == null ? null : new HashSet<>(labels);
+  }
+
+  /**
+   * Set the edge labels to drop
+   */
+  public void setExcludedEdgeLabels(Collection<String> labels){
+    excludedEdgeLabels = labels == null ? Collections.emptySet() : new HashSet<>(labels);
+  }
+
+  /**
+   * Set the property keys to keep, or null to keep all properties
+   */
+  public void setPropertyKeys(Collection<String> keys){
+    propertyKeys = keys == null ? null : new HashSet<>(keys);
+  }
+
+  /**
+   * Add a predicate that vertices must match to be kept.
+   * An IllegalArgumentException is thrown if the predicate can't be parsed.
+   */
+  public void addVertexPredicate(String predicate){
+    vertexPredicates.add(PropertyPredicate.parse(predicate));
+  }
+
+  /**
+   * Add a predicate that edges must match to be kept.
+   * An IllegalArgumentException is thrown if the predicate can't be parsed.
+   */
+  public void addEdgePredicate(String predicate){
+    edgePredicates.add(PropertyPredicate.parse(predicate));
+  }
+
+  /**
+   * Returns true if the element should be kept
+   */
+  public boolean test(Element element){
+    if(element instanceof Vertex){
+      return test(element, includedVertexLabels, excludedVertexLabels, vertexPredicates);
+    }else if(element instanceof Edge){
+      return test(element, includedEdgeLabels, excludedEdgeLabels, edgePredicates);
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns true if properties with the given key should be kept
+   */
+  public boolean keepProperty(String key){
+    return propertyKeys == null || propertyKeys.contains(key);
+  }
+
+  private static boolean test(Element element, Set<String> included, Set<String> excluded, List<PropertyPredicate> predicates){
+    String label = element.label();
+    if((included != null && !included.contains(label)) || excluded.contains(label))
+      return false;
+
+    for(PropertyPredicate p : predicates){
+      if(!p.test(element))
+        return false;
+    }
+
+    return true;
+  }
+
+  private static class PropertyPredicate {
+    private final String key;
+    private final String op;
+    private final String value;
+    private final Double number;
+
+    private PropertyPredicate(String key, String op, String value){
+      this.key = key;
+      this.op = op;
+      this.value = value;
+      this.number = parseNumber(value);
+    }
+
+    private static PropertyPredicate parse(String predicate){
+      String trimmed = predicate.trim();
+      if(trimmed.isEmpty())
+        throw new IllegalArgumentException("Empty predicate");
+
+      Matcher m = PREDICATE.matcher(trimmed);
+      if(m.matches())
+        return new PropertyPredicate(m.group(1), m.group(2), m.group(3));
+
+      if(trimmed.startsWith("!") && trimmed.length() > 1 && !trimmed.substring(1).matches(".*[!=<>\\s].*"))
+        return new PropertyPredicate(trimmed.substring(1), "!", null);
+
+      if(!trimmed.matches(".*[!=<>\\s].*"))
+        return new PropertyPredicate(trimmed, "", null);
+
+      throw new IllegalArgumentException("Unable to parse predicate " + predicate);
+    }
+
+    private boolean test(Element element){
+      Iterator<? extends Property<Object>> it = element.properties(key);
+      if("!".equals(op))
+        return !it.hasNext();
+      if(op.isEmpty())
+        return it.hasNext();
+
+      while(it.hasNext()){
+        Object o = it.next().value();
+        if(o instanceof Collection){
+          for(Object item : (Collection<?>) o){
+            if(matches(item))
+              return true;
+          }
+        }else if(matches(o)){
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    private boolean matches(Object o){
+      int cmp;
+      if(number != null && o instanceof Number){
+        cmp = Double.compare(((Number) o).doubleValue(), number);
+      }else{
+        cmp = String.valueOf(o).compareTo(value);
+      }
+
+      switch (op){
+        case "=":
+          return cmp == 0;
+        case "!=":
+          return cmp != 0;
+        case "<":
+          return cmp < 0;
+        case "<=":
+          return cmp <= 0;
+        case ">":
+          return cmp > 0;
+        default:
+          return cmp >= 0;
+      }
+    }
+
+    private static Double parseNumber(String s){
+      if(s == null)
+        return null;
+
+      try {
+        return Double.parseDouble(s);
+      }catch (NumberFormatException nfe){
+        return null;
+      }
+    }
+  }
+}
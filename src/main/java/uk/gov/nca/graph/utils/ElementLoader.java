@@ -0,0 +1,301 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.detached.DetachedFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads vertices and edges, such as those read by a {@link GraphStreamReader}, into a graph
+ * one at a time.
+ *
+ * IDs are preserved where the target graph supports them, and are otherwise mapped to
+ * the IDs assigned by the graph. Edges that are received before the vertices they connect
+ * are held until {@link #finish()} is called, at which point any edges whose vertices
+ * still don't exist (for example, because they were filtered out) are dropped.
+ *
+ * If an {@link ElementFilter} is set, then elements are filtered and their properties
+ * projected before they are added to the graph. Edges to vertices that have been filtered
+ * out are dropped straight away, rather than being held until {@link #finish()}. The IDs
+ * of filtered out vertices are held off-heap in an {@link IdDictionary}, which is removed
+ * when the loader is finished or closed.
+ */
+public class ElementLoader implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElementLoader.class);
+
+  private final Graph graph;
+  private final long batchSize;
+  private final StringInterner interner;
+  private ElementFilter filter = null;
+  private AdaptiveBatchSize adaptiveBatchSize = null;
+
+  private final Map<Object, Object> idMap = new HashMap<>();
+  private final List<Edge> deferred = new ArrayList<>();
+  private IdDictionary rejected = null;
+
+  private long vertexCount = 0;
+  private long edgeCount = 0;
+  private long droppedEdgeCount = 0;
+  private long filteredCount = 0;
+  private long uncommitted = 0;
+  private long batchStart = System.nanoTime();
+
+  /**
+   * Create a new ElementLoader with the default batch size of 10000
+   */
+  public ElementLoader(Graph graph){
+    this(graph, 10000);
+  }
+
+  /**
+   * Create a new ElementLoader, which will commit the graph after every batchSize elements
+   */
+  public ElementLoader(Graph graph, long batchSize){
+    this(graph, batchSize, null);
+  }
+
+  /**
+   * Create a new ElementLoader, which will commit the graph after every batchSize elements
+   * and use the interner (if not null) to share labels, property keys and values
+   */
+  public ElementLoader(Graph graph, long batchSize, StringInterner interner){
+    this.graph = graph;
+    this.batchSize = batchSize;
+    this.interner = interner;
+  }
+
+  /**
+   * Set the filter applied to elements before they are added to the graph, or null to add all elements
+   */
+  public void setElementFilter(ElementFilter filter){
+    this.filter = filter;
+  }
+
+  /**
+   * Set the batch size to adjust as elements are committed, or null to use the fixed batch size
+   */
+  public void setAdaptiveBatchSize(AdaptiveBatchSize adaptiveBatchSize){
+    this.adaptiveBatchSize = adaptiveBatchSize;
+  }
+
+  /**
+   * Add a vertex or edge to the graph
+   */
+  public void accept(Element element){
+    if(filter != null && !filter.test(element)){
+      filteredCount++;
+      if(element instanceof Vertex)
+        reject(element.id());
+
+      return;
+    }
+
+    if(element instanceof Vertex){
+      addVertex((Vertex) element);
+    }else if(element instanceof Edge){
+      Edge e = (Edge) element;
+      if(isRejected(e)){
+        filteredCount++;
+      }else if(!addEdge(e)){
+        deferred.add(DetachedFactory.detach(e, true));
+      }
+    }
+  }
+
+  /**
+   * Add any edges that were received before their vertices, and commit the graph.
+   * Edges that still can't be added are dropped.
+   */
+  public void finish(){
+    if(!deferred.isEmpty()) {
+      LOGGER.debug("Adding {} deferred edges", deferred.size());
+      for (Edge e : deferred) {
+        if (isRejected(e)) {
+          filteredCount++;
+        } else if (!addEdge(e)) {
+          droppedEdgeCount++;
+        }
+      }
+      deferred.clear();
+    }
+
+    close();
+
+    if(droppedEdgeCount > 0)
+      LOGGER.warn("{} edges were dropped as one or both of their vertices are missing", droppedEdgeCount);
+
+    GraphUtils.commitGraph(graph);
+    GraphUtils.getMetrics().elementsWritten(uncommitted);
+    uncommitted = 0;
+
+    if(adaptiveBatchSize != null)
+      LOGGER.info("Adaptive batch size settled on {} after {} commits", adaptiveBatchSize.getBatchSize(), adaptiveBatchSize.getCommits());
+  }
+
+  /**
+   * Get the number of vertices added to the graph
+   */
+  public long getVertexCount(){
+    return vertexCount;
+  }
+
+  /**
+   * Get the number of edges added to the graph
+   */
+  public long getEdgeCount(){
+    return edgeCount;
+  }
+
+  /**
+   * Get the number of edges dropped because one or both of their vertices were missing
+   */
+  public long getDroppedEdgeCount(){
+    return droppedEdgeCount;
+  }
+
+  /**
+   * Get the number of vertices and edges removed by the filter, including edges to vertices that were removed
+   */
+  public long getFilteredCount(){
+    return filteredCount;
+  }
+
+  /**
+   * Remove the IDs of filtered out vertices. This is done by {@link #finish()}, but should be
+   * called directly if loading is abandoned before it is finished.
+   */
+  @Override
+  public void close() {
+    if(rejected != null) {
+      rejected.close();
+      rejected = null;
+    }
+  }
+
+  private void reject(Object id){
+    if(rejected == null) {
+      try {
+        rejected = new IdDictionary();
+      } catch (IOException ioe) {
+        throw new UncheckedIOException("Unable to create dictionary of filtered vertices", ioe);
+      }
+    }
+
+    rejected.getOrAdd(id);
+  }
+
+  private boolean isRejected(Edge e){
+    return rejected != null && (rejected.contains(e.outVertex().id()) || rejected.contains(e.inVertex().id()));
+  }
+
+  private void addVertex(Vertex v){
+    String label = interner == null ? v.label() : interner.intern(v.label());
+
+    Vertex newV;
+    if(graph.features().vertex().willAllowId(v.id())){
+      newV = graph.addVertex(T.id, v.id(), T.label, label);
+    }else{
+      newV = graph.addVertex(label);
+      idMap.put(v.id(), newV.id());
+    }
+
+    copyProperties(v, newV);
+
+    vertexCount++;
+    added();
+  }
+
+  private boolean addEdge(Edge e){
+    Vertex src = findVertex(e.outVertex().id());
+    Vertex tgt = findVertex(e.inVertex().id());
+    if(src == null || tgt == null)
+      return false;
+
+    String label = interner == null ? e.label() : interner.intern(e.label());
+
+    Edge newE;
+    if(e.id() != null && graph.features().edge().willAllowId(e.id())){
+      newE = src.addEdge(label, tgt, T.id, e.id());
+    }else{
+      newE = src.addEdge(label, tgt);
+    }
+
+    copyProperties(e, newE);
+
+    edgeCount++;
+    added();
+
+    return true;
+  }
+
+  private void copyProperties(Element source, Element target){
+    if(filter == null){
+      ElementUtils.copyProperties(source, target, interner);
+      return;
+    }
+
+    for(Iterator<? extends Property<Object>> it = source.properties(); it.hasNext(); ){
+      Property<Object> p = it.next();
+      if(filter.keepProperty(p.key()))
+        ElementUtils.copyProperty(p, target, interner);
+    }
+  }
+
+  private Vertex findVertex(Object id){
+    Object mapped = idMap.get(id);
+    if(mapped == null) {
+      if (!graph.features().vertex().willAllowId(id))
+        return null;
+
+      mapped = id;
+    }
+
+    Iterator<Vertex> it = graph.vertices(mapped);
+    return it.hasNext() ? it.next() : null;
+  }
+
+  private void added(){
+    uncommitted++;
+    if(uncommitted >= (adaptiveBatchSize == null ? batchSize : adaptiveBatchSize.getBatchSize())){
+      long commitStart = System.nanoTime();
+      GraphUtils.commitGraph(graph);
+      long commitEnd = System.nanoTime();
+
+      if(adaptiveBatchSize != null)
+        adaptiveBatchSize.batchCommitted(uncommitted, commitEnd - batchStart, commitEnd - commitStart);
+
+      GraphUtils.getMetrics().elementsWritten(uncommitted);
+      uncommitted = 0;
+      batchStart = System.nanoTime();
+    }
+  }
+}
@@ -19,6 +19,9 @@ package uk.gov.nca.graph.utils;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Graph;
@@ -36,8 +39,16 @@ public class ElementUtils {
      * Copy all properties from the source element to the target element
      */
     public static void copyProperties(Element eSource, Element eTarget){
+        copyProperties(eSource, eTarget, null);
+    }
+
+    /**
+     * Copy all properties from the source element to the target element, using the
+     * interner (if not null) to share property keys and values
+     */
+    public static void copyProperties(Element eSource, Element eTarget, StringInterner interner){
         for (Iterator<? extends Property> it = eSource.properties(); it.hasNext(); ) {
-            copyProperty(it.next(), eTarget);
+            copyProperty(it.next(), eTarget, interner);
         }
     }
 
@@ -45,12 +56,27 @@ public class ElementUtils {
      * Copy a property to the target element
      */
     public static void copyProperty(Property pSource, Element eTarget){
+        copyProperty(pSource, eTarget, null);
+    }
+
+    /**
+     * Copy a property to the target element, using the interner (if not null) to share
+     * the property key and value
+     */
+    public static void copyProperty(Property<?> pSource, Element eTarget, StringInterner interner){
+        String key = pSource.key();
+        Object value = pSource.value();
+        if(interner != null){
+            key = interner.intern(key);
+            value = interner.internValue(key, value);
+        }
+
         //Check we're not overwriting
-        if(eTarget.property(pSource.key()).isPresent()){
-            Object o = eTarget.value(pSource.key());
+        if(eTarget.property(key).isPresent()){
+            Object o = eTarget.value(key);
 
             //If the two objects are equal, don't duplicate
-            if(o.equals(pSource.value()))
+            if(o.equals(value))
                 return;
 
             List<Object> properties = new ArrayList<>();
@@ -62,7 +88,7 @@ public class ElementUtils {
                 properties.add(o);
             }
 
-            Object pValue = pSource.value();
+            Object pValue = value;
             if(pValue instanceof List){
                 //If the new value is a list, filter out existing values (don't duplicate)
                 //and add values to list
@@ -76,9 +102,9 @@ public class ElementUtils {
                     properties.add(pValue);
             }
 
-            eTarget.property(pSource.key(), properties);
+            eTarget.property(key, properties);
         }else {
-            eTarget.property(pSource.key(), pSource.value());
+            eTarget.property(key, value);
         }
     }
 
@@ -204,4 +230,95 @@ public class ElementUtils {
             return vertices;
         }
     }
+
+    /**
+     * Lazily stream all vertices that are one hop away from an initial vertex,
+     * specifying the edge label and direction, and the target vertex label.
+     *
+     * Unlike {@link #getOneHopVertices(Graph, Vertex, String, Direction, String)},
+     * the initial vertex is never included in the results.
+     */
+    public static Stream<Vertex> streamOneHopVertices(Graph g, Vertex v,
+        String edgeLabel, Direction edgeDirection,
+        String targetLabel){
+
+        return streamOneHopVertices(g, v, edgeLabel, edgeDirection, targetLabel, false, 0);
+    }
+
+    /**
+     * Lazily stream all vertices that are one hop away from an initial vertex,
+     * specifying the edge label and direction, and the target vertex label.
+     *
+     * The initial vertex is never included in the results. If dedup is true, then
+     * each vertex will be returned at most once, and if limit is greater than 0 then
+     * at most that many vertices will be returned. Both are applied within the traversal,
+     * so the graph isn't queried for more vertices than are needed.
+     */
+    public static Stream<Vertex> streamOneHopVertices(Graph g, Vertex v,
+        String edgeLabel, Direction edgeDirection,
+        String targetLabel, boolean dedup, long limit){
+
+        GraphTraversal<Vertex, Vertex> traversal = g.traversal().V(v.id()).as("orig")
+            .to(edgeDirection, edgeLabel)
+            .hasLabel(targetLabel);
+
+        return finishHopTraversal(traversal, dedup, limit).toStream();
+    }
+
+    /**
+     * Lazily stream all vertices that are two hops away from an initial vertex,
+     * specifiying the edge labels and directions, and the intermediate vertex label.
+     *
+     * Every occurrence of the initial vertex is removed from the results.
+     */
+    public static Stream<Vertex> streamTwoHopVertices(Graph g, Vertex v,
+        String edgeLabel1, Direction edgeDirection1,
+        String intermediateNodeLabel,
+        String edgeLabel2, Direction edgeDirection2){
+
+        return streamTwoHopVertices(g, v, edgeLabel1, edgeDirection1, intermediateNodeLabel,
+            edgeLabel2, edgeDirection2, null, false, 0);
+    }
+
+    /**
+     * Lazily stream all vertices that are two hops away from an initial vertex,
+     * specifiying the edge labels and directions, the intermediate vertex label,
+     * and the target vertex label (which may be null to allow any label).
+     *
+     * Every occurrence of the initial vertex is removed from the results. If dedup is
+     * true, then each vertex will be returned at most once, and if limit is greater
+     * than 0 then at most that many vertices will be returned. Both are applied within
+     * the traversal, so the graph isn't queried for more vertices than are needed.
+     */
+    public static Stream<Vertex> streamTwoHopVertices(Graph g, Vertex v,
+        String edgeLabel1, Direction edgeDirection1,
+        String intermediateNodeLabel,
+        String edgeLabel2, Direction edgeDirection2,
+        String targetNodeLabel, boolean dedup, long limit){
+
+        GraphTraversal<Vertex, Vertex> traversal = g.traversal().V(v.id()).as("orig")
+            .to(edgeDirection1, edgeLabel1)
+            .hasLabel(intermediateNodeLabel)
+            .to(edgeDirection2, edgeLabel2);
+
+        if(targetNodeLabel != null)
+            traversal = traversal.hasLabel(targetNodeLabel);
+
+        return finishHopTraversal(traversal, dedup, limit).toStream();
+    }
+
+    private static GraphTraversal<Vertex, Vertex> finishHopTraversal(GraphTraversal<Vertex, Vertex> traversal,
+        boolean dedup, long limit){
+
+        //Remove the case where our hop has bought us back to the original vertex
+        GraphTraversal<Vertex, Vertex> t = traversal.where(P.neq("orig"));
+
+        if(dedup)
+            t = t.dedup();
+
+        if(limit > 0)
+            t = t.limit(limit);
+
+        return t;
+    }
 }
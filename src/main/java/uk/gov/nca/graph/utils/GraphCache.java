@@ -0,0 +1,246 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of graphs read from file, so that repeated reads of the same file (for example,
+ * by a long running process) don't need to parse it again. Once set with
+ * {@link GraphUtils#setGraphCache(GraphCache)}, all reads through
+ * {@link GraphUtils#readGraphFile(File, String, Graph, ReadOptions)}
+ * into a TinkerGraph go through the cache, unless the file is larger than the configured maximum
+ * file size. Other reads (e.g. into a database) are not cached.
+ *
+ * Files are identified by their canonical path, format, size and last modified time, so a
+ * file that has changed will be read again. The cached graphs are held in memory, and the
+ * least recently used are removed once the total number of cached vertices and edges
+ * exceeds the configured maximum.
+ *
+ * Callers receive a copy of the cached graph (filtered and interned as requested), so may
+ * modify it freely. If several callers request the same file at once, it is only read once.
+ */
+public class GraphCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphCache.class);
+
+  /**
+   * Default maximum size of file to cache, in bytes
+   */
+  public static final long DEFAULT_MAX_FILE_SIZE = 512L * 1024 * 1024;
+
+  private final long maxElements;
+  private final long maxFileSize;
+
+  //Guarded by this, in access order so that the eldest entry is the least recently used
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedElements = 0;
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * Create a new GraphCache, which will hold graphs up to a total of maxElements vertices and edges,
+   * and won't cache files larger than {@link #DEFAULT_MAX_FILE_SIZE}
+   */
+  public GraphCache(long maxElements){
+    this(maxElements, DEFAULT_MAX_FILE_SIZE);
+  }
+
+  /**
+   * Create a new GraphCache, which will hold graphs up to a total of maxElements vertices and edges,
+   * and won't cache files larger than maxFileSize bytes
+   */
+  public GraphCache(long maxElements, long maxFileSize){
+    this.maxElements = maxElements;
+    this.maxFileSize = maxFileSize;
+  }
+
+  /**
+   * Returns true if reads of this file into the target graph should go through the cache.
+   * Cached graphs are held in memory, so only files up to the maximum file size are cached, and
+   * only when the target is also an in-memory TinkerGraph (e.g. not when importing into a database).
+   */
+  public boolean isCacheable(File file, Graph graph){
+    return graph instanceof TinkerGraph && file.length() <= maxFileSize;
+  }
+
+  /**
+   * Read a graph file into the target graph, using the cached copy if there is one
+   * (see {@link GraphUtils#readGraphFile(File, String, Graph, ReadOptions)}). The cached copy is
+   * read with the clean option only, and then interned, filtered and loaded in batches as requested.
+   *
+   * If the file isn't cacheable (see {@link #isCacheable(File, Graph)}), it is read directly into the target graph.
+   */
+  public boolean readGraphFile(File file, String format, Graph graph, ReadOptions options){
+    if(options == null)
+      options = new ReadOptions();
+
+    if(!isCacheable(file, graph)){
+      LOGGER.info("Not caching graph file {}", file);
+      return GraphUtils.readGraphFileDirect(file, format, graph, options, UnaryOperator.identity());
+    }
+
+    boolean clean = options.isClean();
+
+    String key;
+    try {
+      key = String.join("|", file.getCanonicalPath(), format.toLowerCase(), Boolean.toString(clean),
+          Long.toString(file.length()), Long.toString(file.lastModified()));
+    }catch (IOException ioe){
+      LOGGER.error("Unable to read graph from disk", ioe);
+      return false;
+    }
+
+    Entry entry;
+    synchronized (this){
+      entry = entries.get(key);
+      if(entry == null){
+        entry = new Entry();
+        entries.put(key, entry);
+        misses++;
+      }else{
+        hits++;
+        LOGGER.info("Reading graph file {} from cache", file);
+      }
+    }
+
+    Graph cached = entry.load(file, format, clean);
+
+    synchronized (this){
+      if(cached == null){
+        entries.remove(key, entry);
+        return false;
+      }
+
+      if(!entry.counted && entries.get(key) == entry){
+        entry.counted = true;
+        cachedElements += entry.elements;
+        evict();
+      }
+    }
+
+    try(ElementLoader loader = new ElementLoader(graph, options.getBatchSize(), options.getInterner())) {
+      loader.setElementFilter(options.getFilter());
+      loader.setAdaptiveBatchSize(options.getAdaptiveBatchSize());
+      cached.vertices().forEachRemaining(loader::accept);
+      cached.edges().forEachRemaining(loader::accept);
+      loader.finish();
+    }
+
+    return true;
+  }
+
+  /**
+   * Remove all graphs from the cache
+   */
+  public synchronized void clear(){
+    entries.clear();
+    cachedElements = 0;
+  }
+
+  /**
+   * Get the number of graphs in the cache
+   */
+  public synchronized int size(){
+    return entries.size();
+  }
+
+  /**
+   * Get the total number of vertices and edges in the cached graphs
+   */
+  public synchronized long getCachedElements(){
+    return cachedElements;
+  }
+
+  /**
+   * Get the number of reads that used a cached graph
+   */
+  public synchronized long getHits(){
+    return hits;
+  }
+
+  /**
+   * Get the number of reads that had to read the file
+   */
+  public synchronized long getMisses(){
+    return misses;
+  }
+
+  /**
+   * Get the keys of the cached graphs, from least to most recently used
+   */
+  public synchronized List<String> getKeys(){
+    return new ArrayList<>(entries.keySet());
+  }
+
+  private void evict(){
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while(cachedElements > maxElements && it.hasNext()){
+      Map.Entry<String, Entry> eldest = it.next();
+      if(!eldest.getValue().counted)
+        continue;
+
+      LOGGER.info("Removing {} from cache", eldest.getKey());
+      cachedElements -= eldest.getValue().elements;
+      it.remove();
+    }
+  }
+
+  /**
+   * A cached graph, which is read the first time it is needed
+   */
+  private static class Entry {
+    private Graph graph = null;
+    private boolean failed = false;
+    private long elements = 0;
+    private boolean counted = false;
+
+    private synchronized Graph load(File file, String format, boolean clean){
+      if(graph == null && !failed){
+        LOGGER.info("Reading graph file {} into cache", file);
+
+        Graph g = TinkerGraph.open();
+        try (InputStream stream = new FileInputStream(file)) {
+          failed = !GraphUtils.readGraph(stream, format, g, new ReadOptions().setClean(clean));
+        } catch (IOException ioe) {
+          LOGGER.error("Unable to read graph from disk", ioe);
+          failed = true;
+        }
+
+        if(!failed) {
+          graph = g;
+          elements = IteratorUtils.count(g.vertices()) + IteratorUtils.count(g.edges());
+        }
+      }
+
+      return graph;
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility class for removing unsupported characters (e.g. control characters)
+ * from UTF-8 (or ASCII) encoded graph files.
+ *
+ * All of the characters removed are single byte characters in UTF-8, and bytes
+ * within a multi-byte UTF-8 sequence always have their high bit set, so cleaning
+ * can be done byte by byte without decoding and without risk of splitting a
+ * multi-byte sequence. This also means that a file can be split into chunks
+ * at any point, and the chunks cleaned independently.
+ */
+public class GraphCleaner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphCleaner.class);
+
+    /**
+     * The default size of the buffer used when cleaning files and streams
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final boolean[] KEEP = new boolean[256];
+    static {
+        for(int i = 0; i < 256; i++)
+            KEEP[i] = isClean(i);
+    }
+
+    private GraphCleaner(){}
+
+    /**
+     * Returns true if the character is not a control character
+     */
+    public static boolean isClean(int ch){
+        return !((ch >= 0 && ch <= 8) || (ch >= 11 && ch <= 31) || ch == 127);
+    }
+
+    /**
+     * Remove any control characters from the specified region of a byte array,
+     * moving the remaining bytes to the start of the region.
+     *
+     * Returns the number of bytes remaining.
+     */
+    public static int clean(byte[] bytes, int offset, int length){
+        int write = offset;
+        int end = offset + length;
+
+        for(int read = offset; read < end; read++){
+            byte b = bytes[read];
+            bytes[write] = b;
+            if(KEEP[b & 0xFF])
+                write++;
+        }
+
+        return write - offset;
+    }
+
+    /**
+     * Copy an InputStream to an OutputStream, removing any control characters.
+     *
+     * Returns the number of bytes written.
+     */
+    public static long clean(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        long written = 0;
+
+        int read;
+        while((read = inputStream.read(buffer)) != -1){
+            int len = clean(buffer, 0, read);
+            outputStream.write(buffer, 0, len);
+            written += len;
+        }
+
+        return written;
+    }
+
+    /**
+     * Copy a file, removing any control characters, using a single thread.
+     *
+     * Returns the number of bytes written.
+     */
+    public static long cleanFile(File input, File output) throws IOException {
+        return cleanFile(input, output, DEFAULT_BUFFER_SIZE, 1);
+    }
+
+    /**
+     * Copy a file, removing any control characters.
+     *
+     * The file is processed in chunks of chunkSize bytes, and if threads is greater than 1,
+     * then up to that many chunks will be read and cleaned in parallel. Chunks are always
+     * written out in order.
+     *
+     * Returns the number of bytes written.
+     */
+    public static long cleanFile(File input, File output, int chunkSize, int threads) throws IOException {
+        LOGGER.info("Cleaning file {} using {} thread(s)", input, threads);
+        long start = System.nanoTime();
+
+        try(
+            FileChannel in = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+        ){
+            long size = in.size();
+            long written;
+
+            if(threads <= 1) {
+                written = cleanSequential(in, out, chunkSize);
+            }else{
+                written = cleanParallel(in, out, size, chunkSize, threads);
+            }
+
+            LOGGER.info("File {} cleaned - {} bytes read and {} bytes written", input, size, written);
+            GraphUtils.getMetrics().phaseCompleted("clean", System.nanoTime() - start);
+            return written;
+        }
+    }
+
+    private static long cleanSequential(FileChannel in, FileChannel out, int chunkSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        long written = 0;
+
+        while(in.read(buffer) != -1){
+            GraphUtils.getMetrics().bytesRead(buffer.position());
+            int len = clean(buffer.array(), 0, buffer.position());
+
+            buffer.position(0);
+            buffer.limit(len);
+            written += writeFully(out, buffer);
+
+            buffer.clear();
+        }
+
+        return written;
+    }
+
+    private static long cleanParallel(FileChannel in, FileChannel out, long size, int chunkSize, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+
+        long position = 0;
+        long written = 0;
+
+        try {
+            while (position < size || !pending.isEmpty()) {
+                //Keep a bounded number of chunks in flight, so memory use is limited to threads x chunkSize
+                while (position < size && pending.size() < threads) {
+                    final long chunkPosition = position;
+                    final int chunkLength = (int) Math.min(chunkSize, size - position);
+                    pending.add(executor.submit(() -> readAndClean(in, chunkPosition, chunkLength)));
+
+                    position += chunkLength;
+                }
+
+                written += writeFully(out, pending.removeFirst().get());
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst cleaning file", ie);
+        } catch (ExecutionException ee) {
+            throw new IOException("Unable to clean chunk of file", ee.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return written;
+    }
+
+    private static ByteBuffer readAndClean(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()){
+            if(in.read(buffer, position + buffer.position()) == -1)
+                break;
+        }
+
+        GraphUtils.getMetrics().bytesRead(buffer.position());
+        int len = clean(buffer.array(), 0, buffer.position());
+        buffer.position(0);
+        buffer.limit(len);
+
+        return buffer;
+    }
+
+    private static long writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        long written = 0;
+        while(buffer.hasRemaining())
+            written += out.write(buffer);
+
+        GraphUtils.getMetrics().bytesWritten(written);
+        return written;
+    }
+}
@@ -0,0 +1,627 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares two graph files, with a format of either graphml, graphson or gryo, and reports
+ * the vertices and edges that have been added, removed or changed between them.
+ *
+ * Both files are streamed, and each element is reduced to a 64 bit hash of its key and a
+ * 64 bit hash of its content (label and properties, and for edges the vertices they connect).
+ * By default, elements are keyed on their ID. If key properties are set, then vertices are
+ * instead keyed on their label and the values of those properties, and edges on their label,
+ * the keys of the vertices they connect and the values of any key properties they have, so that
+ * graphs with different IDs can be compared.
+ *
+ * The hashes are written to partition files on disk, and each partition is compared separately,
+ * so only one partition of the first graph needs to be held in memory at a time. Property values
+ * are compared by their String representation, and meta-properties are ignored.
+ * Elements that have the same key are matched with each other where their content is the same.
+ *
+ * Each difference is written to the report as a line starting with + (added), - (removed)
+ * or ~ (changed), followed by the type of element and a description of its key.
+ */
+public class GraphDiff {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphDiff.class);
+
+  private static final int MAX_DESCRIPTION_LENGTH = 1000;
+
+  private final int partitions;
+  private List<String> keyProperties = Collections.emptyList();
+  private boolean clean = false;
+
+  private final long[] added = new long[2];
+  private final long[] removed = new long[2];
+  private final long[] changed = new long[2];
+  private final long[] unchanged = new long[2];
+
+  /**
+   * Create a new GraphDiff, which will use 64 partitions
+   */
+  public GraphDiff(){
+    this(64);
+  }
+
+  /**
+   * Create a new GraphDiff, which will use the given number of partitions.
+   * Increasing the number of partitions reduces the memory required to compare large graphs.
+   */
+  public GraphDiff(int partitions){
+    this.partitions = Math.max(1, partitions);
+  }
+
+  /**
+   * Set the property keys used to identify elements, rather than their IDs.
+   * If null or empty, then elements are identified by their IDs.
+   */
+  public void setKeyProperties(Collection<String> keyProperties){
+    this.keyProperties = keyProperties == null ? Collections.emptyList() : new ArrayList<>(keyProperties);
+  }
+
+  /**
+   * Set whether unsupported characters should be removed from the files as they are read
+   */
+  public void setClean(boolean clean){
+    this.clean = clean;
+  }
+
+  /**
+   * Compare two graph files, writing the differences to the report.
+   * The files are read in parallel. Returns false if either file couldn't be read or
+   * the report couldn't be written.
+   */
+  public boolean diff(File left, String leftFormat, File right, String rightFormat, Writer report){
+    Arrays.fill(added, 0);
+    Arrays.fill(removed, 0);
+    Arrays.fill(changed, 0);
+    Arrays.fill(unchanged, 0);
+
+    File dir;
+    try {
+      dir = Files.createTempDirectory("graphdiff").toFile();
+    }catch (IOException ioe){
+      LOGGER.error("Unable to create temporary directory", ioe);
+      return false;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    long start = System.nanoTime();
+    try {
+      Future<File[]> leftFuture = executor.submit(() -> partition(left, leftFormat, new File(dir, "left")));
+      Future<File[]> rightFuture = executor.submit(() -> partition(right, rightFormat, new File(dir, "right")));
+
+      File[] leftPartitions = leftFuture.get();
+      File[] rightPartitions = rightFuture.get();
+      GraphUtils.getMetrics().phaseCompleted("hash", System.nanoTime() - start);
+
+      start = System.nanoTime();
+      for(int i = 0; i < partitions; i++)
+        compare(leftPartitions[i], rightPartitions[i], report);
+
+      report.flush();
+      GraphUtils.getMetrics().phaseCompleted("compare", System.nanoTime() - start);
+    }catch (ExecutionException ee){
+      LOGGER.error("Unable to read graph file", ee.getCause());
+      return false;
+    }catch (IOException ioe){
+      LOGGER.error("Unable to compare graphs", ioe);
+      return false;
+    }catch (InterruptedException ie){
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted whilst comparing graphs");
+      return false;
+    }finally{
+      executor.shutdownNow();
+      delete(dir);
+    }
+
+    LOGGER.info("Vertices: {} added, {} removed, {} changed, {} unchanged", added[0], removed[0], changed[0], unchanged[0]);
+    LOGGER.info("Edges: {} added, {} removed, {} changed, {} unchanged", added[1], removed[1], changed[1], unchanged[1]);
+
+    return true;
+  }
+
+  /**
+   * Get the number of vertices in the second graph but not the first
+   */
+  public long getAddedVertexCount(){
+    return added[0];
+  }
+
+  /**
+   * Get the number of vertices in the first graph but not the second
+   */
+  public long getRemovedVertexCount(){
+    return removed[0];
+  }
+
+  /**
+   * Get the number of vertices in both graphs whose content has changed
+   */
+  public long getChangedVertexCount(){
+    return changed[0];
+  }
+
+  /**
+   * Get the number of vertices in both graphs whose content is the same
+   */
+  public long getUnchangedVertexCount(){
+    return unchanged[0];
+  }
+
+  /**
+   * Get the number of edges in the second graph but not the first
+   */
+  public long getAddedEdgeCount(){
+    return added[1];
+  }
+
+  /**
+   * Get the number of edges in the first graph but not the second
+   */
+  public long getRemovedEdgeCount(){
+    return removed[1];
+  }
+
+  /**
+   * Get the number of edges in both graphs whose content has changed
+   */
+  public long getChangedEdgeCount(){
+    return changed[1];
+  }
+
+  /**
+   * Get the number of edges in both graphs whose content is the same
+   */
+  public long getUnchangedEdgeCount(){
+    return unchanged[1];
+  }
+
+  /**
+   * Hash every element in a file, and write the hashes to partition files in the given directory
+   */
+  private File[] partition(File file, String format, File dir) throws IOException {
+    if(!dir.mkdir())
+      throw new IOException("Unable to create directory " + dir);
+
+    boolean cleanBytes = clean && !"gryo".equalsIgnoreCase(format);
+    if(clean && !cleanBytes)
+      LOGGER.warn("Gryo is a binary format and can't be cleaned - file will be read without cleaning");
+
+    LOGGER.info("Hashing elements in {}", file);
+    try(PartitionWriter writer = new PartitionWriter(dir);
+        InputStream is = cleanBytes ? new CleaningInputStream(new GraphUtils.CountingInputStream(new FileInputStream(file)), "graphml".equalsIgnoreCase(format))
+            : new BufferedInputStream(new GraphUtils.CountingInputStream(new FileInputStream(file)));
+        GraphStreamReader reader = new GraphStreamReader(is, format)){
+
+      reader.forEachRemaining(e -> {
+        try {
+          writer.accept(e);
+        }catch (IOException ioe){
+          throw new IllegalStateException("Unable to write partition", ioe);
+        }
+        GraphUtils.getMetrics().elementsRead(1);
+      });
+      writer.resolveEdges();
+
+      return writer.files;
+    }
+  }
+
+  /**
+   * Compare a partition from each graph, holding only the first in memory
+   */
+  private void compare(File leftPartition, File rightPartition, Writer report) throws IOException {
+    Map<Long, Record> leftRecords = new HashMap<>();
+    try(DataInputStream in = openPartition(leftPartition)){
+      Record r;
+      while((r = Record.read(in)) != null){
+        r.next = leftRecords.get(r.key);
+        leftRecords.put(r.key, r);
+      }
+    }
+
+    try(DataInputStream in = openPartition(rightPartition)){
+      Record r;
+      while((r = Record.read(in)) != null){
+        Record match = removeMatch(leftRecords, r);
+        int type = r.edge ? 1 : 0;
+
+        if(match == null){
+          added[type]++;
+          writeDifference(report, '+', r);
+        }else if(match.content != r.content){
+          changed[type]++;
+          writeDifference(report, '~', r);
+        }else{
+          unchanged[type]++;
+        }
+      }
+    }
+
+    for(Record r : leftRecords.values()){
+      for(; r != null; r = r.next){
+        removed[r.edge ? 1 : 0]++;
+        writeDifference(report, '-', r);
+      }
+    }
+  }
+
+  /**
+   * Remove and return the record with the same key as r, preferring one with the same content
+   */
+  private static Record removeMatch(Map<Long, Record> records, Record r){
+    Record head = records.get(r.key);
+
+    Record prev = null;
+    Record match = null;
+    for(Record p = null, curr = head; curr != null; p = curr, curr = curr.next){
+      if(curr.edge == r.edge && (match == null || curr.content == r.content)){
+        prev = p;
+        match = curr;
+
+        if(curr.content == r.content)
+          break;
+      }
+    }
+
+    if(match == null)
+      return null;
+
+    if(prev != null){
+      prev.next = match.next;
+    }else if(match.next != null){
+      records.put(r.key, match.next);
+    }else{
+      records.remove(r.key);
+    }
+
+    return match;
+  }
+
+  private static void writeDifference(Writer report, char change, Record r) throws IOException {
+    report.write(change);
+    report.write(r.edge ? " edge " : " vertex ");
+    report.write(r.description);
+    report.write('\n');
+  }
+
+  private static DataInputStream openPartition(File file) throws IOException {
+    return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+  }
+
+  private static void delete(File file){
+    File[] children = file.listFiles();
+    if(children != null) {
+      for (File child : children)
+        delete(child);
+    }
+
+    if(!file.delete())
+      LOGGER.warn("Unable to delete temporary file {}", file);
+  }
+
+  private static String truncate(String s){
+    return s.length() > MAX_DESCRIPTION_LENGTH ? s.substring(0, MAX_DESCRIPTION_LENGTH) + "..." : s;
+  }
+
+  /**
+   * The hashes of an element's key and content, and a description of its key for reporting
+   */
+  private static class Record {
+    private final long key;
+    private final long content;
+    private final boolean edge;
+    private final String description;
+
+    //Next record with the same key
+    private Record next = null;
+
+    private Record(long key, long content, boolean edge, String description){
+      this.key = key;
+      this.content = content;
+      this.edge = edge;
+      this.description = description;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeLong(key);
+      out.writeLong(content);
+      out.writeBoolean(edge);
+      out.writeUTF(description);
+    }
+
+    private static Record read(DataInputStream in) throws IOException {
+      long key;
+      try {
+        key = in.readLong();
+      }catch (EOFException eof){
+        return null;
+      }
+
+      return new Record(key, in.readLong(), in.readBoolean(), in.readUTF());
+    }
+  }
+
+  /**
+   * Hashes elements and writes them to partition files. When keying on properties, edges
+   * can't be hashed until the keys of the vertices they connect are known, and so are
+   * written to a separate file and hashed once all the vertices have been read.
+   */
+  private class PartitionWriter implements Closeable {
+    private final File[] files = new File[partitions];
+    private final DataOutputStream[] outputs = new DataOutputStream[partitions];
+
+    private final File edgeFile;
+    private final DataOutputStream edgeOutput;
+    private final IdDictionary index;
+    private long[] vertexKeys = new long[1024];
+
+    private PartitionWriter(File dir) throws IOException {
+      for(int i = 0; i < partitions; i++) {
+        files[i] = new File(dir, "partition." + i);
+        outputs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[i])));
+      }
+
+      if(keyProperties.isEmpty()){
+        edgeFile = null;
+        edgeOutput = null;
+        index = null;
+      }else{
+        edgeFile = new File(dir, "edges");
+        edgeOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(edgeFile)));
+        index = new IdDictionary(dir);
+      }
+    }
+
+    private void accept(Element e) throws IOException {
+      if(e instanceof Vertex){
+        acceptVertex((Vertex) e);
+      }else if(e instanceof Edge){
+        acceptEdge((Edge) e);
+      }
+    }
+
+    private void acceptVertex(Vertex v) throws IOException {
+      long content = new Hasher().add(v.label()).addProperties(v).get();
+
+      if(index == null){
+        String id = String.valueOf(v.id());
+        write(new Record(new Hasher().add("v").add(id).get(), content, false, truncate(id)));
+      }else{
+        Hasher key = new Hasher().add("v").add(v.label());
+        StringBuilder description = new StringBuilder(v.label()).append('[');
+        addKeyProperties(v, key, description);
+        description.append(']');
+
+        long keyHash = key.get();
+        int idx = index.getOrAdd(v.id());
+        ensureCapacity(idx);
+        vertexKeys[idx] = keyHash;
+
+        write(new Record(keyHash, content, false, truncate(description.toString())));
+      }
+    }
+
+    private void acceptEdge(Edge e) throws IOException {
+      String outId = String.valueOf(e.outVertex().id());
+      String inId = String.valueOf(e.inVertex().id());
+      String description = e.label() + "(" + outId + "->" + inId + ")";
+
+      if(index == null){
+        long content = new Hasher().add(e.label()).add(outId).add(inId).addProperties(e).get();
+
+        String id = e.id() == null ? description : String.valueOf(e.id());
+        write(new Record(new Hasher().add("e").add(id).get(), content, true, truncate(id)));
+      }else{
+        long content = new Hasher().add(e.label()).addProperties(e).get();
+
+        Hasher key = new Hasher().add("e").add(e.label());
+        addKeyProperties(e, key, null);
+
+        int outIdx = index.getOrAdd(e.outVertex().id());
+        int inIdx = index.getOrAdd(e.inVertex().id());
+        ensureCapacity(Math.max(outIdx, inIdx));
+
+        edgeOutput.writeLong(key.get());
+        edgeOutput.writeInt(outIdx);
+        edgeOutput.writeInt(inIdx);
+        edgeOutput.writeLong(content);
+        edgeOutput.writeUTF(truncate(description));
+      }
+    }
+
+    private void addKeyProperties(Element e, Hasher key, StringBuilder description){
+      for(String k : keyProperties){
+        List<String> values = new ArrayList<>();
+        e.properties(k).forEachRemaining(p -> addValues(values, p.value()));
+        Collections.sort(values);
+
+        key.add(values.size());
+        values.forEach(key::add);
+
+        if(description != null && !values.isEmpty()){
+          if(description.charAt(description.length() - 1) != '[')
+            description.append(", ");
+          description.append(k).append('=').append(values.size() == 1 ? values.get(0) : values);
+        }
+      }
+    }
+
+    /**
+     * Hash the edges held in the edge file, now that the keys of all vertices are known
+     */
+    private void resolveEdges() throws IOException {
+      if(edgeOutput == null)
+        return;
+
+      edgeOutput.close();
+      try(DataInputStream in = openPartition(edgeFile)){
+        while(true) {
+          long edgeKey;
+          try {
+            edgeKey = in.readLong();
+          }catch (EOFException eof){
+            break;
+          }
+
+          long outKey = vertexKey(in.readInt());
+          long inKey = vertexKey(in.readInt());
+          long content = in.readLong();
+          String description = in.readUTF();
+
+          long key = new Hasher().add(edgeKey).add(outKey).add(inKey).get();
+          write(new Record(key, content, true, description));
+        }
+      }
+    }
+
+    /**
+     * Get the key of a vertex, or if the vertex wasn't in the graph then a key based on its ID
+     */
+    private long vertexKey(int idx){
+      long key = vertexKeys[idx];
+      if(key == 0)
+        key = new Hasher().add("v").add(String.valueOf(index.getId(idx))).get();
+
+      return key;
+    }
+
+    private void ensureCapacity(int idx){
+      if(idx >= vertexKeys.length)
+        vertexKeys = Arrays.copyOf(vertexKeys, Math.max(idx + 1, vertexKeys.length * 2));
+    }
+
+    private void write(Record r) throws IOException {
+      r.write(outputs[(int) Long.remainderUnsigned(r.key, partitions)]);
+    }
+
+    @Override
+    public void close() throws IOException {
+      for(DataOutputStream out : outputs)
+        out.close();
+
+      if(edgeOutput != null)
+        edgeOutput.close();
+      if(index != null)
+        index.close();
+    }
+  }
+
+  private static void addValues(List<String> values, Object value){
+    if(value instanceof Collection){
+      for(Object o : (Collection<?>) value)
+        values.add(String.valueOf(o));
+    }else{
+      values.add(String.valueOf(value));
+    }
+  }
+
+  /**
+   * Incremental 64 bit FNV-1a hash, followed by the MurmurHash3 finaliser to spread the bits.
+   * Strings are terminated so that adjacent strings can't run into each other.
+   */
+  private static class Hasher {
+    private long h = 0xCBF29CE484222325L;
+
+    private Hasher add(String s){
+      for(int i = 0; i < s.length(); i++)
+        mix(s.charAt(i));
+
+      mix(0xFFFF);
+      return this;
+    }
+
+    private Hasher add(long l){
+      for(int i = 0; i < 64; i += 16)
+        mix((int) (l >>> i) & 0xFFFF);
+
+      return this;
+    }
+
+    private Hasher addProperties(Element e){
+      SortedMap<String, List<String>> properties = new TreeMap<>();
+      Iterator<? extends Property<Object>> it = e.properties();
+      while(it.hasNext()){
+        Property<Object> p = it.next();
+        addValues(properties.computeIfAbsent(p.key(), k -> new ArrayList<>()), p.value());
+      }
+
+      for(Map.Entry<String, List<String>> entry : properties.entrySet()){
+        add(entry.getKey());
+
+        List<String> values = entry.getValue();
+        Collections.sort(values);
+        add(values.size());
+        values.forEach(this::add);
+      }
+
+      return this;
+    }
+
+    private void mix(int c){
+      h ^= c;
+      h *= 0x100000001B3L;
+    }
+
+    private long get(){
+      long k = h;
+      k ^= k >>> 33;
+      k *= 0xFF51AFD7ED558CCDL;
+      k ^= k >>> 33;
+      k *= 0xC4CEB93FE53B87CDL;
+      k ^= k >>> 33;
+
+      //Zero is reserved for vertices that haven't been seen
+      return k == 0 ? 1 : k;
+    }
+  }
+}
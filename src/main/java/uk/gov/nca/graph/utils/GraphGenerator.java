@@ -0,0 +1,624 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package uk.gov.nca.graph.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class for generating synthetic graphs for load and scale testing.
+ *
+ * Generated graphs are made up of connected components, optionally including a single
+ * giant component, with the sizes of the remaining components drawn from a power law.
+ * Vertices are given a random label and a number of properties, some of which are multi-valued.
+ *
+ * Components are generated in shards of a fixed number of vertices, so that large components
+ * can be generated in parallel without holding them in memory. Within each shard, vertices are
+ * connected by preferential attachment, giving a power law degree distribution. The shards of a
+ * component are then joined into a single component by one edge from each shard to a vertex
+ * in an earlier shard, with earlier shards more likely to be chosen.
+ *
+ * Generation is deterministic for a given seed, regardless of the number of threads used.
+ */
+public class GraphGenerator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphGenerator.class);
+
+  private final long vertices;
+  private final double averageDegree;
+  private final long seed;
+
+  private double giantComponentFraction = 0.0;
+  private double componentSizeExponent = 2.5;
+  private long maxComponentSize = Long.MAX_VALUE;
+  private List<String> vertexLabels = Arrays.asList("Person", "Email", "Phone", "Address");
+  private List<String> edgeLabels = Arrays.asList("link");
+  private int propertiesPerVertex = 3;
+  private int maxValuesPerProperty = 3;
+  private int shardSize = 100000;
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Create a new GraphGenerator that will generate the given number of vertices,
+   * with the given average degree (i.e. approximately vertices x averageDegree / 2 edges)
+   */
+  public GraphGenerator(long vertices, double averageDegree, long seed){
+    if(averageDegree < 0.0)
+      throw new IllegalArgumentException("Average degree must not be negative");
+
+    this.vertices = vertices;
+    this.averageDegree = averageDegree;
+    this.seed = seed;
+  }
+
+  /**
+   * Set the fraction of vertices (between 0 and 1) that should be in a single giant
+   * component. Defaults to 0, meaning that there is no giant component.
+   */
+  public void setGiantComponentFraction(double giantComponentFraction){
+    if(giantComponentFraction < 0.0 || giantComponentFraction > 1.0)
+      throw new IllegalArgumentException("Giant component fraction must be between 0 and 1");
+
+    this.giantComponentFraction = giantComponentFraction;
+  }
+
+  /**
+   * Set the exponent of the power law that the sizes of the (non-giant) components are drawn
+   * from. Larger values give more small components. Defaults to 2.5.
+   */
+  public void setComponentSizeExponent(double componentSizeExponent){
+    if(componentSizeExponent <= 1.0)
+      throw new IllegalArgumentException("Component size exponent must be greater than 1");
+
+    this.componentSizeExponent = componentSizeExponent;
+  }
+
+  /**
+   * Set the maximum size of the (non-giant) components. Sizes drawn from the power law that are
+   * larger than this are reduced to it, so the tail of the distribution is cut off and there will
+   * be more components of this size than the power law gives. Components are also never larger
+   * than the giant component. Defaults to no limit.
+   */
+  public void setMaxComponentSize(long maxComponentSize){
+    if(maxComponentSize < 1)
+      throw new IllegalArgumentException("Maximum component size must be positive");
+
+    this.maxComponentSize = maxComponentSize;
+  }
+
+  /**
+   * Set the labels that will be randomly assigned to vertices
+   */
+  public void setVertexLabels(List<String> vertexLabels){
+    this.vertexLabels = new ArrayList<>(vertexLabels);
+  }
+
+  /**
+   * Set the labels that will be randomly assigned to edges
+   */
+  public void setEdgeLabels(List<String> edgeLabels){
+    this.edgeLabels = new ArrayList<>(edgeLabels);
+  }
+
+  /**
+   * Set the number of properties (in addition to name) that each vertex will have,
+   * and the maximum number of values each property will have
+   */
+  public void setProperties(int propertiesPerVertex, int maxValuesPerProperty){
+    this.propertiesPerVertex = propertiesPerVertex;
+    this.maxValuesPerProperty = Math.max(1, maxValuesPerProperty);
+  }
+
+  /**
+   * Set the maximum number of vertices in each shard (i.e. the most that are generated as a single
+   * task). Components are split into shards of equal size, as near as possible, no larger than this.
+   * Changing the shard size changes the generated graph. Defaults to 100000.
+   */
+  public void setShardSize(int shardSize){
+    //With balanced shards, this guarantees every shard of a component has at least two vertices
+    if(shardSize < 3)
+      throw new IllegalArgumentException("Shard size must be at least 3");
+
+    this.shardSize = shardSize;
+  }
+
+  /**
+   * Set the number of threads used to generate shards when writing to file
+   */
+  public void setThreads(int threads){
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Generate the graph into an existing graph
+   */
+  public void generate(Graph graph){
+    generate(graph, true);
+  }
+
+  private void generate(Graph graph, boolean report){
+    boolean userIds = graph.features().vertex().supportsUserSuppliedIds()
+        && graph.features().edge().supportsUserSuppliedIds();
+
+    long count = 0;
+    Iterator<Component> components = planComponents();
+    while(components.hasNext()){
+      Component c = components.next();
+
+      //Shards are generated in order, so the vertex in an earlier shard that a bridge goes to already exists
+      Map<Long, Vertex> bridgeVertices = new HashMap<>();
+      for(long k = 0; k < c.shards; k++)
+        c.generateShard(k, graph, userIds, bridgeVertices);
+
+      //When writing to file, elements are reported by the writer instead
+      if(report)
+        GraphUtils.getMetrics().elementsWritten(c.size + c.edges);
+
+      count++;
+    }
+
+    LOGGER.info("Generated {} components", count);
+    GraphUtils.commitGraph(graph);
+  }
+
+  /**
+   * Generate the graph and write it to file, with a format of either graphml, graphson or gryo.
+   *
+   * For GraphSON and Gryo, shards are generated and serialized in parallel and streamed to the
+   * file in order, so only a few shards per thread need to be held in memory at a time, however
+   * large the components are. GraphML can't be written incrementally, and so the whole graph
+   * will be generated in memory first.
+   */
+  public boolean generate(File file, String format){
+    if("graphml".equalsIgnoreCase(format)) {
+      LOGGER.warn("GraphML can't be streamed, so the whole graph will be generated in memory before writing");
+
+      Graph graph = TinkerGraph.open();
+      try {
+        generate(graph, false);
+        return GraphUtils.writeGraphFile(file, format, graph);
+      }finally {
+        GraphUtils.closeGraph(graph);
+      }
+    }else if(!"graphson".equalsIgnoreCase(format) && !"gryo".equalsIgnoreCase(format)){
+      return false;
+    }
+
+    LOGGER.info("Generating {} vertices to {}", vertices, file);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try(OutputStream os = new BufferedOutputStream(new FileOutputStream(file))){
+      Iterator<List<Shard>> tasks = new TaskIterator(planComponents());
+      Deque<Future<Chunk>> pending = new ArrayDeque<>();
+      long written = 0;
+
+      while(tasks.hasNext() || !pending.isEmpty()){
+        //Keep a few tasks per thread queued, and write them out in order so output is deterministic
+        while(tasks.hasNext() && pending.size() < 2 * threads){
+          List<Shard> task = tasks.next();
+          pending.add(executor.submit(() -> generateChunk(task, format)));
+        }
+
+        Chunk chunk = pending.poll().get();
+        os.write(chunk.bytes);
+
+        written += chunk.vertices;
+        LOGGER.info("{} of {} vertices generated", written, vertices);
+      }
+    }catch (IOException ioe){
+      LOGGER.error("Unable to write generated graph", ioe);
+      return false;
+    }catch (ExecutionException ee){
+      LOGGER.error("Unable to generate graph", ee.getCause());
+      return false;
+    }catch (InterruptedException ie){
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted whilst generating graph", ie);
+      return false;
+    }finally {
+      executor.shutdownNow();
+    }
+
+    return true;
+  }
+
+  private Chunk generateChunk(List<Shard> task, String format) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    long count = 0;
+
+    for(Shard shard : task){
+      //Each shard has its own graph, as it may hold stubs of vertices from other shards
+      Graph g = TinkerGraph.open();
+      try {
+        List<Vertex> vs = shard.component.generateShard(shard.index, g, true, null);
+        if (!GraphUtils.appendVertices(baos, format, g, vs.iterator()))
+          throw new IOException("Unable to serialize generated shard");
+
+        count += vs.size();
+      }finally {
+        GraphUtils.closeGraph(g);
+      }
+    }
+
+    return new Chunk(baos.toByteArray(), count);
+  }
+
+  /**
+   * Determine the size of each component, and the range of vertex and edge IDs it will use.
+   * Components are planned lazily as the iterator is consumed, so the plan for a large graph
+   * is never held in memory.
+   */
+  protected Iterator<Component> planComponents(){
+    return new ComponentPlanner();
+  }
+
+  private long mix(long... values){
+    //MurmurHash3 finaliser, so that similar inputs give unrelated seeds
+    long h = seed;
+    for(long v : values){
+      h = (h ^ v) * 0xFF51AFD7ED558CCDL;
+      h ^= h >>> 33;
+      h *= 0xC4CEB93FE53B87CDL;
+      h ^= h >>> 33;
+    }
+
+    return h;
+  }
+
+  /**
+   * Get the label of a vertex, which depends only on its ID so that shards that refer
+   * to vertices in other shards agree on their labels
+   */
+  private String vertexLabel(long id){
+    return vertexLabels.get((int) Math.floorMod(mix(id), (long) vertexLabels.size()));
+  }
+
+  /**
+   * Produces the components of the graph in order, drawing their sizes from a single seeded
+   * random number generator
+   */
+  private class ComponentPlanner implements Iterator<Component> {
+    private final Random r = new Random(seed);
+    private final long giant = Math.round(vertices * giantComponentFraction);
+
+    private long index = 0;
+    private long remaining = vertices;
+    private long vertexId = 0;
+    private long edgeId = 0;
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public Component next() {
+      if(!hasNext())
+        throw new NoSuchElementException();
+
+      long size;
+      if(index == 0 && giant > 0){
+        size = giant;
+      }else{
+        //Inverse transform sampling of a discrete power law, capped at the giant component size
+        double sample = Math.floor(Math.pow(1.0 - r.nextDouble(), -1.0 / (componentSizeExponent - 1.0)));
+        size = (long) Math.min(sample, remaining);
+        if(giant > 0)
+          size = Math.min(size, giant);
+        size = Math.min(Math.max(size, 1), maxComponentSize);
+      }
+
+      Component c = new Component(index++, size, vertexId, edgeId);
+      remaining -= c.size;
+      vertexId += c.size;
+      edgeId += c.edges;
+
+      return c;
+    }
+  }
+
+  /**
+   * Groups the shards of the planned components into tasks of up to the shard size in vertices,
+   * so that small components aren't generated one at a time
+   */
+  private class TaskIterator implements Iterator<List<Shard>> {
+    private final Iterator<Component> components;
+    private Component current = null;
+    private long nextShard = 0;
+
+    private TaskIterator(Iterator<Component> components){
+      this.components = components;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return (current != null && nextShard < current.shards) || components.hasNext();
+    }
+
+    @Override
+    public List<Shard> next() {
+      if(!hasNext())
+        throw new NoSuchElementException();
+
+      List<Shard> task = new ArrayList<>();
+      long taskVertices = 0;
+      while(taskVertices < shardSize && hasNext()){
+        if(current == null || nextShard >= current.shards){
+          current = components.next();
+          nextShard = 0;
+        }
+
+        int size = current.shardSize(nextShard);
+        if(!task.isEmpty() && taskVertices + size > shardSize)
+          break;
+
+        task.add(new Shard(current, nextShard++));
+        taskVertices += size;
+      }
+
+      return task;
+    }
+  }
+
+  /**
+   * A shard of a component, generated as a single task
+   */
+  private static class Shard {
+    private final Component component;
+    private final long index;
+
+    private Shard(Component component, long index){
+      this.component = component;
+      this.index = index;
+    }
+  }
+
+  /**
+   * Serialized shards, ready to be written to file
+   */
+  private static class Chunk {
+    private final byte[] bytes;
+    private final long vertices;
+
+    private Chunk(byte[] bytes, long vertices){
+      this.bytes = bytes;
+      this.vertices = vertices;
+    }
+  }
+
+  /**
+   * An edge joining a shard to a vertex in an earlier shard of the same component, which depends
+   * only on the seed so that both shards can generate it
+   */
+  private static class Bridge {
+    private long parentShard;
+    private int childOffset;
+    private int parentOffset;
+    private String label;
+    private double weight;
+  }
+
+  /**
+   * A single connected component within the generated graph
+   */
+  protected class Component {
+    private final long index;
+    private final long size;
+    private final long edges;
+    private final long firstVertexId;
+    private final long firstEdgeId;
+    private final long shards;
+    private final long extraEdges;
+
+    Component(long index, long size, long firstVertexId, long firstEdgeId){
+      this.index = index;
+      this.size = size;
+      this.edges = size <= 1 ? 0 : Math.max(size - 1, Math.round(size * averageDegree / 2.0));
+      this.firstVertexId = firstVertexId;
+      this.firstEdgeId = firstEdgeId;
+      this.shards = (size + shardSize - 1) / shardSize;
+
+      //Each shard is a tree plus a share of the extra edges, and is joined to an earlier shard by a bridge
+      this.extraEdges = edges - (size - shards) - (shards - 1);
+    }
+
+    long getSize(){
+      return size;
+    }
+
+    long getEdges(){
+      return edges;
+    }
+
+    long getShards(){
+      return shards;
+    }
+
+    /**
+     * Offset of the first vertex of shard k within the component, splitting the component into
+     * shards that differ in size by at most one vertex
+     */
+    private long shardStart(long k){
+      return k * (size / shards) + Math.min(k, size % shards);
+    }
+
+    private int shardSize(long k){
+      return (int) (shardStart(k + 1) - shardStart(k));
+    }
+
+    /**
+     * Number of the extra edges that fall within the first n vertices of the component
+     */
+    private long extraEdgesWithin(long n){
+      return n == size ? extraEdges : (long) ((double) extraEdges * n / size);
+    }
+
+    private Bridge bridge(long s){
+      Random r = new Random(mix(index, s, -1L));
+
+      Bridge b = new Bridge();
+      double u = r.nextDouble();
+      b.parentShard = (long) (s * u * u);
+      b.childOffset = r.nextInt(shardSize(s));
+      b.parentOffset = r.nextInt(shardSize(b.parentShard));
+      b.label = edgeLabels.get(r.nextInt(edgeLabels.size()));
+      b.weight = r.nextDouble();
+
+      return b;
+    }
+
+    /**
+     * Generate shard k into the graph, returning the vertices of the shard.
+     *
+     * If bridgeVertices is null, the shard is being generated on its own and vertices from other
+     * shards are added to the graph as stubs (with only an ID and label) so that both the bridge
+     * to an earlier shard and those from later shards can be created. Otherwise, the earlier
+     * shards have already been generated into the graph, and bridgeVertices is used to find
+     * the vertices that bridges go to, and to record those in this shard for later shards.
+     */
+    List<Vertex> generateShard(long k, Graph graph, boolean userIds, Map<Long, Vertex> bridgeVertices){
+      //Seed each shard independently, so results don't depend on generation order
+      Random r = new Random(mix(index, k));
+
+      int n = shardSize(k);
+      long start = shardStart(k);
+      long shardEdges = (n - 1) + extraEdgesWithin(start + n) - extraEdgesWithin(start);
+      if(shardEdges > Integer.MAX_VALUE / 2)
+        throw new IllegalStateException("Too many edges in a single shard - reduce the shard size or average degree");
+
+      int localEdges = (int) shardEdges;
+      long edgeId = firstEdgeId + (start - k) + extraEdgesWithin(start);
+
+      Vertex[] vs = new Vertex[n];
+      for(int i = 0; i < n; i++)
+        vs[i] = createVertex(graph, userIds, firstVertexId + start + i, r);
+
+      //Each edge adds both of its endpoints to this array, so picking a random entry
+      //picks a vertex with probability proportional to its degree
+      int[] endpoints = new int[2 * localEdges];
+      int e = 0;
+
+      //Start with a tree built by preferential attachment, so the shard is connected
+      for(int i = 1; i < n; i++){
+        int tgt = e == 0 ? 0 : endpoints[r.nextInt(2 * e)];
+        createEdge(vs[i], vs[tgt], userIds, edgeId + e, edgeLabels.get(r.nextInt(edgeLabels.size())), r.nextDouble());
+        endpoints[2 * e] = i;
+        endpoints[2 * e + 1] = tgt;
+        e++;
+      }
+
+      //Add remaining edges between a random vertex and a preferentially chosen vertex
+      while(e < localEdges){
+        int src = r.nextInt(n);
+        int tgt = endpoints[r.nextInt(2 * e)];
+        if(src == tgt)
+          tgt = (tgt + 1) % n;
+
+        createEdge(vs[src], vs[tgt], userIds, edgeId + e, edgeLabels.get(r.nextInt(edgeLabels.size())), r.nextDouble());
+        endpoints[2 * e] = src;
+        endpoints[2 * e + 1] = tgt;
+        e++;
+      }
+
+      //Bridges from later shards, found by checking which shard each of them goes to
+      for(long s = k + 1; s < shards; s++){
+        Bridge b = bridge(s);
+        if(b.parentShard != k)
+          continue;
+
+        if(bridgeVertices == null) {
+          Vertex child = stub(graph, firstVertexId + shardStart(s) + b.childOffset);
+          createEdge(child, vs[b.parentOffset], true, bridgeId(s), b.label, b.weight);
+        }else{
+          bridgeVertices.put(firstVertexId + start + b.parentOffset, vs[b.parentOffset]);
+        }
+      }
+
+      //Bridge to an earlier shard
+      if(k > 0){
+        Bridge b = bridge(k);
+        long parentId = firstVertexId + shardStart(b.parentShard) + b.parentOffset;
+        Vertex parent = bridgeVertices == null ? stub(graph, parentId) : bridgeVertices.get(parentId);
+        createEdge(vs[b.childOffset], parent, userIds, bridgeId(k), b.label, b.weight);
+      }
+
+      return Arrays.asList(vs);
+    }
+
+    private long bridgeId(long s){
+      return firstEdgeId + edges - shards + s;
+    }
+
+    private Vertex stub(Graph graph, long id){
+      Iterator<Vertex> it = graph.vertices(id);
+      return it.hasNext() ? it.next() : graph.addVertex(T.id, id, T.label, vertexLabel(id));
+    }
+
+    private Vertex createVertex(Graph graph, boolean userIds, long id, Random r){
+      String label = vertexLabel(id);
+
+      Vertex v = userIds ? graph.addVertex(T.id, id, T.label, label) : graph.addVertex(label);
+      v.property("name", label + " " + id);
+
+      for(int p = 0; p < propertiesPerVertex; p++){
+        //Low cardinality values, as would be seen for properties such as nationality
+        int values = 1 + r.nextInt(maxValuesPerProperty);
+        if(values == 1){
+          v.property("property" + p, "value" + r.nextInt(100));
+        }else{
+          List<String> list = new ArrayList<>(values);
+          for(int i = 0; i < values; i++)
+            list.add("value" + r.nextInt(100));
+
+          v.property("property" + p, list);
+        }
+      }
+
+      return v;
+    }
+
+    private void createEdge(Vertex src, Vertex tgt, boolean userIds, long id, String label, double weight){
+      Edge edge = userIds ? src.addEdge(label, tgt, T.id, id) : src.addEdge(label, tgt);
+      edge.property("weight", weight);
+    }
+  }
+}
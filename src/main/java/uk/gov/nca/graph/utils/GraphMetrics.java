@@ -0,0 +1,76 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+/**
+ * Listener that graph operations report their progress through, so that throughput can be
+ * monitored and bottlenecks identified in long running jobs.
+ *
+ * All methods have a no-op default, so implementations only need to override the events
+ * they are interested in. Methods may be called concurrently from multiple threads, and
+ * should return quickly. The listener used by all operations is set with
+ * {@link GraphUtils#setMetrics(GraphMetrics)}.
+ */
+public interface GraphMetrics {
+  /**
+   * Listener that ignores all events
+   */
+  GraphMetrics NOOP = new GraphMetrics() {};
+
+  /**
+   * Called when vertices or edges have been read
+   */
+  default void elementsRead(long count){}
+
+  /**
+   * Called when vertices or edges have been written, either to a file or loaded into a graph.
+   * Intermediate in-memory graphs (e.g. a component being built before it is written to file)
+   * aren't reported, so each element is only reported once per destination.
+   */
+  default void elementsWritten(long count){}
+
+  /**
+   * Called when bytes have been read from a file or stream
+   */
+  default void bytesRead(long bytes){}
+
+  /**
+   * Called when bytes have been written to a file or stream
+   */
+  default void bytesWritten(long bytes){}
+
+  /**
+   * Called when a batch has been committed to a graph, with the time the commit took
+   */
+  default void batchCommitted(long nanos){}
+
+  /**
+   * Called when a connected component has been identified, with the number of vertices in it
+   */
+  default void componentFound(int size){}
+
+  /**
+   * Called with the current number of items held in a named queue
+   */
+  default void queueDepth(String queue, int depth){}
+
+  /**
+   * Called when a named phase of an operation (e.g. read, write or split) has finished,
+   * with the time spent in it
+   */
+  default void phaseCompleted(String phase, long nanos){}
+}
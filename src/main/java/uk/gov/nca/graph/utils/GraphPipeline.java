@@ -0,0 +1,413 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads, cleans, filters and loads a graph file in a single pass, so that a graph can be
+ * cleaned, filtered, converted and split without writing intermediate files.
+ *
+ * Each stage runs on its own thread, and passes data to the next stage through a bounded
+ * queue, so that a slow stage holds back the stages before it rather than data building up
+ * in memory. The stages are:
+ *
+ * <ol>
+ *   <li>Clean - remove unsupported characters from the file (optional, not supported for Gryo)</li>
+ *   <li>Parse - read vertices and edges from the file using a {@link GraphStreamReader}</li>
+ *   <li>Load - filter the vertices and edges with an {@link ElementFilter} (if set), and add
+ *   the remaining ones to a graph using an {@link ElementLoader}</li>
+ * </ol>
+ *
+ * Edges connected to a vertex that has been filtered out are also removed.
+ */
+public class GraphPipeline {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphPipeline.class);
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final long POLL_MILLIS = 100;
+
+  //Empty chunks and batches are used to mark the end of the data
+  private static final byte[] END_OF_BYTES = new byte[0];
+  private static final List<Element> END_OF_ELEMENTS = Collections.emptyList();
+
+  private final File inputFile;
+  private final String inputFormat;
+
+  private boolean clean = false;
+  private ElementFilter filter = null;
+  private int queueSize = 16;
+  private int elementBatchSize = 1000;
+  private long commitBatchSize = 10000;
+  private StringInterner interner = null;
+
+  private final AtomicLong elementsRead = new AtomicLong();
+  private long elementsFiltered = 0;
+  private long edgesDropped = 0;
+
+  /**
+   * Create a new GraphPipeline that reads from a file, with a format of either graphml, graphson or gryo
+   */
+  public GraphPipeline(File inputFile, String inputFormat){
+    this.inputFile = inputFile;
+    this.inputFormat = inputFormat;
+  }
+
+  /**
+   * Set whether unsupported characters should be removed from the file as it is read
+   * (see {@link ReadOptions#setClean(boolean)})
+   */
+  public void setClean(boolean clean){
+    this.clean = clean;
+  }
+
+  /**
+   * Set the filter applied to vertices and edges before they are loaded, or null to load all elements
+   */
+  public void setElementFilter(ElementFilter filter){
+    this.filter = filter;
+  }
+
+  /**
+   * Set the maximum number of chunks or batches of elements held in each queue between stages
+   */
+  public void setQueueSize(int queueSize){
+    this.queueSize = Math.max(1, queueSize);
+  }
+
+  /**
+   * Set the number of elements passed between stages at a time
+   */
+  public void setElementBatchSize(int elementBatchSize){
+    this.elementBatchSize = Math.max(1, elementBatchSize);
+  }
+
+  /**
+   * Set the number of elements loaded before the graph is committed
+   */
+  public void setCommitBatchSize(long commitBatchSize){
+    this.commitBatchSize = Math.max(1, commitBatchSize);
+  }
+
+  /**
+   * Set the interner used to share labels, property keys and values between loaded
+   * elements, or null to not intern strings
+   */
+  public void setStringInterner(StringInterner interner){
+    this.interner = interner;
+  }
+
+  /**
+   * Get the number of vertices and edges read from the file by the last run
+   */
+  public long getElementsRead(){
+    return elementsRead.get();
+  }
+
+  /**
+   * Get the number of vertices and edges removed by the filters in the last run
+   */
+  public long getElementsFiltered(){
+    return elementsFiltered;
+  }
+
+  /**
+   * Get the number of edges dropped in the last run because they weren't connected to a loaded vertex
+   */
+  public long getEdgesDropped(){
+    return edgesDropped;
+  }
+
+  /**
+   * Run the pipeline, loading the cleaned and filtered graph into an existing graph.
+   * Returns false if any of the stages fail.
+   */
+  public boolean load(Graph graph){
+    elementsRead.set(0);
+    elementsFiltered = 0;
+    edgesDropped = 0;
+
+    boolean cleanBytes = clean;
+    if(clean && "gryo".equalsIgnoreCase(inputFormat)){
+      LOGGER.warn("Gryo is a binary format and can't be cleaned - file will be read without cleaning");
+      cleanBytes = false;
+    }
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    BlockingQueue<byte[]> cleaned = new ArrayBlockingQueue<>(queueSize);
+    BlockingQueue<List<Element>> parsed = new ArrayBlockingQueue<>(queueSize);
+
+    ExecutorService executor = Executors.newFixedThreadPool(cleanBytes ? 2 : 1);
+    List<Future<?>> stages = new ArrayList<>();
+    try {
+      if (cleanBytes) {
+        stages.add(executor.submit(stage("clean", failure, () -> clean(cleaned, failure))));
+        stages.add(executor.submit(stage("parse", failure, () -> parse(new QueueInputStream(cleaned, failure), parsed, failure))));
+      } else {
+        stages.add(executor.submit(stage("parse", failure, () -> parse(new BufferedInputStream(new GraphUtils.CountingInputStream(new FileInputStream(inputFile))), parsed, failure))));
+      }
+
+      //The load stage runs on the calling thread, as some graphs require that transactions are committed by the thread that opened them
+      stage("load", failure, () -> load(graph, parsed, failure)).run();
+
+      for (Future<?> f : stages)
+        f.get();
+    }catch (InterruptedException ie){
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, ie);
+    }catch (ExecutionException ee){
+      failure.compareAndSet(null, ee.getCause());
+    }finally {
+      executor.shutdownNow();
+    }
+
+    if(failure.get() != null){
+      LOGGER.error("Pipeline failed", failure.get());
+      return false;
+    }
+
+    LOGGER.info("Pipeline complete - {} elements read, {} elements filtered, {} edges dropped",
+        elementsRead.get(), elementsFiltered, edgesDropped);
+    return true;
+  }
+
+  /**
+   * Run the pipeline, and write the cleaned and filtered graph to file with a format
+   * of either graphml, graphson or gryo
+   */
+  public boolean convert(File outputFile, String outputFormat){
+    Graph graph = TinkerGraph.open();
+    try {
+      return load(graph) && GraphUtils.writeGraphFile(outputFile, outputFormat, graph);
+    }finally {
+      GraphUtils.closeGraph(graph);
+    }
+  }
+
+  /**
+   * Run the pipeline, and split the cleaned and filtered graph using the provided GraphSplitter.
+   * Returns an empty list if the pipeline fails.
+   */
+  public List<File> split(GraphSplitter splitter){
+    Graph graph = TinkerGraph.open();
+    try {
+      if(!load(graph))
+        return Collections.emptyList();
+
+      return splitter.splitGraph(graph);
+    }catch (UncheckedIOException uioe){
+      LOGGER.error("Unable to split graph", uioe);
+      return Collections.emptyList();
+    }finally {
+      GraphUtils.closeGraph(graph);
+    }
+  }
+
+  private void clean(BlockingQueue<byte[]> output, AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+    try(InputStream is = new CleaningInputStream(new GraphUtils.CountingInputStream(new FileInputStream(inputFile)), "graphml".equalsIgnoreCase(inputFormat))){
+      byte[] buffer = new byte[CHUNK_SIZE];
+      int read;
+      while((read = is.read(buffer)) != -1){
+        if(read > 0 && !put(output, Arrays.copyOf(buffer, read), failure))
+          return;
+      }
+    }
+
+    put(output, END_OF_BYTES, failure);
+  }
+
+  private void parse(InputStream input, BlockingQueue<List<Element>> output, AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+    try(InputStream is = input; GraphStreamReader reader = new GraphStreamReader(is, inputFormat)){
+      List<Element> batch = new ArrayList<>(elementBatchSize);
+      while(reader.hasNext()){
+        batch.add(reader.next());
+        elementsRead.incrementAndGet();
+
+        if(batch.size() >= elementBatchSize){
+          GraphUtils.getMetrics().elementsRead(batch.size());
+          if(!put(output, batch, failure))
+            return;
+
+          batch = new ArrayList<>(elementBatchSize);
+        }
+      }
+
+      GraphUtils.getMetrics().elementsRead(batch.size());
+      if(!batch.isEmpty() && !put(output, batch, failure))
+        return;
+    }
+
+    put(output, END_OF_ELEMENTS, failure);
+  }
+
+  private void load(Graph graph, BlockingQueue<List<Element>> input, AtomicReference<Throwable> failure) throws InterruptedException {
+    try(ElementLoader loader = new ElementLoader(graph, commitBatchSize, interner)) {
+      loader.setElementFilter(filter);
+
+      List<Element> batch;
+      while ((batch = take(input, failure)) != null) {
+        GraphUtils.getMetrics().queueDepth("parsed", input.size());
+        if (batch == END_OF_ELEMENTS) {
+          loader.finish();
+          elementsFiltered = loader.getFilteredCount();
+          edgesDropped = loader.getDroppedEdgeCount();
+          return;
+        }
+
+        batch.forEach(loader::accept);
+      }
+    }
+  }
+
+  /**
+   * Wrap a stage so that any exception it throws is recorded, and will stop the other stages
+   */
+  private static Runnable stage(String name, AtomicReference<Throwable> failure, PipelineStage stage){
+    return () -> {
+      try {
+        long start = System.nanoTime();
+        stage.run();
+        GraphUtils.getMetrics().phaseCompleted(name, System.nanoTime() - start);
+      }catch (Throwable t){
+        failure.compareAndSet(null, t);
+      }
+    };
+  }
+
+  /**
+   * Add an item to a queue, waiting for space to become available.
+   * Returns false if another stage fails whilst waiting.
+   */
+  private static <T> boolean put(BlockingQueue<T> queue, T item, AtomicReference<Throwable> failure) throws InterruptedException {
+    while(failure.get() == null){
+      if(queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS))
+        return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Take an item from a queue, waiting for one to become available.
+   * Returns null if another stage fails whilst waiting.
+   */
+  private static <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> failure) throws InterruptedException {
+    while(failure.get() == null){
+      T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      if(item != null)
+        return item;
+    }
+
+    return null;
+  }
+
+  @FunctionalInterface
+  private interface PipelineStage {
+    void run() throws Exception;
+  }
+
+  /**
+   * InputStream that reads chunks of cleaned data from the clean stage
+   */
+  private static class QueueInputStream extends InputStream {
+    private final BlockingQueue<byte[]> queue;
+    private final AtomicReference<Throwable> failure;
+
+    private byte[] chunk = new byte[0];
+    private int pos = 0;
+    private boolean eof = false;
+
+    QueueInputStream(BlockingQueue<byte[]> queue, AtomicReference<Throwable> failure){
+      this.queue = queue;
+      this.failure = failure;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if(!nextChunk())
+        return -1;
+
+      return chunk[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if(len == 0)
+        return 0;
+
+      if(!nextChunk())
+        return -1;
+
+      int n = Math.min(len, chunk.length - pos);
+      System.arraycopy(chunk, pos, b, off, n);
+      pos += n;
+
+      return n;
+    }
+
+    private boolean nextChunk() throws IOException {
+      if(pos < chunk.length)
+        return true;
+
+      if(eof)
+        return false;
+
+      try {
+        byte[] next = take(queue, failure);
+        GraphUtils.getMetrics().queueDepth("cleaned", queue.size());
+        if(next == null)
+          throw new IOException("Clean stage failed");
+
+        if(next == END_OF_BYTES){
+          eof = true;
+          return false;
+        }
+
+        chunk = next;
+        pos = 0;
+        return true;
+      }catch (InterruptedException ie){
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted whilst waiting for clean stage");
+      }
+    }
+  }
+}
@@ -0,0 +1,315 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples vertices from a graph file, with a format of either graphml, graphson or gryo,
+ * and extracts the subgraph induced by them (i.e. the sampled vertices and the edges between them).
+ *
+ * The file is streamed rather than loaded, with each sampling method making a bounded
+ * number of passes over it, so only the sampled vertex IDs are held in memory.
+ * Vertex IDs are compared by their String representation. All randomness comes from a
+ * single seeded generator, so the same file and seed will always produce the same sample.
+ *
+ * The following sampling methods are supported:
+ *
+ * <ul>
+ *   <li>Reservoir - a uniform random sample of vertices, in a single pass</li>
+ *   <li>Forest fire - fires are started at random vertices and spread along each edge
+ *   (in either direction) with a given probability, one pass per step, so that the sample
+ *   preserves local structure. If the fire dies out, a new one is started</li>
+ *   <li>Snowball - all vertices within a number of hops of a set of seed vertices,
+ *   one pass per hop</li>
+ * </ul>
+ */
+public class GraphSampler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphSampler.class);
+
+  private final File inputFile;
+  private final String inputFormat;
+
+  private boolean clean = false;
+  private long seed = 0L;
+  private int maxPasses = 20;
+
+  private int passes = 0;
+
+  /**
+   * Create a new GraphSampler for a file, with a format of either graphml, graphson or gryo
+   */
+  public GraphSampler(File inputFile, String inputFormat){
+    this.inputFile = inputFile;
+    this.inputFormat = inputFormat;
+  }
+
+  /**
+   * Set whether unsupported characters should be removed from the file as it is read
+   */
+  public void setClean(boolean clean){
+    this.clean = clean;
+  }
+
+  /**
+   * Set the seed for the random number generator (defaults to 0)
+   */
+  public void setSeed(long seed){
+    this.seed = seed;
+  }
+
+  /**
+   * Set the maximum number of passes over the file that forest fire sampling will make
+   * before filling the rest of the sample with random vertices (defaults to 20)
+   */
+  public void setMaxPasses(int maxPasses){
+    this.maxPasses = Math.max(2, maxPasses);
+  }
+
+  /**
+   * Get the number of passes made over the file since this sampler was created
+   */
+  public int getPassCount(){
+    return passes;
+  }
+
+  /**
+   * Sample the given number of vertices uniformly at random.
+   * Returns the IDs of the sampled vertices, or null if the file couldn't be read.
+   */
+  public Set<String> reservoirSample(int vertices){
+    List<String> reservoir = reservoir(vertices, new Random(seed));
+    return reservoir == null ? null : new LinkedHashSet<>(reservoir);
+  }
+
+  /**
+   * Sample the given number of vertices by forest fire sampling, where the fire spreads
+   * along each edge from a burning vertex with the given probability.
+   * Returns the IDs of the sampled vertices, or null if the file couldn't be read.
+   */
+  public Set<String> forestFireSample(int vertices, double burnProbability){
+    Random random = new Random(seed);
+    int firstPass = passes;
+
+    //Shuffled candidates, used to start new fires and to fill any shortfall at the end
+    List<String> candidates = reservoir(vertices, random);
+    if(candidates == null)
+      return null;
+
+    Set<String> burned = new LinkedHashSet<>();
+    Set<String> frontier = new HashSet<>();
+    int nextCandidate = 0;
+
+    while(burned.size() < vertices && passes - firstPass < maxPasses){
+      if(frontier.isEmpty()){
+        while(nextCandidate < candidates.size() && burned.contains(candidates.get(nextCandidate)))
+          nextCandidate++;
+
+        if(nextCandidate >= candidates.size())
+          break;
+
+        String ignite = candidates.get(nextCandidate++);
+        burned.add(ignite);
+        frontier.add(ignite);
+      }
+
+      Set<String> burning = frontier;
+      Set<String> next = new HashSet<>();
+      boolean read = stream(e -> {
+        if(!(e instanceof Edge) || burned.size() >= vertices)
+          return;
+
+        Edge edge = (Edge) e;
+        String out = String.valueOf(edge.outVertex().id());
+        String in = String.valueOf(edge.inVertex().id());
+
+        if(burning.contains(out) && !burned.contains(in) && random.nextDouble() < burnProbability){
+          burned.add(in);
+          next.add(in);
+        }else if(burning.contains(in) && !burned.contains(out) && random.nextDouble() < burnProbability){
+          burned.add(out);
+          next.add(out);
+        }
+      });
+
+      if(!read)
+        return null;
+
+      frontier = next;
+    }
+
+    if(burned.size() < vertices){
+      LOGGER.info("Fire burned {} vertices - remaining vertices will be sampled at random", burned.size());
+      for(int i = nextCandidate; i < candidates.size() && burned.size() < vertices; i++)
+        burned.add(candidates.get(i));
+    }
+
+    return burned;
+  }
+
+  /**
+   * Sample all vertices within the given number of hops of the seed vertices, in either
+   * direction, up to a maximum of maxVertices (0 or less for no limit).
+   * Returns the IDs of the sampled vertices, or null if the file couldn't be read.
+   */
+  public Set<String> snowballSample(Collection<String> seeds, int hops, int maxVertices){
+    int limit = maxVertices > 0 ? maxVertices : Integer.MAX_VALUE;
+
+    Set<String> sampled = new LinkedHashSet<>();
+    for(String s : seeds){
+      if(sampled.size() >= limit)
+        break;
+      sampled.add(s);
+    }
+
+    Set<String> frontier = new HashSet<>(sampled);
+    for(int hop = 0; hop < hops && !frontier.isEmpty() && sampled.size() < limit; hop++){
+      Set<String> current = frontier;
+      Set<String> next = new HashSet<>();
+
+      boolean read = stream(e -> {
+        if(!(e instanceof Edge) || sampled.size() >= limit)
+          return;
+
+        Edge edge = (Edge) e;
+        String out = String.valueOf(edge.outVertex().id());
+        String in = String.valueOf(edge.inVertex().id());
+
+        if(current.contains(out) && sampled.add(in)){
+          next.add(in);
+        }else if(current.contains(in) && sampled.add(out)){
+          next.add(out);
+        }
+      });
+
+      if(!read)
+        return null;
+
+      frontier = next;
+    }
+
+    return sampled;
+  }
+
+  /**
+   * Load the subgraph induced by the given vertex IDs into a graph, in a single pass.
+   * Only edges where both vertices are in the sample are loaded.
+   * Returns false if the file couldn't be read.
+   */
+  public boolean extract(Set<String> vertexIds, Graph graph){
+    ElementLoader loader = new ElementLoader(graph);
+
+    boolean read = stream(e -> {
+      if(e instanceof Vertex){
+        if(vertexIds.contains(String.valueOf(e.id())))
+          loader.accept(e);
+      }else if(e instanceof Edge){
+        Edge edge = (Edge) e;
+        if(vertexIds.contains(String.valueOf(edge.outVertex().id())) && vertexIds.contains(String.valueOf(edge.inVertex().id())))
+          loader.accept(e);
+      }
+    });
+
+    if(!read)
+      return false;
+
+    loader.finish();
+    LOGGER.info("Extracted {} vertices and {} edges", loader.getVertexCount(), loader.getEdgeCount());
+
+    return true;
+  }
+
+  /**
+   * Reservoir sample vertex IDs in a single pass, returning them in a random order
+   */
+  private List<String> reservoir(int size, Random random){
+    List<String> reservoir = new ArrayList<>(Math.max(0, size));
+    long[] seen = {0};
+
+    boolean read = stream(e -> {
+      if(!(e instanceof Vertex))
+        return;
+
+      seen[0]++;
+      if(reservoir.size() < size){
+        reservoir.add(String.valueOf(e.id()));
+      }else{
+        long r = (long) (random.nextDouble() * seen[0]);
+        if(r < size)
+          reservoir.set((int) r, String.valueOf(e.id()));
+      }
+    });
+
+    if(!read)
+      return null;
+
+    //Shuffle, as the first vertices in the file are more likely to be at the start of the reservoir
+    for(int i = reservoir.size() - 1; i > 0; i--){
+      int j = random.nextInt(i + 1);
+      reservoir.set(j, reservoir.set(i, reservoir.get(j)));
+    }
+
+    return reservoir;
+  }
+
+  /**
+   * Make a single pass over the file, passing each element to the consumer
+   */
+  private boolean stream(Consumer<Element> consumer){
+    boolean cleanBytes = clean && !"gryo".equalsIgnoreCase(inputFormat);
+    if(clean && !cleanBytes && passes == 0)
+      LOGGER.warn("Gryo is a binary format and can't be cleaned - file will be read without cleaning");
+
+    passes++;
+    LOGGER.info("Reading {} (pass {})", inputFile, passes);
+
+    long start = System.nanoTime();
+    try(InputStream is = cleanBytes ? new CleaningInputStream(new GraphUtils.CountingInputStream(new FileInputStream(inputFile)), "graphml".equalsIgnoreCase(inputFormat))
+          : new BufferedInputStream(new GraphUtils.CountingInputStream(new FileInputStream(inputFile)));
+        GraphStreamReader reader = new GraphStreamReader(is, inputFormat)){
+
+      reader.forEachRemaining(e -> {
+        consumer.accept(e);
+        GraphUtils.getMetrics().elementsRead(1);
+      });
+    }catch (IOException | IllegalStateException | IllegalArgumentException e){
+      LOGGER.error("Unable to read graph file", e);
+      return false;
+    }
+
+    GraphUtils.getMetrics().phaseCompleted("sample", System.nanoTime() - start);
+    return true;
+  }
+}
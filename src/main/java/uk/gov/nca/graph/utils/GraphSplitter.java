@@ -17,11 +17,12 @@ limitations under the License.
 package uk.gov.nca.graph.utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
@@ -44,6 +45,7 @@ public class GraphSplitter {
   private final String prefix;
   private final String format;
   private final int threshold;
+  private ProgressListener progressListener = ProgressListener.NOOP;
 
   /**
    * Create a new GraphSplitter with the default threshold of 1000.
@@ -74,6 +76,14 @@ public class GraphSplitter {
     this.threshold = threshold;
   }
 
+  /**
+   * Set the listener to call after each component is processed, with the number of vertices
+   * processed so far and the total number of vertices in the graph
+   */
+  public void setProgressListener(ProgressListener progressListener){
+    this.progressListener = progressListener == null ? ProgressListener.NOOP : progressListener;
+  }
+
   /**
    * Split a graph into smaller sub-graphs, by finding connected components and writing
    * each component to an individual file.
@@ -81,83 +91,117 @@ public class GraphSplitter {
    * If a component has fewer nodes than the threshold value, it is added to an aggregated
    * graph which will contain multiple components (until the aggregated graph itself
    * exceeds the threshold).
+   *
+   * Throws an UncheckedIOException if the ID dictionary used to track components can't be created.
    */
   public List<File> splitGraph(Graph graph){
+    GraphMetrics metrics = GraphUtils.getMetrics();
+    long start = System.nanoTime();
+
     List<File> splitFiles = new ArrayList<>();
 
     LOGGER.info("Getting graph IDs");
-    List<Object> ids = graph.traversal().V().id().toList();
-
-    int counter = 1;
-    List<Vertex> aggregatedComponent = new ArrayList<>();
-
-    LOGGER.info("Finding components");
-    while(!ids.isEmpty()) {
-      LOGGER.debug("Identifying component {}", counter);
-
-      Object initialId = ids.get(0);
-      List<Vertex> component = graph.traversal().V(initialId).repeat(__.both().dedup()).emit().dedup().toList();
-      if(component.isEmpty())
-        component.add(graph.vertices(initialId).next());
-
-      component.forEach(v -> ids.remove(v.id()));
-
-      LOGGER.debug("Component {} fully identified - contains {} vertices", counter,
-          component.size());
-
-      if(component.size() < threshold){
-        LOGGER.debug("Component {} is under threshold size and will be aggregated before writing to disk", counter);
-        aggregatedComponent.addAll(component);
-
-        if(aggregatedComponent.size() >= threshold){
-          LOGGER.debug("Aggregated component has exceeded threshold, and will be written to disk");
-          splitFiles.add(outputGraphComponent(aggregatedComponent));
-          aggregatedComponent = new ArrayList<>();
+    try(IdDictionary dictionary = new IdDictionary()) {
+      graph.vertices().forEachRemaining(v -> dictionary.getOrAdd(v.id()));
+
+      int vertexCount = dictionary.size();
+      BitSet processed = new BitSet(vertexCount);
+      int remaining = vertexCount;
+
+      //Position of each vertex within the component currently being written
+      int[] componentIndex = new int[vertexCount];
+
+      int counter = 1;
+      List<Vertex> aggregatedComponent = new ArrayList<>();
+
+      LOGGER.info("Finding components");
+      //Start each component from a vertex returned by the graph, rather than an ID from the
+      //dictionary, as the dictionary only holds the string representation of some ID types
+      Iterator<Vertex> initialVertices = graph.vertices();
+      while (remaining > 0 && initialVertices.hasNext()) {
+        Vertex initial = initialVertices.next();
+        if (processed.get(dictionary.get(initial.id())))
+          continue;
+
+        LOGGER.debug("Identifying component {}", counter);
+
+        List<Vertex> component = graph.traversal().V(initial.id()).repeat(__.both().dedup()).emit().dedup().toList();
+        if (component.isEmpty())
+          component.add(initial);
+
+        for (Vertex v : component)
+          processed.set(dictionary.get(v.id()));
+
+        remaining -= component.size();
+        metrics.componentFound(component.size());
+
+        LOGGER.debug("Component {} fully identified - contains {} vertices", counter,
+            component.size());
+
+        if (component.size() < threshold) {
+          LOGGER.debug("Component {} is under threshold size and will be aggregated before writing to disk", counter);
+          aggregatedComponent.addAll(component);
+
+          if (aggregatedComponent.size() >= threshold) {
+            LOGGER.debug("Aggregated component has exceeded threshold, and will be written to disk");
+            splitFiles.add(outputGraphComponent(aggregatedComponent, dictionary, componentIndex));
+            aggregatedComponent = new ArrayList<>();
+          }
+        } else {
+          LOGGER.debug("Writing component {} to disk", counter);
+          splitFiles.add(outputGraphComponent(component, dictionary, componentIndex));
         }
-      }else{
-        LOGGER.debug("Writing component {} to disk", counter);
-        splitFiles.add(outputGraphComponent(component));
-      }
 
-      LOGGER.debug("Finished processing component {}", counter);
+        LOGGER.debug("Finished processing component {}", counter);
 
-      //Provide regular progress updates
-      LOGGER.info("{} vertices left to process", ids.size());
+        //Provide regular progress updates
+        LOGGER.info("{} vertices left to process", remaining);
+        progressListener.progress(vertexCount - remaining, vertexCount);
 
-      counter++;
-    }
+        counter++;
+      }
 
-    if(!aggregatedComponent.isEmpty()){
-      LOGGER.debug("Writing final aggregated component to disk");
-      splitFiles.add(outputGraphComponent(aggregatedComponent));
+      if (!aggregatedComponent.isEmpty()) {
+        LOGGER.debug("Writing final aggregated component to disk");
+        splitFiles.add(outputGraphComponent(aggregatedComponent, dictionary, componentIndex));
+      }
+    }catch (IOException ioe){
+      throw new UncheckedIOException("Unable to create ID dictionary", ioe);
     }
 
+    metrics.phaseCompleted("split", System.nanoTime() - start);
     LOGGER.info("Finished splitting graph - {} sub-graphs produced", splitFiles.size());
     return splitFiles;
   }
 
-  private File outputGraphComponent(List<Vertex> vertices){
+  private File outputGraphComponent(List<Vertex> vertices, IdDictionary dictionary, int[] componentIndex){
     LOGGER.debug("Creating graph for component");
 
     Graph splitGraph = TinkerGraph.open();
-    Map<Vertex, Vertex> mapVertices = new HashMap<>();
+    Vertex[] newVertices = new Vertex[vertices.size()];
 
     LOGGER.debug("Adding vertices to graph for component");
-    for (Vertex v : vertices) {
+    for (int i = 0; i < vertices.size(); i++) {
+      Vertex v = vertices.get(i);
       Vertex newV = splitGraph.addVertex(v.label());
       ElementUtils.copyProperties(v, newV);
-      mapVertices.put(v, newV);
+
+      newVertices[i] = newV;
+      componentIndex[dictionary.get(v.id())] = i;
     }
 
     LOGGER.debug("Adding edges to graph for component");
-    for (Entry<Vertex, Vertex> entry : mapVertices.entrySet()) {
-      entry.getKey().edges(Direction.OUT).forEachRemaining(e -> {
-        Vertex src = entry.getValue();
-        Vertex tgt = mapVertices.get(e.inVertex());
+    for (int i = 0; i < vertices.size(); i++) {
+      Vertex src = newVertices[i];
+      for (Iterator<Edge> it = vertices.get(i).edges(Direction.OUT); it.hasNext(); ) {
+        Edge e = it.next();
+
+        //Components are closed under both directions, so the target is always in this component
+        Vertex tgt = newVertices[componentIndex[dictionary.get(e.inVertex().id())]];
 
         Edge newE = src.addEdge(e.label(), tgt);
         ElementUtils.copyProperties(e, newE);
-      });
+      }
     }
 
     LOGGER.debug("Beginning write process for component");
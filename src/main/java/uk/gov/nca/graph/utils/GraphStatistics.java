@@ -0,0 +1,435 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes statistics about a graph file in a single streaming pass, without loading the
+ * graph into memory. The statistics include vertex and edge counts, label histograms,
+ * the degree distribution, the highest degree vertices (supernodes) and the distribution
+ * of connected component sizes.
+ *
+ * Vertices are mapped to dense integers as they are seen using an off-heap {@link IdDictionary},
+ * and degrees and components are tracked in primitive arrays (components using a union-find),
+ * so heap use is a few bytes per vertex regardless of the size of the graph. The statistics
+ * should be closed once they are no longer needed, to remove the dictionary.
+ *
+ * GraphSON files hold one vertex per line, and so can be parsed in parallel. Other
+ * formats are parsed on a single thread.
+ */
+public class GraphStatistics implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphStatistics.class);
+
+  private static final int LINES_PER_CHUNK = 1000;
+
+  private final int supernodeCount;
+
+  private long vertexCount = 0;
+  private long edgeCount = 0;
+  private final Map<String, Long> vertexLabels = new HashMap<>();
+  private final Map<String, Long> edgeLabels = new HashMap<>();
+
+  //Dense index for each vertex ID, seen either as a vertex or as the end of an edge
+  private final IdDictionary index;
+  private int[] degree = new int[1024];
+  private int[] parent = new int[1024];
+  private int[] size = new int[1024];
+  private boolean[] seen = new boolean[1024];
+
+  /**
+   * Create a new, empty, GraphStatistics that will report the 10 highest degree vertices
+   */
+  public GraphStatistics() throws IOException {
+    this(10);
+  }
+
+  /**
+   * Create a new, empty, GraphStatistics that will report the given number of highest degree vertices
+   */
+  public GraphStatistics(int supernodeCount) throws IOException {
+    this.supernodeCount = supernodeCount;
+    this.index = new IdDictionary();
+  }
+
+  /**
+   * Compute statistics for a file, with a format of either graphml, graphson or gryo.
+   * If clean is true, then unsupported characters will be removed from the file as it is read.
+   * Returns null if the file couldn't be read, otherwise the returned statistics should be
+   * closed once they are no longer needed.
+   */
+  public static GraphStatistics compute(File file, String format, boolean clean, int threads, int supernodeCount){
+    GraphStatistics stats;
+    try {
+      stats = new GraphStatistics(supernodeCount);
+    }catch (IOException ioe){
+      LOGGER.error("Unable to create ID dictionary", ioe);
+      return null;
+    }
+
+    boolean cleanBytes = clean && !"gryo".equalsIgnoreCase(format);
+    if(clean && !cleanBytes)
+      LOGGER.warn("Gryo is a binary format and can't be cleaned - file will be read without cleaning");
+
+    LOGGER.info("Computing statistics for {}", file);
+    long start = System.nanoTime();
+    try(InputStream is = cleanBytes ? new CleaningInputStream(new GraphUtils.CountingInputStream(new FileInputStream(file)), "graphml".equalsIgnoreCase(format))
+        : new BufferedInputStream(new GraphUtils.CountingInputStream(new FileInputStream(file)))){
+
+      if("graphson".equalsIgnoreCase(format) && threads > 1){
+        stats.readGraphSON(is, threads);
+      }else{
+        try(GraphStreamReader reader = new GraphStreamReader(is, format)){
+          reader.forEachRemaining(stats::accept);
+        }
+      }
+    }catch (IOException | IllegalStateException | IllegalArgumentException e){
+      LOGGER.error("Unable to read graph file", e);
+      stats.close();
+      return null;
+    }catch (ExecutionException ee){
+      LOGGER.error("Unable to read graph file", ee.getCause());
+      stats.close();
+      return null;
+    }catch (InterruptedException ie){
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted whilst reading graph file", ie);
+      stats.close();
+      return null;
+    }
+
+    GraphUtils.getMetrics().phaseCompleted("statistics", System.nanoTime() - start);
+    return stats;
+  }
+
+  /**
+   * Parse chunks of lines in parallel, and add the results in the order they were read
+   */
+  private void readGraphSON(InputStream is, int threads) throws IOException, ExecutionException, InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+      Deque<Future<List<Element>>> window = new ArrayDeque<>();
+
+      StringBuilder chunk = new StringBuilder();
+      int lines = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        chunk.append(line).append('\n');
+        lines++;
+
+        if (lines >= LINES_PER_CHUNK) {
+          window.add(executor.submit(parseTask(chunk.toString())));
+          chunk = new StringBuilder();
+          lines = 0;
+
+          //Limit the number of parsed chunks held in memory
+          if (window.size() >= threads * 2)
+            window.poll().get().forEach(this::accept);
+        }
+      }
+
+      if (lines > 0)
+        window.add(executor.submit(parseTask(chunk.toString())));
+
+      while (!window.isEmpty())
+        window.poll().get().forEach(this::accept);
+    }finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Callable<List<Element>> parseTask(String chunk){
+    return () -> {
+      List<Element> elements = new ArrayList<>();
+      try(GraphStreamReader reader = new GraphStreamReader(new ByteArrayInputStream(chunk.getBytes(StandardCharsets.UTF_8)), "graphson")){
+        reader.forEachRemaining(elements::add);
+      }
+      return elements;
+    };
+  }
+
+  /**
+   * Add a vertex or edge to the statistics
+   */
+  public void accept(Element element){
+    GraphUtils.getMetrics().elementsRead(1);
+    if(element instanceof Vertex){
+      vertexCount++;
+      vertexLabels.merge(element.label(), 1L, Long::sum);
+
+      //Find the index first, as indexOf may replace the array
+      int i = indexOf(element.id());
+      seen[i] = true;
+    }else if(element instanceof Edge){
+      Edge e = (Edge) element;
+      edgeCount++;
+      edgeLabels.merge(e.label(), 1L, Long::sum);
+
+      int src = indexOf(e.outVertex().id());
+      int tgt = indexOf(e.inVertex().id());
+      degree[src]++;
+      degree[tgt]++;
+      union(src, tgt);
+    }
+  }
+
+  /**
+   * Get the number of vertices
+   */
+  public long getVertexCount(){
+    return vertexCount;
+  }
+
+  /**
+   * Get the number of edges
+   */
+  public long getEdgeCount(){
+    return edgeCount;
+  }
+
+  /**
+   * Get the number of vertices with each label
+   */
+  public Map<String, Long> getVertexLabels(){
+    return Collections.unmodifiableMap(vertexLabels);
+  }
+
+  /**
+   * Get the number of edges with each label
+   */
+  public Map<String, Long> getEdgeLabels(){
+    return Collections.unmodifiableMap(edgeLabels);
+  }
+
+  /**
+   * Get the number of vertices referenced by an edge that don't exist in the graph
+   */
+  public long getMissingVertexCount(){
+    long missing = 0;
+    for(int i = 0; i < index.size(); i++){
+      if(!seen[i])
+        missing++;
+    }
+
+    return missing;
+  }
+
+  /**
+   * Get the number of vertices with each degree (counting both incoming and outgoing edges)
+   */
+  public SortedMap<Integer, Long> getDegreeDistribution(){
+    SortedMap<Integer, Long> distribution = new TreeMap<>();
+    for(int i = 0; i < index.size(); i++){
+      if(seen[i])
+        distribution.merge(degree[i], 1L, Long::sum);
+    }
+
+    return distribution;
+  }
+
+  /**
+   * Get the IDs and degrees of the highest degree vertices, in descending order of degree
+   */
+  public Map<Object, Integer> getSupernodes(){
+    PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Integer.compare(degree[a], degree[b]));
+    for(int i = 0; i < index.size(); i++){
+      if(!seen[i])
+        continue;
+
+      if(top.size() < supernodeCount){
+        top.add(i);
+      }else if(!top.isEmpty() && degree[i] > degree[top.peek()]){
+        top.poll();
+        top.add(i);
+      }
+    }
+
+    List<Integer> sorted = new ArrayList<>(top);
+    sorted.sort((a, b) -> Integer.compare(degree[b], degree[a]));
+
+    Map<Object, Integer> supernodes = new LinkedHashMap<>();
+    sorted.forEach(i -> supernodes.put(index.getId(i), degree[i]));
+
+    return supernodes;
+  }
+
+  /**
+   * Get the number of connected components of each size. Vertices that are referenced by
+   * an edge but don't exist in the graph are included in the component sizes.
+   */
+  public SortedMap<Integer, Long> getComponentSizes(){
+    SortedMap<Integer, Long> distribution = new TreeMap<>();
+    for(int i = 0; i < index.size(); i++){
+      if(parent[i] == i)
+        distribution.merge(size[i], 1L, Long::sum);
+    }
+
+    return distribution;
+  }
+
+  /**
+   * Get the number of connected components
+   */
+  public long getComponentCount(){
+    return getComponentSizes().values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * Get the number of vertices in the largest connected component
+   */
+  public int getLargestComponentSize(){
+    SortedMap<Integer, Long> sizes = getComponentSizes();
+    return sizes.isEmpty() ? 0 : sizes.lastKey();
+  }
+
+  /**
+   * Return the statistics as a JSON string
+   */
+  public String toJson(){
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\n");
+    sb.append("  \"vertices\": ").append(vertexCount).append(",\n");
+    sb.append("  \"edges\": ").append(edgeCount).append(",\n");
+    sb.append("  \"missingVertices\": ").append(getMissingVertexCount()).append(",\n");
+    sb.append("  \"vertexLabels\": ").append(toJson(new TreeMap<>(vertexLabels))).append(",\n");
+    sb.append("  \"edgeLabels\": ").append(toJson(new TreeMap<>(edgeLabels))).append(",\n");
+    sb.append("  \"degreeDistribution\": ").append(toJson(getDegreeDistribution())).append(",\n");
+    sb.append("  \"supernodes\": ").append(toJson(getSupernodes())).append(",\n");
+    sb.append("  \"components\": ").append(getComponentCount()).append(",\n");
+    sb.append("  \"largestComponent\": ").append(getLargestComponentSize()).append(",\n");
+    sb.append("  \"componentSizes\": ").append(toJson(getComponentSizes())).append("\n");
+    sb.append("}");
+
+    return sb.toString();
+  }
+
+  private static String toJson(Map<?, ? extends Number> map){
+    StringBuilder sb = new StringBuilder("{");
+    boolean first = true;
+    for(Map.Entry<?, ? extends Number> e : map.entrySet()){
+      if(!first)
+        sb.append(", ");
+
+      sb.append('"').append(escape(String.valueOf(e.getKey()))).append("\": ").append(e.getValue());
+      first = false;
+    }
+
+    return sb.append('}').toString();
+  }
+
+  private static String escape(String s){
+    StringBuilder sb = new StringBuilder(s.length());
+    for(char c : s.toCharArray()){
+      if(c == '"' || c == '\\'){
+        sb.append('\\').append(c);
+      }else if(c < 0x20){
+        sb.append(String.format("\\u%04x", (int) c));
+      }else{
+        sb.append(c);
+      }
+    }
+
+    return sb.toString();
+  }
+
+  @Override
+  public void close() {
+    index.close();
+  }
+
+  private int indexOf(Object id){
+    int n = index.size();
+    int i = index.getOrAdd(id);
+    if(i < n)
+      return i;
+
+    if(n == parent.length)
+      grow();
+
+    parent[n] = n;
+    size[n] = 1;
+
+    return n;
+  }
+
+  private void grow(){
+    int capacity = parent.length * 2;
+    degree = Arrays.copyOf(degree, capacity);
+    parent = Arrays.copyOf(parent, capacity);
+    size = Arrays.copyOf(size, capacity);
+    seen = Arrays.copyOf(seen, capacity);
+  }
+
+  private int find(int i){
+    while(parent[i] != i){
+      //Path halving keeps the trees shallow without recursion
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+
+    return i;
+  }
+
+  private void union(int a, int b){
+    int ra = find(a);
+    int rb = find(b);
+    if(ra == rb)
+      return;
+
+    //Union by size
+    if(size[ra] < size[rb]){
+      int t = ra;
+      ra = rb;
+      rb = t;
+    }
+
+    parent[rb] = ra;
+    size[ra] += size[rb];
+  }
+}
@@ -0,0 +1,238 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.structure.util.Attachable;
+import org.apache.tinkerpop.gremlin.structure.util.detached.DetachedEdge;
+import org.apache.tinkerpop.gremlin.structure.util.empty.EmptyGraph;
+import org.apache.tinkerpop.gremlin.structure.util.star.StarGraph;
+
+/**
+ * Reads the vertices and edges of a graph from an InputStream one at a time, with a format
+ * of either graphml, graphson or gryo, without loading the whole graph into memory.
+ *
+ * Each vertex is returned before its outgoing edges for GraphSON and Gryo, but GraphML
+ * returns elements in the order they appear in the file. In either case, an edge may
+ * be returned before the vertex it points to. Returned elements are detached from any graph,
+ * and their properties can be read but not modified.
+ *
+ * Errors encountered whilst parsing are thrown as an IllegalStateException.
+ */
+public class GraphStreamReader implements Iterator<Element>, Closeable {
+  private static final String LABEL_V = "labelV";
+  private static final String LABEL_E = "labelE";
+
+  private final InputStream inputStream;
+  private final Iterator<Vertex> vertices;
+  private final XMLStreamReader xml;
+
+  private final Deque<Element> pending = new ArrayDeque<>();
+
+  //GraphML key IDs mapped to their attribute name and type
+  private final Map<String, String> keyNames = new HashMap<>();
+  private final Map<String, String> keyTypes = new HashMap<>();
+
+  /**
+   * Create a new GraphStreamReader, with a format of either graphml, graphson or gryo.
+   * An IllegalArgumentException is thrown if the format is not recognised.
+   */
+  public GraphStreamReader(InputStream inputStream, String format) throws IOException {
+    this.inputStream = inputStream;
+
+    if("graphml".equalsIgnoreCase(format)){
+      vertices = null;
+      try {
+        xml = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+      }catch (XMLStreamException xse){
+        throw new IOException("Unable to read GraphML stream", xse);
+      }
+    }else if("graphson".equalsIgnoreCase(format)){
+      xml = null;
+      vertices = EmptyGraph.instance().io(IoCore.graphson()).reader().create()
+          .readVertices(inputStream, Attachable::get, null, Direction.OUT);
+    }else if("gryo".equalsIgnoreCase(format)){
+      xml = null;
+      vertices = EmptyGraph.instance().io(IoCore.gryo()).reader().create()
+          .readVertices(inputStream, Attachable::get, null, null);
+    }else{
+      throw new IllegalArgumentException("Unrecognised format " + format);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if(pending.isEmpty()) {
+      try {
+        if (xml == null) {
+          readStarVertex();
+        } else {
+          readGraphML();
+        }
+      }catch (XMLStreamException | RuntimeException e){
+        throw new IllegalStateException("Unable to read graph from stream", e);
+      }
+    }
+
+    return !pending.isEmpty();
+  }
+
+  @Override
+  public Element next() {
+    if(!hasNext())
+      throw new NoSuchElementException();
+
+    return pending.poll();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(xml != null){
+      try {
+        xml.close();
+      }catch (XMLStreamException xse){
+        throw new IOException("Unable to close GraphML stream", xse);
+      }
+    }
+
+    inputStream.close();
+  }
+
+  private void readStarVertex(){
+    if(!vertices.hasNext())
+      return;
+
+    Vertex v = vertices.next();
+    pending.add(v);
+    v.edges(Direction.OUT).forEachRemaining(pending::add);
+  }
+
+  /**
+   * Read GraphML until a complete node or edge has been read, mirroring the
+   * behaviour of the TinkerPop GraphMLReader
+   */
+  private void readGraphML() throws XMLStreamException {
+    String id = null;
+    String label = null;
+    String source = null;
+    String target = null;
+    Map<String, Object> properties = null;
+    boolean inVertex = false;
+    boolean inEdge = false;
+
+    while(xml.hasNext()){
+      int event = xml.next();
+
+      if(event == XMLStreamConstants.START_ELEMENT){
+        switch (xml.getLocalName()){
+          case "key":
+            String keyId = xml.getAttributeValue(null, "id");
+            keyNames.put(keyId, xml.getAttributeValue(null, "attr.name"));
+            keyTypes.put(keyId, xml.getAttributeValue(null, "attr.type"));
+            break;
+          case "node":
+            id = xml.getAttributeValue(null, "id");
+            properties = new HashMap<>();
+            inVertex = true;
+            break;
+          case "edge":
+            id = xml.getAttributeValue(null, "id");
+            source = xml.getAttributeValue(null, "source");
+            target = xml.getAttributeValue(null, "target");
+            properties = new HashMap<>();
+            inEdge = true;
+            break;
+          case "data":
+            String key = xml.getAttributeValue(null, "key");
+            String name = keyNames.get(key);
+            if(name == null || !(inVertex || inEdge))
+              break;
+
+            String value = xml.getElementText();
+            if((inVertex && LABEL_V.equals(key)) || (inEdge && LABEL_E.equals(key))){
+              label = value;
+            }else{
+              try {
+                properties.put(name, typeCastValue(keyTypes.get(key), value));
+              }catch (NumberFormatException nfe){
+                //Skip values that can't be parsed, as the GraphMLReader does by default
+              }
+            }
+            break;
+          default:
+            break;
+        }
+      }else if(event == XMLStreamConstants.END_ELEMENT){
+        String elementName = xml.getLocalName();
+
+        if(inVertex && "node".equals(elementName)){
+          pending.add(createVertex(id, label == null ? Vertex.DEFAULT_LABEL : label, properties));
+          return;
+        }else if(inEdge && "edge".equals(elementName)){
+          pending.add(new DetachedEdge(id, label == null ? Edge.DEFAULT_LABEL : label, properties,
+              source, Vertex.DEFAULT_LABEL, target, Vertex.DEFAULT_LABEL));
+          return;
+        }
+      }
+    }
+  }
+
+  private static Vertex createVertex(String id, String label, Map<String, Object> properties){
+    Vertex v = StarGraph.open().addVertex(T.id, id, T.label, label);
+    properties.forEach(v::property);
+
+    return v;
+  }
+
+  private static Object typeCastValue(String type, String value){
+    if(type == null)
+      return value;
+
+    switch (type){
+      case "int":
+        return Integer.valueOf(value);
+      case "long":
+        return Long.valueOf(value);
+      case "float":
+        return Float.valueOf(value);
+      case "double":
+        return Double.valueOf(value);
+      case "boolean":
+        return Boolean.valueOf(value);
+      default:
+        return value;
+    }
+  }
+}
@@ -19,10 +19,19 @@ package uk.gov.nca.graph.utils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.UnaryOperator;
+import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.structure.util.star.StarGraph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,8 +41,40 @@ import org.slf4j.LoggerFactory;
 public class GraphUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphUtils.class);
 
+    private static volatile GraphMetrics metrics = GraphMetrics.NOOP;
+    private static volatile GraphCache graphCache = null;
+
     private GraphUtils(){}
 
+    /**
+     * Set the listener that graph operations report their progress through.
+     * Setting this to null will disable reporting.
+     */
+    public static void setMetrics(GraphMetrics graphMetrics){
+        metrics = graphMetrics == null ? GraphMetrics.NOOP : graphMetrics;
+    }
+
+    /**
+     * Get the listener that graph operations report their progress through
+     */
+    public static GraphMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Set the cache that graph files are read through, or null to always read graph files from disk
+     */
+    public static void setGraphCache(GraphCache cache){
+        graphCache = cache;
+    }
+
+    /**
+     * Get the cache that graph files are read through, or null if there isn't one
+     */
+    public static GraphCache getGraphCache(){
+        return graphCache;
+    }
+
     /**
      * Read a graph from a file, with a format of either graphml, graphson or gryo.
      * The batch size (i.e. how many to read at a time) is set to a default value of 10000.
@@ -47,9 +88,50 @@ public class GraphUtils {
      * The batch size (i.e. how many to read at a time) is set to a default value of 10000.
      */
     public static boolean readGraphFile(File file, String format, Graph graph){
+        return readGraphFile(file, format, graph, new ReadOptions());
+    }
+
+    /**
+     * Read a graph from a file, with a format of either graphml, graphson or gryo,
+     * using the given options (see {@link ReadOptions}).
+     */
+    public static boolean readGraphFile(String file, String format, Graph graph, ReadOptions options){
+        return readGraphFile(new File(file), format, graph, options);
+    }
+
+    /**
+     * Read a graph from a File, with a format of either graphml, graphson or gryo,
+     * using the given options (see {@link ReadOptions}).
+     *
+     * If a {@link GraphCache} has been set, then the file is read through the cache unless
+     * {@link GraphCache#isCacheable(File, Graph)} is false.
+     */
+    public static boolean readGraphFile(File file, String format, Graph graph, ReadOptions options){
+        return readGraphFile(file, format, graph, options, UnaryOperator.identity());
+    }
+
+    /**
+     * Read a graph from a File, as {@link #readGraphFile(File, String, Graph, ReadOptions)}, passing
+     * the file stream through wrapper (for example, to monitor progress) if the file is read from disk.
+     * The wrapper isn't used if the graph is read from the cache.
+     */
+    public static boolean readGraphFile(File file, String format, Graph graph, ReadOptions options,
+        UnaryOperator<InputStream> wrapper){
+        GraphCache cache = graphCache;
+        if (cache != null && cache.isCacheable(file, graph))
+            return cache.readGraphFile(file, format, graph, options);
+
+        return readGraphFileDirect(file, format, graph, options, wrapper);
+    }
+
+    /**
+     * Read a graph from a File without going through the cache, passing the file stream through wrapper
+     */
+    static boolean readGraphFileDirect(File file, String format, Graph graph, ReadOptions options,
+        UnaryOperator<InputStream> wrapper){
         LOGGER.info("Reading graph file {}", file);
-        try (final InputStream stream = new FileInputStream(file)) {
-            return readGraph(stream, format, graph);
+        try (final InputStream stream = wrapper.apply(new FileInputStream(file))) {
+            return readGraph(stream, format, graph, options);
         } catch (IOException ioe) {
             LOGGER.error("Unable to read graph from disk", ioe);
             return false;
@@ -61,7 +143,7 @@ public class GraphUtils {
      * The batch size (i.e. how many to read at a time) is set to a default value of 10000.
      */
     public static boolean readGraph(InputStream inputStream, String format, Graph graph){
-        return readGraph(inputStream, format, graph, 10000);
+        return readGraph(inputStream, format, graph, ReadOptions.DEFAULT_BATCH_SIZE);
     }
 
     /**
@@ -69,24 +151,73 @@ public class GraphUtils {
      * The batch size (i.e. how many to read at a time) can be explicitly set.
      */
     public static boolean readGraph(InputStream inputStream, String format, Graph graph, long batchSize){
+        return readGraph(inputStream, format, graph, new ReadOptions().setBatchSize(batchSize));
+    }
+
+    /**
+     * Read a graph from an InputStream, with a format of either graphml, graphson or gryo,
+     * using the given options (see {@link ReadOptions}). If options is null, the defaults are used.
+     *
+     * TinkerPop's readers don't report progress, so if a metrics listener has been set (see
+     * {@link #setMetrics(GraphMetrics)}) the graph is always read with a {@link GraphStreamReader}
+     * and {@link ElementLoader}, as if {@link ReadOptions#setStreaming(boolean)} were set, so that
+     * elements and commits are reported as they happen.
+     */
+    public static boolean readGraph(InputStream inputStream, String format, Graph graph, ReadOptions options){
+        if(options == null)
+            options = new ReadOptions();
+
+        if(options.isClean()){
+            if("gryo".equalsIgnoreCase(format)){
+                LOGGER.warn("Gryo is a binary format and can't be cleaned - stream will be read without cleaning");
+            }else{
+                inputStream = new CleaningInputStream(inputStream, "graphml".equalsIgnoreCase(format));
+            }
+        }
+
+        inputStream = new CountingInputStream(inputStream);
+        long batchSize = options.getBatchSize();
+        long start = System.nanoTime();
+
         try {
-            if ("graphml".equalsIgnoreCase(format)) {
-                LOGGER.info("Reading from GraphML stream");
-                graph.io(IoCore.graphml()).reader().batchSize(batchSize).create().readGraph(inputStream, graph);
-            } else if ("graphson".equalsIgnoreCase(format)) {
-                LOGGER.info("Reading from GraphSON stream");
-                graph.io(IoCore.graphson()).reader().batchSize(batchSize).create().readGraph(inputStream, graph);
-            } else if ("gryo".equalsIgnoreCase(format)) {
-                LOGGER.info("Reading from Gryo stream");
-                graph.io(IoCore.gryo()).reader().batchSize(batchSize).create().readGraph(inputStream, graph);
+            if (options.isStreaming() || metrics != GraphMetrics.NOOP) {
+                LOGGER.info("Reading from {} stream", format);
+                try (GraphStreamReader reader = new GraphStreamReader(inputStream, format);
+                    ElementLoader loader = new ElementLoader(graph, batchSize, options.getInterner())) {
+                    loader.setElementFilter(options.getFilter());
+                    loader.setAdaptiveBatchSize(options.getAdaptiveBatchSize());
+                    reader.forEachRemaining(e -> {
+                        metrics.elementsRead(1);
+                        loader.accept(e);
+                    });
+                    loader.finish();
+
+                    if (options.getFilter() != null)
+                        LOGGER.info("{} vertices and edges were removed by the filter", loader.getFilteredCount());
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    LOGGER.error("Unable to read graph", e);
+                    return false;
+                }
             } else {
-                return false;
+                if ("graphml".equalsIgnoreCase(format)) {
+                    LOGGER.info("Reading from GraphML stream");
+                    graph.io(IoCore.graphml()).reader().batchSize(batchSize).create().readGraph(inputStream, graph);
+                } else if ("graphson".equalsIgnoreCase(format)) {
+                    LOGGER.info("Reading from GraphSON stream");
+                    graph.io(IoCore.graphson()).reader().batchSize(batchSize).create().readGraph(inputStream, graph);
+                } else if ("gryo".equalsIgnoreCase(format)) {
+                    LOGGER.info("Reading from Gryo stream");
+                    graph.io(IoCore.gryo()).reader().batchSize(batchSize).create().readGraph(inputStream, graph);
+                } else {
+                    return false;
+                }
             }
         }catch (IOException ioe) {
             LOGGER.error("Unable to read graph", ioe);
             return false;
         }
 
+        metrics.phaseCompleted("read", System.nanoTime() - start);
         return true;
     }
 
@@ -102,23 +233,83 @@ public class GraphUtils {
      */
     public static boolean writeGraphFile(File file, String format, Graph graph){
         LOGGER.info("Writing graph file {}", file);
+        try (final OutputStream stream = new FileOutputStream(file)) {
+            return writeGraph(stream, format, graph, file);
+        } catch(IOException ioe){
+            LOGGER.error("Unable to save graph to disk", ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Write a graph to an OutputStream, with a format of either graphml, graphson or gryo.
+     * The stream is not closed.
+     */
+    public static boolean writeGraph(OutputStream outputStream, String format, Graph graph){
+        return writeGraph(outputStream, format, graph, "stream");
+    }
+
+    private static boolean writeGraph(OutputStream outputStream, String format, Graph graph, Object destination){
+        long start = System.nanoTime();
+        final OutputStream stream = new CountingOutputStream(outputStream);
         try {
             if ("graphml".equalsIgnoreCase(format)) {
-                LOGGER.info("Outputting graph as GraphML to {}",file);
-                graph.io(IoCore.graphml()).writer().create().writeGraph(new FileOutputStream(file), graph);
+                LOGGER.info("Outputting graph as GraphML to {}", destination);
+                graph.io(IoCore.graphml()).writer().create().writeGraph(metrics == GraphMetrics.NOOP ? stream : new GraphMLCountingOutputStream(stream), graph);
             } else if ("graphson".equalsIgnoreCase(format)) {
-                LOGGER.info("Outputting graph as GraphSON to {}",file);
-                graph.io(IoCore.graphson()).writer().create().writeGraph(new FileOutputStream(file), graph);
+                LOGGER.info("Outputting graph as GraphSON to {}", destination);
+                graph.io(IoCore.graphson()).writer().create().writeVertices(stream, countWritten(graph.vertices()), Direction.BOTH);
             } else if("gryo".equalsIgnoreCase(format)) {
-                LOGGER.info("Outputting graph as Gryo to {}",file);
-                graph.io(IoCore.gryo()).writer().create().writeGraph(new FileOutputStream(file), graph);
+                LOGGER.info("Outputting graph as Gryo to {}", destination);
+                graph.io(IoCore.gryo()).writer().create().writeVertices(stream, countWritten(graph.vertices()), Direction.BOTH);
             }else{
                 return false;
             }
 
+            stream.flush();
+
+            metrics.phaseCompleted("write", System.nanoTime() - start);
             return true;
         } catch(IOException ioe){
-            LOGGER.error("Unable to save graph to disk", ioe);
+            LOGGER.error("Unable to write graph to stream", ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Write a graph to an OutputStream, with a format of either graphson or gryo, leaving the stream open.
+     *
+     * Both formats hold one vertex (and its edges) per record, so multiple graphs can be
+     * written to the same stream one after another and read back as a single graph,
+     * provided that their vertex and edge IDs don't overlap. GraphML can't be appended
+     * to, and so isn't supported.
+     */
+    public static boolean appendGraph(OutputStream outputStream, String format, Graph graph){
+        return appendVertices(outputStream, format, graph, graph.vertices());
+    }
+
+    /**
+     * Write some of the vertices in a graph (and all of their edges) to an OutputStream, with a format
+     * of either graphson or gryo, leaving the stream open
+     * (see {@link #appendGraph(OutputStream, String, Graph)}).
+     *
+     * Vertices that aren't written can still be the other end of an edge, for example when the
+     * graph is written in parts, provided that they are written elsewhere in the stream.
+     */
+    public static boolean appendVertices(OutputStream outputStream, String format, Graph graph, Iterator<Vertex> vertices){
+        outputStream = new CountingOutputStream(outputStream);
+        try {
+            if ("graphson".equalsIgnoreCase(format)) {
+                graph.io(IoCore.graphson()).writer().create().writeVertices(outputStream, countWritten(vertices), Direction.BOTH);
+            } else if("gryo".equalsIgnoreCase(format)) {
+                graph.io(IoCore.gryo()).writer().create().writeVertices(outputStream, countWritten(vertices), Direction.BOTH);
+            }else{
+                return false;
+            }
+
+            return true;
+        } catch(IOException ioe){
+            LOGGER.error("Unable to write graph to stream", ioe);
             return false;
         }
     }
@@ -139,8 +330,10 @@ public class GraphUtils {
      */
     public static void commitGraph(Graph graph){
         try {
+            long start = System.nanoTime();
             graph.tx().commit();
             graph.tx().close();
+            metrics.batchCommitted(System.nanoTime() - start);
         }catch (UnsupportedOperationException uoe){
             LOGGER.debug("Graph does not support transactions, commit call failed (but data likely persisted anyway)", uoe);
         }
@@ -153,4 +346,111 @@ public class GraphUtils {
         graph.traversal().V().drop().iterate();
         commitGraph(graph);
     }
+
+    /**
+     * If metrics are being collected, report each vertex and its outgoing edges as written as the
+     * writer reaches it. The writers serialize each vertex as a StarGraph, so the vertex is converted
+     * here instead, and its edges are counted without fetching them again.
+     */
+    private static Iterator<Vertex> countWritten(Iterator<Vertex> vertices){
+        if(metrics == GraphMetrics.NOOP)
+            return vertices;
+
+        return IteratorUtils.map(vertices, v -> {
+            StarGraph.StarVertex star = StarGraph.of(v).getStarVertex();
+            metrics.elementsWritten(1 + IteratorUtils.count(star.edges(Direction.OUT)));
+            return star;
+        });
+    }
+
+    /**
+     * InputStream that reports the number of bytes read to the metrics listener
+     */
+    static class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in){
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b != -1)
+                metrics.bytesRead(1);
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n > 0)
+                metrics.bytesRead(n);
+
+            return n;
+        }
+    }
+
+    /**
+     * OutputStream that reports each node and edge written by TinkerPop's GraphML writer, which
+     * writes the whole graph at once, by looking for their start tags in the output
+     */
+    private static class GraphMLCountingOutputStream extends FilterOutputStream {
+        private static final long NODE_TAG = tag("<node ");
+        private static final long EDGE_TAG = tag("<edge ");
+
+        private long last = 0;
+
+        GraphMLCountingOutputStream(OutputStream out){
+            super(out);
+        }
+
+        private static long tag(String tag){
+            long l = 0;
+            for(char c : tag.toCharArray())
+                l = (l << 8) | c;
+
+            return l;
+        }
+
+        private void count(int b){
+            //Keep the last 6 bytes written, the length of the tags
+            last = ((last << 8) | (b & 0xFF)) & 0xFFFFFFFFFFFFL;
+            if(last == NODE_TAG || last == EDGE_TAG)
+                metrics.elementsWritten(1);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            for(int i = off; i < off + len; i++)
+                count(b[i]);
+        }
+    }
+
+    /**
+     * OutputStream that reports the number of bytes written to the metrics listener
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        CountingOutputStream(OutputStream out){
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            metrics.bytesWritten(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            metrics.bytesWritten(len);
+        }
+    }
 }
@@ -0,0 +1,538 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the integrity of a graph file in a single streaming pass, without loading the graph
+ * into memory, so that broken files can be rejected before a long running load. The following
+ * problems are reported:
+ *
+ * <ul>
+ *   <li>Dangling edges, which reference a vertex that doesn't exist in the file</li>
+ *   <li>Vertices or edges with duplicate IDs</li>
+ *   <li>Labels, property keys or values containing control characters, unpaired surrogates,
+ *   non-characters or the replacement character (which usually indicates invalid UTF-8)</li>
+ *   <li>Property keys that have values of more than one type</li>
+ *   <li>Parts of the file that can't be parsed</li>
+ * </ul>
+ *
+ * IDs are mapped to dense integers using off-heap {@link IdDictionary} instances, and whether
+ * each vertex exists and how many edges reference it are held in a bit set and a primitive array,
+ * so heap use is a few bytes per vertex. The validator should be closed once it is no longer needed,
+ * to remove the dictionaries.
+ *
+ * GraphSON files hold one vertex per line, and so can be parsed in parallel, with lines that
+ * can't be parsed reported individually. Other formats are parsed on a single thread, and
+ * validation stops at the first parse error.
+ */
+public class GraphValidator implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphValidator.class);
+
+  private static final int LINES_PER_CHUNK = 1000;
+
+  private final int maxIssues;
+  private final List<String> issues = new ArrayList<>();
+
+  private long vertexCount = 0;
+  private long edgeCount = 0;
+  private long duplicateVertexCount = 0;
+  private long duplicateEdgeCount = 0;
+  private long badCharacterCount = 0;
+  private long parseErrorCount = 0;
+  private long danglingEdgeCount = 0;
+  private long missingVertexCount = 0;
+
+  //Dense index for each vertex ID, seen either as a vertex or as the end of an edge
+  private final IdDictionary vertexIndex;
+  private final IdDictionary edgeIndex;
+  private final BitSet declared = new BitSet();
+  private int[] references = new int[1024];
+
+  //The first type seen for each vertex and edge property key, and any conflicting types
+  private final Map<String, Class<?>> propertyTypes = new HashMap<>();
+  private final Map<String, Set<String>> typeConflicts = new TreeMap<>();
+
+  private boolean finished = false;
+
+  /**
+   * Create a new GraphValidator that will record the details of up to 100 issues
+   */
+  public GraphValidator() throws IOException {
+    this(100);
+  }
+
+  /**
+   * Create a new GraphValidator that will record the details of up to maxIssues issues.
+   * All issues are counted, regardless of this limit.
+   */
+  public GraphValidator(int maxIssues) throws IOException {
+    this.maxIssues = maxIssues;
+    this.vertexIndex = new IdDictionary();
+
+    IdDictionary edges;
+    try {
+      edges = new IdDictionary();
+    }catch (IOException ioe){
+      vertexIndex.close();
+      throw ioe;
+    }
+    this.edgeIndex = edges;
+  }
+
+  /**
+   * Validate a file, with a format of either graphml, graphson or gryo.
+   * If clean is true, then unsupported characters will be removed from the file as it is read,
+   * so the file is validated as it would be loaded with cleaning enabled.
+   * Returns null if the file couldn't be read, otherwise the returned validator should be
+   * closed once it is no longer needed.
+   */
+  public static GraphValidator validate(File file, String format, boolean clean, int threads, int maxIssues){
+    GraphValidator validator;
+    try {
+      validator = new GraphValidator(maxIssues);
+    }catch (IOException ioe){
+      LOGGER.error("Unable to create ID dictionary", ioe);
+      return null;
+    }
+
+    boolean cleanBytes = clean && !"gryo".equalsIgnoreCase(format);
+    if(clean && !cleanBytes)
+      LOGGER.warn("Gryo is a binary format and can't be cleaned - file will be read without cleaning");
+
+    LOGGER.info("Validating {}", file);
+    long start = System.nanoTime();
+    try(InputStream is = cleanBytes ? new CleaningInputStream(new GraphUtils.CountingInputStream(new FileInputStream(file)), "graphml".equalsIgnoreCase(format))
+        : new BufferedInputStream(new GraphUtils.CountingInputStream(new FileInputStream(file)))){
+
+      if("graphson".equalsIgnoreCase(format)){
+        validator.readGraphSON(is, Math.max(1, threads));
+      }else{
+        try(GraphStreamReader reader = new GraphStreamReader(is, format)){
+          reader.forEachRemaining(validator::accept);
+        }catch (IllegalStateException ise){
+          validator.parseError("Unable to parse file - " + ise.getMessage());
+        }
+      }
+    }catch (IOException | IllegalArgumentException e){
+      LOGGER.error("Unable to read graph file", e);
+      validator.close();
+      return null;
+    }catch (ExecutionException ee){
+      LOGGER.error("Unable to read graph file", ee.getCause());
+      validator.close();
+      return null;
+    }catch (InterruptedException ie){
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted whilst reading graph file", ie);
+      validator.close();
+      return null;
+    }
+
+    validator.finish();
+
+    GraphUtils.getMetrics().phaseCompleted("validate", System.nanoTime() - start);
+    return validator;
+  }
+
+  /**
+   * Parse chunks of lines in parallel, and add the results in the order they were read
+   */
+  private void readGraphSON(InputStream is, int threads) throws IOException, ExecutionException, InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+      Deque<Future<ParsedChunk>> window = new ArrayDeque<>();
+
+      List<String> chunk = new ArrayList<>(LINES_PER_CHUNK);
+      long firstLine = 1;
+      long lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        chunk.add(line);
+
+        if (chunk.size() >= LINES_PER_CHUNK) {
+          window.add(executor.submit(parseTask(chunk, firstLine)));
+          chunk = new ArrayList<>(LINES_PER_CHUNK);
+          firstLine = lineNumber + 1;
+
+          //Limit the number of parsed chunks held in memory
+          if (window.size() >= threads * 2)
+            accept(window.poll().get());
+        }
+      }
+
+      if (!chunk.isEmpty())
+        window.add(executor.submit(parseTask(chunk, firstLine)));
+
+      while (!window.isEmpty())
+        accept(window.poll().get());
+    }finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Parse a chunk of lines in one go, falling back to parsing each line individually
+   * to identify the lines that can't be parsed
+   */
+  private static Callable<ParsedChunk> parseTask(List<String> lines, long firstLine){
+    return () -> {
+      ParsedChunk parsed = new ParsedChunk();
+      try {
+        parse(String.join("\n", lines), parsed.elements);
+        return parsed;
+      }catch (IllegalStateException ise){
+        parsed.elements.clear();
+      }
+
+      for(int i = 0; i < lines.size(); i++){
+        if(lines.get(i).trim().isEmpty())
+          continue;
+
+        List<Element> elements = new ArrayList<>();
+        try {
+          parse(lines.get(i), elements);
+          parsed.elements.addAll(elements);
+        }catch (IllegalStateException ise){
+          parsed.errors.add("Unable to parse line " + (firstLine + i) + " - " + ise.getMessage());
+        }
+      }
+
+      return parsed;
+    };
+  }
+
+  private static void parse(String graphson, List<Element> elements) throws IOException {
+    try(GraphStreamReader reader = new GraphStreamReader(new ByteArrayInputStream(graphson.getBytes(StandardCharsets.UTF_8)), "graphson")){
+      reader.forEachRemaining(elements::add);
+    }
+  }
+
+  private void accept(ParsedChunk chunk){
+    chunk.errors.forEach(this::parseError);
+    chunk.elements.forEach(this::accept);
+  }
+
+  /**
+   * Check a vertex or edge. Once all elements have been checked, {@link #finish()} should be called.
+   */
+  public void accept(Element element){
+    GraphUtils.getMetrics().elementsRead(1);
+    if(element instanceof Vertex){
+      vertexCount++;
+
+      int i = indexOf(element.id());
+      if(declared.get(i)){
+        duplicateVertexCount++;
+        issue("Duplicate vertex ID " + element.id());
+      }
+      declared.set(i);
+    }else if(element instanceof Edge){
+      Edge e = (Edge) element;
+      edgeCount++;
+
+      if(e.id() != null){
+        int n = edgeIndex.size();
+        if(edgeIndex.getOrAdd(e.id()) < n){
+          duplicateEdgeCount++;
+          issue("Duplicate edge ID " + e.id());
+        }
+      }
+
+      int src = indexOf(e.outVertex().id());
+      int tgt = indexOf(e.inVertex().id());
+      references[src]++;
+      if(tgt != src)
+        references[tgt]++;
+    }else{
+      return;
+    }
+
+    String type = element instanceof Vertex ? "vertex" : "edge";
+    checkCharacters(element, type, "label", element.label());
+
+    for(Iterator<? extends Property<Object>> it = element.properties(); it.hasNext(); ){
+      Property<Object> p = it.next();
+      checkCharacters(element, type, "property key", p.key());
+
+      Object value = p.value();
+      if(value instanceof String)
+        checkCharacters(element, type, "property " + p.key(), (String) value);
+
+      checkType(type, p.key(), value);
+    }
+  }
+
+  /**
+   * Identify dangling edges, once all elements have been checked
+   */
+  public void finish(){
+    if(finished)
+      return;
+
+    finished = true;
+    for(int i = 0; i < vertexIndex.size(); i++){
+      if(declared.get(i))
+        continue;
+
+      missingVertexCount++;
+      danglingEdgeCount += references[i];
+      issue("Vertex " + vertexIndex.getId(i) + " is referenced by " + references[i] + " edge(s) but does not exist");
+    }
+  }
+
+  /**
+   * Returns true if no issues were found
+   */
+  public boolean isValid(){
+    return getIssueCount() == 0;
+  }
+
+  /**
+   * Get the total number of issues found, including those whose details weren't recorded
+   */
+  public long getIssueCount(){
+    return duplicateVertexCount + duplicateEdgeCount + badCharacterCount + parseErrorCount
+        + missingVertexCount + typeConflicts.size();
+  }
+
+  /**
+   * Get a description of each issue found, up to the maximum number of issues to record
+   */
+  public List<String> getIssues(){
+    return Collections.unmodifiableList(issues);
+  }
+
+  /**
+   * Get the number of vertices checked
+   */
+  public long getVertexCount(){
+    return vertexCount;
+  }
+
+  /**
+   * Get the number of edges checked
+   */
+  public long getEdgeCount(){
+    return edgeCount;
+  }
+
+  /**
+   * Get the number of vertices whose ID had already been seen
+   */
+  public long getDuplicateVertexCount(){
+    return duplicateVertexCount;
+  }
+
+  /**
+   * Get the number of edges whose ID had already been seen
+   */
+  public long getDuplicateEdgeCount(){
+    return duplicateEdgeCount;
+  }
+
+  /**
+   * Get the number of vertices that are referenced by an edge but don't exist
+   */
+  public long getMissingVertexCount(){
+    return missingVertexCount;
+  }
+
+  /**
+   * Get the number of edge ends that reference a vertex that doesn't exist
+   * (an edge with both ends missing is counted twice)
+   */
+  public long getDanglingEdgeCount(){
+    return danglingEdgeCount;
+  }
+
+  /**
+   * Get the number of labels, property keys and values containing unsupported characters
+   */
+  public long getBadCharacterCount(){
+    return badCharacterCount;
+  }
+
+  /**
+   * Get the number of parts of the file that couldn't be parsed
+   */
+  public long getParseErrorCount(){
+    return parseErrorCount;
+  }
+
+  /**
+   * Get the types seen for each property key that has values of more than one type,
+   * with keys prefixed by either vertex or edge (e.g. vertex.age)
+   */
+  public Map<String, Set<String>> getTypeConflicts(){
+    return Collections.unmodifiableMap(typeConflicts);
+  }
+
+  /**
+   * Write a summary of the validation followed by the details of each recorded issue,
+   * one per line, to the report
+   */
+  public void writeReport(Writer report) throws IOException {
+    report.write("vertices: " + vertexCount + "\n");
+    report.write("edges: " + edgeCount + "\n");
+    report.write("duplicate vertex IDs: " + duplicateVertexCount + "\n");
+    report.write("duplicate edge IDs: " + duplicateEdgeCount + "\n");
+    report.write("missing vertices: " + missingVertexCount + "\n");
+    report.write("dangling edges: " + danglingEdgeCount + "\n");
+    report.write("bad characters: " + badCharacterCount + "\n");
+    report.write("type conflicts: " + typeConflicts.size() + "\n");
+    report.write("parse errors: " + parseErrorCount + "\n");
+
+    for(String issue : issues)
+      report.write(issue + "\n");
+
+    if(issues.size() < getIssueCount())
+      report.write("... " + (getIssueCount() - issues.size()) + " more issue(s) not shown\n");
+
+    report.flush();
+  }
+
+  @Override
+  public void close() {
+    vertexIndex.close();
+    edgeIndex.close();
+  }
+
+  /**
+   * Returns the position of the first unsupported character in s, or -1 if there isn't one.
+   * Control characters (other than tab, newline and carriage return), unpaired surrogates,
+   * the non-characters U+FFFE and U+FFFF and the replacement character U+FFFD are unsupported.
+   */
+  public static int findBadCharacter(String s){
+    for(int i = 0; i < s.length(); i++){
+      char c = s.charAt(i);
+      if(c < 0x80){
+        if(!GraphCleaner.isClean(c))
+          return i;
+      }else if(Character.isHighSurrogate(c)){
+        if(i + 1 >= s.length() || !Character.isLowSurrogate(s.charAt(i + 1)))
+          return i;
+
+        i++;
+      }else if(Character.isLowSurrogate(c) || c == '\uFFFD' || c == '\uFFFE' || c == '\uFFFF'){
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private void checkCharacters(Element element, String type, String field, String s){
+    if(s == null)
+      return;
+
+    int i = findBadCharacter(s);
+    if(i == -1)
+      return;
+
+    badCharacterCount++;
+    issue(capitalise(type) + " " + element.id() + " has unsupported character "
+        + String.format("U+%04X", (int) s.charAt(i)) + " in " + field);
+  }
+
+  private void checkType(String type, String key, Object value){
+    if(value == null)
+      return;
+
+    String name = type + "." + key;
+    Class<?> existing = propertyTypes.putIfAbsent(name, value.getClass());
+    if(existing == null || existing == value.getClass())
+      return;
+
+    Set<String> types = typeConflicts.get(name);
+    if(types == null){
+      types = new TreeSet<>();
+      types.add(existing.getSimpleName());
+      typeConflicts.put(name, types);
+
+      issue(capitalise(type) + " property " + key + " has values of more than one type");
+    }
+    types.add(value.getClass().getSimpleName());
+  }
+
+  private void parseError(String message){
+    parseErrorCount++;
+    issue(message);
+  }
+
+  private void issue(String message){
+    if(issues.size() < maxIssues)
+      issues.add(message);
+  }
+
+  private static String capitalise(String s){
+    return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+  }
+
+  private int indexOf(Object id){
+    int i = vertexIndex.getOrAdd(id);
+    if(i >= references.length)
+      references = Arrays.copyOf(references, Math.max(references.length * 2, i + 1));
+
+    return i;
+  }
+
+  /**
+   * Elements parsed from a chunk of GraphSON lines, and any lines that couldn't be parsed
+   */
+  private static class ParsedChunk {
+    private final List<Element> elements = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+  }
+}
@@ -0,0 +1,372 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maps vertex (or other element) IDs to dense int indices, starting at 0, so that
+ * information about each ID can be held in compact primitive arrays or bit sets.
+ *
+ * The dictionary is held off-heap, in memory-mapped files within a temporary directory,
+ * so that heap use doesn't grow with the number of IDs and the operating system can page
+ * the dictionary to disk when it is larger than the available memory. The files are
+ * deleted when the dictionary is closed.
+ *
+ * Long, Integer, String and UUID IDs are stored as-is. IDs of any other type are stored
+ * as their class name and string representation, so IDs of different types never share
+ * an index, but {@link #getId(int)} will return the string representation for them.
+ *
+ * This class is not thread safe.
+ */
+public class IdDictionary implements Closeable {
+  private static final int INITIAL_CAPACITY_BITS = 16;
+
+  private static final byte TYPE_STRING = 0;
+  private static final byte TYPE_LONG = 1;
+  private static final byte TYPE_INTEGER = 2;
+  private static final byte TYPE_UUID = 3;
+  private static final byte TYPE_OTHER = 4;
+
+  private final File directory;
+
+  //Encoded IDs, stored one after another
+  private final MappedFile data;
+  //The offset of each ID within data, indexed by dense index
+  private final MappedFile offsets;
+  //Open addressing hash table of slots, each holding the dense index + 1 (0 if empty) and the hash of the ID
+  private MappedFile table;
+
+  //Capacity is held as a long, as tables for more than 2^30 IDs need more than 2^31 slots
+  private int capacityBits = INITIAL_CAPACITY_BITS;
+  private long capacity = 1L << INITIAL_CAPACITY_BITS;
+  private int size = 0;
+  private long dataEnd = 0;
+  private int tableGeneration = 0;
+
+  /**
+   * Create a new IdDictionary in a temporary directory
+   */
+  public IdDictionary() throws IOException {
+    this(null);
+  }
+
+  /**
+   * Create a new IdDictionary, with files held in a new temporary directory within parent
+   * (or the system temporary directory if parent is null)
+   */
+  public IdDictionary(File parent) throws IOException {
+    directory = parent == null ? Files.createTempDirectory("iddictionary").toFile()
+        : Files.createTempDirectory(parent.toPath(), "iddictionary").toFile();
+
+    data = new MappedFile(new File(directory, "data"));
+    offsets = new MappedFile(new File(directory, "offsets"));
+    table = new MappedFile(new File(directory, "table." + tableGeneration));
+  }
+
+  /**
+   * Get the index of an ID, adding it to the dictionary if it isn't already present
+   */
+  public int getOrAdd(Object id){
+    byte[] key = encode(id);
+    int hash = hash(key);
+
+    long slot = find(key, hash);
+    int existing = table.getInt(slot * 8);
+    if(existing != 0)
+      return existing - 1;
+
+    if(size == Integer.MAX_VALUE - 1)
+      throw new IllegalStateException("IdDictionary is full");
+
+    int index = size++;
+    offsets.putLong(index * 8L, dataEnd);
+    data.put(dataEnd, key);
+    dataEnd += key.length;
+
+    table.putInt(slot * 8, index + 1);
+    table.putInt(slot * 8 + 4, hash);
+
+    //Keep the load factor below 0.5, so probe sequences stay short
+    if(size * 2L > capacity)
+      resize();
+
+    return index;
+  }
+
+  /**
+   * Get the index of an ID, or -1 if it isn't in the dictionary
+   */
+  public int get(Object id){
+    byte[] key = encode(id);
+    return table.getInt(find(key, hash(key)) * 8) - 1;
+  }
+
+  /**
+   * Returns true if the ID is in the dictionary
+   */
+  public boolean contains(Object id){
+    return get(id) != -1;
+  }
+
+  /**
+   * Get the ID at an index
+   */
+  public Object getId(int index){
+    if(index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("Index " + index + " is not in the dictionary");
+
+    return decode(readKey(index));
+  }
+
+  /**
+   * Get the number of IDs in the dictionary
+   */
+  public int size(){
+    return size;
+  }
+
+  @Override
+  public void close() {
+    data.close();
+    offsets.close();
+    table.close();
+
+    if(!directory.delete())
+      directory.deleteOnExit();
+  }
+
+  /**
+   * Find the slot holding the key, or the empty slot it should be inserted into
+   */
+  private long find(byte[] key, int hash){
+    long mask = capacity - 1L;
+    long slot = slotOf(hash, capacityBits);
+
+    while(true){
+      int index = table.getInt(slot * 8);
+      if(index == 0)
+        return slot;
+
+      if(table.getInt(slot * 8 + 4) == hash && Arrays.equals(key, readKey(index - 1)))
+        return slot;
+
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void resize(){
+    int newBits = capacityBits + 1;
+    long newCapacity = 1L << newBits;
+    tableGeneration++;
+    MappedFile newTable = new MappedFile(new File(directory, "table." + tableGeneration));
+
+    long mask = newCapacity - 1L;
+    for(long i = 0; i < capacity; i++){
+      int index = table.getInt(i * 8);
+      if(index == 0)
+        continue;
+
+      int hash = table.getInt(i * 8 + 4);
+      long slot = slotOf(hash, newBits);
+      while(newTable.getInt(slot * 8) != 0)
+        slot = (slot + 1) & mask;
+
+      newTable.putInt(slot * 8, index);
+      newTable.putInt(slot * 8 + 4, hash);
+    }
+
+    table.close();
+    table = newTable;
+    capacity = newCapacity;
+    capacityBits = newBits;
+  }
+
+  /**
+   * Get the initial slot for a hash in a table of 2^bits slots, taking the top bits of the
+   * hash multiplied by the golden ratio so that slots are spread across the whole table,
+   * even when it has more slots than there are possible hash values
+   */
+  private static long slotOf(int hash, int bits){
+    return (hash * 0x9E3779B97F4A7C15L) >>> (64 - bits);
+  }
+
+  private byte[] readKey(int index){
+    long start = offsets.getLong(index * 8L);
+    long end = index == size - 1 ? dataEnd : offsets.getLong((index + 1) * 8L);
+
+    byte[] key = new byte[(int) (end - start)];
+    data.get(start, key);
+
+    return key;
+  }
+
+  private static byte[] encode(Object id){
+    if(id instanceof Long){
+      return ByteBuffer.allocate(9).put(TYPE_LONG).putLong((Long) id).array();
+    }else if(id instanceof Integer){
+      return ByteBuffer.allocate(5).put(TYPE_INTEGER).putInt((Integer) id).array();
+    }else if(id instanceof UUID){
+      UUID uuid = (UUID) id;
+      return ByteBuffer.allocate(17).put(TYPE_UUID)
+          .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }else if(id instanceof String){
+      byte[] s = ((String) id).getBytes(StandardCharsets.UTF_8);
+      return ByteBuffer.allocate(s.length + 1).put(TYPE_STRING).put(s).array();
+    }else{
+      //Include the class name, so that (for example) a URI doesn't collide with a String of the same text
+      byte[] c = id.getClass().getName().getBytes(StandardCharsets.UTF_8);
+      byte[] s = String.valueOf(id).getBytes(StandardCharsets.UTF_8);
+      return ByteBuffer.allocate(s.length + c.length + 5).put(TYPE_OTHER)
+          .putInt(c.length).put(c).put(s).array();
+    }
+  }
+
+  private static Object decode(byte[] key){
+    ByteBuffer bb = ByteBuffer.wrap(key);
+    switch (bb.get()){
+      case TYPE_LONG:
+        return bb.getLong();
+      case TYPE_INTEGER:
+        return bb.getInt();
+      case TYPE_UUID:
+        return new UUID(bb.getLong(), bb.getLong());
+      case TYPE_OTHER:
+        int start = 5 + bb.getInt();
+        return new String(key, start, key.length - start, StandardCharsets.UTF_8);
+      default:
+        return new String(key, 1, key.length - 1, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static int hash(byte[] key){
+    //FNV-1a, followed by the MurmurHash3 finaliser to spread the bits
+    int h = 0x811C9DC5;
+    for(byte b : key){
+      h ^= b;
+      h *= 0x01000193;
+    }
+
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+
+    return h & 0x7FFFFFFF;
+  }
+
+  /**
+   * A file that is mapped into memory in fixed size segments, which are added as the file grows
+   */
+  private static class MappedFile {
+    private static final int SEGMENT_BITS = 26;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    private final File file;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    MappedFile(File file){
+      this.file = file;
+      try {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }catch (IOException ioe){
+        throw new UncheckedIOException("Unable to create dictionary file " + file, ioe);
+      }
+    }
+
+    int getInt(long position){
+      return segment(position).getInt(offset(position));
+    }
+
+    void putInt(long position, int value){
+      segment(position).putInt(offset(position), value);
+    }
+
+    long getLong(long position){
+      return segment(position).getLong(offset(position));
+    }
+
+    void putLong(long position, long value){
+      segment(position).putLong(offset(position), value);
+    }
+
+    void get(long position, byte[] bytes){
+      int done = 0;
+      while(done < bytes.length){
+        ByteBuffer bb = segment(position + done).duplicate();
+        bb.position(offset(position + done));
+        int n = Math.min(bytes.length - done, bb.remaining());
+        bb.get(bytes, done, n);
+        done += n;
+      }
+    }
+
+    void put(long position, byte[] bytes){
+      int done = 0;
+      while(done < bytes.length){
+        ByteBuffer bb = segment(position + done).duplicate();
+        bb.position(offset(position + done));
+        int n = Math.min(bytes.length - done, bb.remaining());
+        bb.put(bytes, done, n);
+        done += n;
+      }
+    }
+
+    void close(){
+      segments.clear();
+      try {
+        channel.close();
+      }catch (IOException ioe){
+        //Ignore, as the file is about to be deleted
+      }
+
+      if(!file.delete())
+        file.deleteOnExit();
+    }
+
+    private MappedByteBuffer segment(long position){
+      int s = (int) (position >>> SEGMENT_BITS);
+      try {
+        while (segments.size() <= s)
+          segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+      }catch (IOException ioe){
+        throw new UncheckedIOException("Unable to map dictionary file " + file, ioe);
+      }
+
+      return segments.get(s);
+    }
+
+    private static int offset(long position){
+      return (int) (position & (SEGMENT_SIZE - 1));
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link GraphMetrics} implementation that totals the events it receives, and periodically
+ * logs throughput since the last report. A warning is logged if no elements or bytes have
+ * been processed since the last report, to help identify stalls.
+ *
+ * Closing the reporter stops the periodic reports and logs a final summary.
+ */
+public class MetricsReporter implements GraphMetrics, Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsReporter.class);
+
+  private final LongAdder elementsRead = new LongAdder();
+  private final LongAdder elementsWritten = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder commitNanos = new LongAdder();
+  private final LongAccumulator maxCommitNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder components = new LongAdder();
+  private final LongAccumulator largestComponent = new LongAccumulator(Math::max, 0);
+  private final Map<String, AtomicInteger> queueDepths = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+
+  private final long startNanos = System.nanoTime();
+  private final ScheduledExecutorService scheduler;
+
+  //Totals at the time of the last report, only accessed by the reporting thread
+  private long lastNanos = startNanos;
+  private long lastRead = 0;
+  private long lastWritten = 0;
+  private long lastBytes = 0;
+
+  /**
+   * Create a new MetricsReporter that doesn't report periodically, but can be queried
+   * and will log a summary when closed
+   */
+  public MetricsReporter(){
+    this.scheduler = null;
+  }
+
+  /**
+   * Create a new MetricsReporter that logs a report at the given interval
+   */
+  public MetricsReporter(long period, TimeUnit unit){
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "metrics-reporter");
+      t.setDaemon(true);
+      return t;
+    });
+    this.scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+  }
+
+  @Override
+  public void elementsRead(long count) {
+    elementsRead.add(count);
+  }
+
+  @Override
+  public void elementsWritten(long count) {
+    elementsWritten.add(count);
+  }
+
+  @Override
+  public void bytesRead(long bytes) {
+    bytesRead.add(bytes);
+  }
+
+  @Override
+  public void bytesWritten(long bytes) {
+    bytesWritten.add(bytes);
+  }
+
+  @Override
+  public void batchCommitted(long nanos) {
+    commits.increment();
+    commitNanos.add(nanos);
+    maxCommitNanos.accumulate(nanos);
+  }
+
+  @Override
+  public void componentFound(int size) {
+    components.increment();
+    largestComponent.accumulate(size);
+  }
+
+  @Override
+  public void queueDepth(String queue, int depth) {
+    queueDepths.computeIfAbsent(queue, q -> new AtomicInteger()).set(depth);
+  }
+
+  @Override
+  public void phaseCompleted(String phase, long nanos) {
+    phaseNanos.computeIfAbsent(phase, p -> new LongAdder()).add(nanos);
+    LOGGER.info("Phase {} completed in {} ms", phase, TimeUnit.NANOSECONDS.toMillis(nanos));
+  }
+
+  /**
+   * Get the total number of elements read
+   */
+  public long getElementsRead(){
+    return elementsRead.sum();
+  }
+
+  /**
+   * Get the total number of elements written
+   */
+  public long getElementsWritten(){
+    return elementsWritten.sum();
+  }
+
+  /**
+   * Get the total number of bytes read
+   */
+  public long getBytesRead(){
+    return bytesRead.sum();
+  }
+
+  /**
+   * Get the total number of bytes written
+   */
+  public long getBytesWritten(){
+    return bytesWritten.sum();
+  }
+
+  /**
+   * Get the number of batches committed
+   */
+  public long getCommits(){
+    return commits.sum();
+  }
+
+  /**
+   * Get the number of components found
+   */
+  public long getComponents(){
+    return components.sum();
+  }
+
+  /**
+   * Get the total time spent in each phase, in milliseconds
+   */
+  public Map<String, Long> getPhaseTimes(){
+    Map<String, Long> times = new TreeMap<>();
+    phaseNanos.forEach((k, v) -> times.put(k, TimeUnit.NANOSECONDS.toMillis(v.sum())));
+
+    return times;
+  }
+
+  /**
+   * Log the throughput since the last report
+   */
+  public synchronized void report(){
+    long now = System.nanoTime();
+    double seconds = Math.max(1, now - lastNanos) / 1e9;
+
+    long read = elementsRead.sum();
+    long written = elementsWritten.sum();
+    long bytes = bytesRead.sum() + bytesWritten.sum();
+
+    LOGGER.info("{} elements read ({}/s), {} elements written ({}/s), {} MB processed ({} MB/s), {} commits (mean {} ms, max {} ms), {} components (largest {}), queue depths {}",
+        read, Math.round((read - lastRead) / seconds),
+        written, Math.round((written - lastWritten) / seconds),
+        bytes / (1024 * 1024), Math.round((bytes - lastBytes) / seconds / (1024 * 1024)),
+        commits.sum(), meanCommitMillis(), TimeUnit.NANOSECONDS.toMillis(maxCommitNanos.get()),
+        components.sum(), largestComponent.get(), new TreeMap<>(queueDepths));
+
+    if(read == lastRead && written == lastWritten && bytes == lastBytes)
+      LOGGER.warn("No elements or bytes processed in the last {} seconds", Math.round(seconds));
+
+    lastNanos = now;
+    lastRead = read;
+    lastWritten = written;
+    lastBytes = bytes;
+  }
+
+  @Override
+  public void close() {
+    if(scheduler != null)
+      scheduler.shutdownNow();
+
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    LOGGER.info("Completed in {} ms - {} elements read, {} elements written, {} bytes read, {} bytes written, {} commits (mean {} ms), phase times (ms) {}",
+        millis, elementsRead.sum(), elementsWritten.sum(), bytesRead.sum(), bytesWritten.sum(),
+        commits.sum(), meanCommitMillis(), getPhaseTimes());
+  }
+
+  private long meanCommitMillis(){
+    long c = commits.sum();
+    return c == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(commitNanos.sum() / c);
+  }
+}
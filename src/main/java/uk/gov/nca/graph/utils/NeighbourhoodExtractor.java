@@ -0,0 +1,217 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class for extracting the k-hop neighbourhood (ego network) of a vertex.
+ *
+ * The neighbourhood is found by a breadth first search, one hop at a time,
+ * with each hop able to restrict the edge labels, direction and vertex label followed.
+ * The number of neighbours followed from any single vertex, and the total number of
+ * vertices in the neighbourhood, can be capped to avoid the search exploding on
+ * high degree vertices.
+ */
+public class NeighbourhoodExtractor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(NeighbourhoodExtractor.class);
+
+  private final List<Hop> hops;
+  private final int maxFanOut;
+  private final int maxVertices;
+  private final boolean parallel;
+
+  /**
+   * Create a new NeighbourhoodExtractor that follows the given hops,
+   * with no limits on fan out or total vertices
+   */
+  public NeighbourhoodExtractor(List<Hop> hops){
+    this(hops, 0, 0, false);
+  }
+
+  /**
+   * Create a new NeighbourhoodExtractor that follows the given hops.
+   *
+   * A maxFanOut or maxVertices of 0 or less means that no limit is applied.
+   * If parallel is true, then each frontier in the search will be expanded in parallel.
+   */
+  public NeighbourhoodExtractor(List<Hop> hops, int maxFanOut, int maxVertices, boolean parallel){
+    this.hops = new ArrayList<>(hops);
+    this.maxFanOut = maxFanOut;
+    this.maxVertices = maxVertices;
+    this.parallel = parallel;
+  }
+
+  /**
+   * Create a new NeighbourhoodExtractor that follows k hops in the specified direction,
+   * along any of the specified edge labels (or all edges, if no labels are given) and
+   * to vertices of any label
+   */
+  public static NeighbourhoodExtractor kHops(int k, Direction direction, String... edgeLabels){
+    return new NeighbourhoodExtractor(Collections.nCopies(k, new Hop(direction, null, edgeLabels)));
+  }
+
+  /**
+   * Find all vertices within the neighbourhood of the initial vertex, including
+   * the initial vertex itself.
+   */
+  public Collection<Vertex> findNeighbourhood(Vertex initial){
+    //Only the IDs of visited vertices are held for lookups, with the vertices collected separately
+    Set<Object> visited = ConcurrentHashMap.newKeySet();
+    Queue<Vertex> neighbourhood = new ConcurrentLinkedQueue<>();
+    AtomicInteger count = new AtomicInteger(1);
+
+    visited.add(initial.id());
+    neighbourhood.add(initial);
+    List<Vertex> frontier = Collections.singletonList(initial);
+
+    int hopCount = 0;
+    for(Hop hop : hops){
+      hopCount++;
+      if(frontier.isEmpty())
+        break;
+
+      LOGGER.debug("Expanding frontier of {} vertices for hop {}", frontier.size(), hopCount);
+
+      Queue<Vertex> nextFrontier = new ConcurrentLinkedQueue<>();
+      Stream<Vertex> stream = parallel ? frontier.parallelStream() : frontier.stream();
+      stream.forEach(v -> expand(v, hop, visited, count, neighbourhood, nextFrontier));
+
+      frontier = new ArrayList<>(nextFrontier);
+
+      if(maxVertices > 0 && count.get() >= maxVertices){
+        LOGGER.debug("Neighbourhood has reached maximum size of {} vertices", maxVertices);
+        break;
+      }
+    }
+
+    return new ArrayList<>(neighbourhood);
+  }
+
+  private void expand(Vertex v, Hop hop, Set<Object> visited, AtomicInteger count,
+      Queue<Vertex> neighbourhood, Queue<Vertex> nextFrontier){
+    int followed = 0;
+
+    Iterator<Vertex> it = v.vertices(hop.direction, hop.edgeLabels);
+    while(it.hasNext()){
+      if(maxFanOut > 0 && followed >= maxFanOut)
+        return;
+
+      Vertex n = it.next();
+      if(hop.vertexLabel != null && !hop.vertexLabel.equals(n.label()))
+        continue;
+
+      followed++;
+
+      if(!visited.add(n.id()))
+        continue;
+
+      if(maxVertices > 0 && count.incrementAndGet() > maxVertices){
+        //Over the limit, so undo the addition and stop
+        visited.remove(n.id());
+        count.decrementAndGet();
+        return;
+      }
+
+      neighbourhood.add(n);
+      nextFrontier.add(n);
+    }
+  }
+
+  /**
+   * Extract the neighbourhood of the initial vertex into a new in-memory graph,
+   * containing all vertices in the neighbourhood and all edges between them.
+   */
+  public Graph extractSubgraph(Vertex initial){
+    Collection<Vertex> vertices = findNeighbourhood(initial);
+    LOGGER.debug("Creating graph for neighbourhood of {} vertices", vertices.size());
+
+    Graph subgraph = TinkerGraph.open();
+    Map<Object, Vertex> mapVertices = new HashMap<>();
+
+    for(Vertex v : vertices){
+      Vertex newV = subgraph.addVertex(v.label());
+      ElementUtils.copyProperties(v, newV);
+      mapVertices.put(v.id(), newV);
+    }
+
+    for(Vertex v : vertices){
+      Vertex src = mapVertices.get(v.id());
+      v.edges(Direction.OUT).forEachRemaining(e -> {
+        Vertex tgt = mapVertices.get(e.inVertex().id());
+        if(tgt == null)
+          return;
+
+        Edge newE = src.addEdge(e.label(), tgt);
+        ElementUtils.copyProperties(e, newE);
+      });
+    }
+
+    return subgraph;
+  }
+
+  /**
+   * Extract the neighbourhood of the initial vertex, and write it to file
+   * with a format of either graphml, graphson or gryo.
+   */
+  public boolean extractToFile(Vertex initial, File file, String format){
+    Graph subgraph = extractSubgraph(initial);
+    try {
+      return GraphUtils.writeGraphFile(file, format, subgraph);
+    }finally {
+      GraphUtils.closeGraph(subgraph);
+    }
+  }
+
+  /**
+   * A single hop within the neighbourhood search, following edges with any of the
+   * given labels (or all edges, if no labels are given) in the specified direction.
+   *
+   * If vertexLabel is not null, then only vertices with that label will be followed.
+   */
+  public static class Hop {
+    private final Direction direction;
+    private final String vertexLabel;
+    private final String[] edgeLabels;
+
+    public Hop(Direction direction, String vertexLabel, String... edgeLabels){
+      this.direction = direction;
+      this.vertexLabel = vertexLabel;
+      this.edgeLabels = edgeLabels == null ? new String[0] : edgeLabels;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+/**
+ * Callback that a single graph operation reports its progress through, for example to
+ * update a progress bar or to give up on an operation that is taking too long.
+ *
+ * Unlike {@link GraphMetrics}, which is shared by all operations, a ProgressListener is
+ * passed to an individual operation. Throwing an exception (such as a
+ * {@link java.util.concurrent.CancellationException}) from the callback will abort the operation.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+  /**
+   * Listener that ignores all progress
+   */
+  ProgressListener NOOP = (completed, total) -> {};
+
+  /**
+   * Called with the amount of work completed so far, and the total amount of work
+   * (or -1 if the total isn't known)
+   */
+  void progress(long completed, long total);
+}
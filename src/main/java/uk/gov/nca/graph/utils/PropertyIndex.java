@@ -0,0 +1,291 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.event.MutationListener;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.decoration.EventStrategy;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory hash index over vertex properties, for fast lookup of vertices by
+ * property value without scanning the whole graph.
+ *
+ * The index covers a fixed set of property keys, optionally restricted to vertices
+ * with particular labels. If a property value is a list, each item in the list is
+ * indexed separately.
+ *
+ * The index is not aware of changes made directly to the underlying graph. Changes made by
+ * traversals can be applied to the index by adding {@link #createMutationListener(Graph)} to an
+ * {@link EventStrategy} on the traversal source, for example
+ * <code>graph.traversal().withStrategies(EventStrategy.build().addListener(index.createMutationListener(graph)).create())</code>.
+ * Other changes to indexed vertices should be made through {@link #setProperty(Vertex, String, Object)},
+ * or by calling {@link #remove(Vertex)} before and {@link #add(Vertex)} after the change.
+ */
+public class PropertyIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyIndex.class);
+
+    private final Set<String> labels;
+    private final Set<String> keys;
+
+    private final Map<String, Map<Object, Set<Vertex>>> index = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new, empty, PropertyIndex over the given property keys for vertices with any label
+     */
+    public PropertyIndex(Collection<String> keys){
+        this(Collections.emptySet(), keys);
+    }
+
+    /**
+     * Create a new, empty, PropertyIndex over the given property keys for vertices with
+     * one of the given labels. If labels is empty, then vertices with any label are indexed.
+     */
+    public PropertyIndex(Collection<String> labels, Collection<String> keys){
+        this.labels = new HashSet<>(labels);
+        this.keys = new HashSet<>(keys);
+
+        for(String key : keys)
+            index.put(key, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Build a PropertyIndex over the given property keys, from a single pass over all the
+     * vertices in the graph
+     */
+    public static PropertyIndex build(Graph graph, Collection<String> labels, Collection<String> keys, boolean parallel){
+        PropertyIndex propertyIndex = new PropertyIndex(labels, keys);
+        propertyIndex.addAll(graph, parallel);
+
+        return propertyIndex;
+    }
+
+    /**
+     * Add all vertices in the graph to the index, optionally processing the vertices in parallel
+     */
+    public void addAll(Graph graph, boolean parallel){
+        LOGGER.info("Indexing properties {} on graph", keys);
+        StreamSupport.stream(Spliterators.spliteratorUnknownSize(graph.vertices(), 0), parallel)
+            .forEach(this::add);
+        LOGGER.info("Finished indexing properties {}", keys);
+    }
+
+    /**
+     * Add a vertex to the index, using its current property values
+     */
+    public void add(Vertex v){
+        if(!isIndexed(v))
+            return;
+
+        for(String key : keys)
+            v.properties(key).forEachRemaining(p -> addValue(v, key, p.value()));
+    }
+
+    /**
+     * Remove a vertex from the index, using its current property values
+     */
+    public void remove(Vertex v){
+        if(!isIndexed(v))
+            return;
+
+        for(String key : keys)
+            v.properties(key).forEachRemaining(p -> removeValue(v, key, p.value()));
+    }
+
+    /**
+     * Set a property on a vertex, updating the index accordingly
+     */
+    public void setProperty(Vertex v, String key, Object value){
+        if(!keys.contains(key)){
+            v.property(key, value);
+            return;
+        }
+
+        remove(v);
+        v.property(key, value);
+        add(v);
+    }
+
+    /**
+     * Return all vertices where the property has the given value (or the given value is
+     * contained in a list of values). If the property is not indexed, then an
+     * IllegalArgumentException is thrown.
+     */
+    public Set<Vertex> lookup(String key, Object value){
+        Map<Object, Set<Vertex>> keyIndex = index.get(key);
+        if(keyIndex == null)
+            throw new IllegalArgumentException("Property " + key + " is not indexed");
+
+        Set<Vertex> vertices = keyIndex.get(value);
+        if(vertices == null)
+            return Collections.emptySet();
+
+        return Collections.unmodifiableSet(vertices);
+    }
+
+    /**
+     * Return the set of indexed property keys
+     */
+    public Set<String> getKeys(){
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Create a native index on a TinkerGraph for each of the indexed property keys,
+     * for example after a bulk load so that traversals can also benefit from the index
+     */
+    public void createTinkerGraphIndexes(TinkerGraph graph){
+        for(String key : keys){
+            if(!graph.getIndexedKeys(Vertex.class).contains(key))
+                graph.createIndex(key, Vertex.class);
+        }
+    }
+
+    /**
+     * Create a listener that keeps this index up to date with the changes made by traversals
+     * using an {@link EventStrategy}. Vertices are looked up in the given graph, so that the index
+     * holds the graph's own vertices rather than the detached copies passed to the listener.
+     *
+     * Events are raised before the change is made, so a changed property is treated as replacing
+     * the previous value (i.e. single cardinality, which is the default).
+     */
+    public MutationListener createMutationListener(Graph graph){
+        return new IndexMutationListener(graph);
+    }
+
+    private void addValue(Vertex v, String key, Object value){
+        Map<Object, Set<Vertex>> keyIndex = index.get(key);
+        forEachValue(value, item -> keyIndex.compute(item, (k, set) -> {
+            Set<Vertex> s = set == null ? ConcurrentHashMap.newKeySet() : set;
+            s.add(v);
+            return s;
+        }));
+    }
+
+    private void removeValue(Vertex v, String key, Object value){
+        Map<Object, Set<Vertex>> keyIndex = index.get(key);
+        forEachValue(value, item -> keyIndex.computeIfPresent(item, (k, set) -> {
+            set.remove(v);
+            return set.isEmpty() ? null : set;
+        }));
+    }
+
+    private boolean isIndexed(Vertex v){
+        return labels.isEmpty() || labels.contains(v.label());
+    }
+
+    private static void forEachValue(Object value, Consumer<Object> consumer){
+        if(value instanceof List){
+            ((List<?>) value).forEach(consumer);
+        }else if(value != null){
+            consumer.accept(value);
+        }
+    }
+
+    /**
+     * Updates the index as vertices and their properties are changed by a traversal.
+     * Edge events are ignored, as edges aren't indexed.
+     */
+    private class IndexMutationListener implements MutationListener {
+        private final Graph graph;
+
+        private IndexMutationListener(Graph graph){
+            this.graph = graph;
+        }
+
+        private Vertex resolve(Vertex v){
+            Iterator<Vertex> it = graph.vertices(v.id());
+            return it.hasNext() ? it.next() : v;
+        }
+
+        @Override
+        public void vertexAdded(Vertex vertex) {
+            add(resolve(vertex));
+        }
+
+        @Override
+        public void vertexRemoved(Vertex vertex) {
+            remove(resolve(vertex));
+        }
+
+        @Override
+        public void vertexPropertyChanged(Vertex element, Property oldValue, Object setValue, Object... vertexPropertyKeyValues) {
+            String key = oldValue.key();
+            if(!keys.contains(key) || !isIndexed(element))
+                return;
+
+            Vertex v = resolve(element);
+            if(oldValue.isPresent())
+                removeValue(v, key, oldValue.value());
+            addValue(v, key, setValue);
+        }
+
+        @Override
+        public void vertexPropertyRemoved(VertexProperty vertexProperty) {
+            Vertex v = vertexProperty.element();
+            if(keys.contains(vertexProperty.key()) && isIndexed(v))
+                removeValue(resolve(v), vertexProperty.key(), vertexProperty.value());
+        }
+
+        @Override
+        public void edgeAdded(Edge edge) {
+            //Edges aren't indexed
+        }
+
+        @Override
+        public void edgeRemoved(Edge edge) {
+            //Edges aren't indexed
+        }
+
+        @Override
+        public void edgePropertyChanged(Edge element, Property oldValue, Object setValue) {
+            //Edges aren't indexed
+        }
+
+        @Override
+        public void edgePropertyRemoved(Edge element, Property property) {
+            //Edges aren't indexed
+        }
+
+        @Override
+        public void vertexPropertyPropertyChanged(VertexProperty element, Property oldValue, Object setValue) {
+            //Meta-properties aren't indexed
+        }
+
+        @Override
+        public void vertexPropertyPropertyRemoved(VertexProperty element, Property property) {
+            //Meta-properties aren't indexed
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package uk.gov.nca.graph.utils;
+
+/**
+ * Options for reading a graph with {@link GraphUtils}, set with chained calls, for example
+ * <code>new ReadOptions().setClean(true).setInterner(new StringInterner())</code>.
+ * Options that aren't set keep their defaults, which read the stream as it is with a batch
+ * size of 10000.
+ *
+ * If an interner, filter or adaptive batch size is set, or streaming is set explicitly, then the
+ * graph is read with a {@link GraphStreamReader} and loaded with an {@link ElementLoader}. In this case, edges connected
+ * to vertices that aren't in the stream (or that have been filtered out) are dropped rather than
+ * creating the missing vertices.
+ */
+public class ReadOptions {
+  public static final long DEFAULT_BATCH_SIZE = 10000;
+
+  private boolean clean = false;
+  private StringInterner interner = null;
+  private ElementFilter filter = null;
+  private long batchSize = DEFAULT_BATCH_SIZE;
+  private AdaptiveBatchSize adaptiveBatchSize = null;
+  private boolean streaming = false;
+
+  /**
+   * Set whether unsupported characters should be removed from the stream as it is read.
+   * Control characters are removed, and for GraphML any invalid UTF-8 or characters not permitted
+   * in XML are also removed. Gryo is a binary format, and so will not be cleaned.
+   */
+  public ReadOptions setClean(boolean clean){
+    this.clean = clean;
+    return this;
+  }
+
+  /**
+   * Set the interner used to share labels, property keys and values between elements, reducing
+   * the memory used by in-memory graphs, or null to not intern strings
+   */
+  public ReadOptions setInterner(StringInterner interner){
+    this.interner = interner;
+    return this;
+  }
+
+  /**
+   * Set the filter applied to each vertex and edge as it is read, so that only the elements and
+   * properties it keeps are added to the graph, or null to keep everything
+   */
+  public ReadOptions setFilter(ElementFilter filter){
+    this.filter = filter;
+    return this;
+  }
+
+  /**
+   * Set how many elements to read between commits
+   */
+  public ReadOptions setBatchSize(long batchSize){
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * Set an {@link AdaptiveBatchSize} to adjust the batch size as the graph is read to suit the
+   * target graph, in place of the fixed batch size, or null to use the fixed batch size.
+   * The batch size that the load settles on is logged, and can be retrieved from the
+   * AdaptiveBatchSize afterwards.
+   */
+  public ReadOptions setAdaptiveBatchSize(AdaptiveBatchSize adaptiveBatchSize){
+    this.adaptiveBatchSize = adaptiveBatchSize;
+    return this;
+  }
+
+  /**
+   * Set whether the graph should be loaded with an {@link ElementLoader} even if no interner,
+   * filter or adaptive batch size is set, for example to compare loads with and without
+   * interning on the same code path
+   */
+  public ReadOptions setStreaming(boolean streaming){
+    this.streaming = streaming;
+    return this;
+  }
+
+  /**
+   * Returns true if the stream will be cleaned as it is read
+   */
+  public boolean isClean(){
+    return clean;
+  }
+
+  /**
+   * Get the interner, or null if strings won't be interned
+   */
+  public StringInterner getInterner(){
+    return interner;
+  }
+
+  /**
+   * Get the filter, or null if elements won't be filtered
+   */
+  public ElementFilter getFilter(){
+    return filter;
+  }
+
+  /**
+   * Get the batch size to start reading with, which is the current size of the
+   * adaptive batch size if there is one, and otherwise the fixed batch size
+   */
+  public long getBatchSize(){
+    return adaptiveBatchSize == null ? batchSize : adaptiveBatchSize.getBatchSize();
+  }
+
+  /**
+   * Get the adaptive batch size, or null if the fixed batch size will be used
+   */
+  public AdaptiveBatchSize getAdaptiveBatchSize(){
+    return adaptiveBatchSize;
+  }
+
+  /**
+   * Returns true if the graph needs to be loaded with an {@link ElementLoader}, rather than
+   * TinkerPop's readers
+   */
+  boolean isStreaming(){
+    return streaming || interner != null || filter != null || adaptiveBatchSize != null;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread safe dictionary of strings, used when loading or copying elements so that
+ * repeated labels, property keys and (optionally) property values share a single String
+ * instance rather than each element holding its own copy.
+ *
+ * Property values are only encoded for keys with a low number of distinct values (for
+ * example, nationality or gender). Once a key has more distinct values than the configured
+ * limit, its values are no longer encoded and the dictionary for that key is discarded.
+ *
+ * A new StringInterner should be used for each load, so that the dictionary can be garbage
+ * collected once the load is finished.
+ */
+public class StringInterner {
+  public static final int DEFAULT_MAX_VALUE_LENGTH = 64;
+
+  private final int maxDistinctValues;
+  private final int maxValueLength;
+
+  private final Map<String, String> strings = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, String>> values = new ConcurrentHashMap<>();
+  private final Set<String> highCardinalityKeys = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Create a new StringInterner for labels and property keys only
+   */
+  public StringInterner(){
+    this(0, 0);
+  }
+
+  /**
+   * Create a new StringInterner for labels, property keys, and the String values of keys
+   * with no more than maxDistinctValues distinct values. Values longer than maxValueLength
+   * characters are never encoded.
+   */
+  public StringInterner(int maxDistinctValues, int maxValueLength){
+    this.maxDistinctValues = maxDistinctValues;
+    this.maxValueLength = maxValueLength;
+  }
+
+  /**
+   * Return the shared instance of a label or property key
+   */
+  public String intern(String s){
+    if(s == null)
+      return null;
+
+    String existing = strings.putIfAbsent(s, s);
+    return existing == null ? s : existing;
+  }
+
+  /**
+   * Return the shared instance of a property value, or the value itself if it isn't a
+   * String (or list of Strings) or its key has too many distinct values
+   */
+  public Object internValue(String key, Object value){
+    if(maxDistinctValues <= 0)
+      return value;
+
+    if(value instanceof String){
+      return internValue(key, (String) value);
+    }else if(value instanceof List){
+      List<?> list = (List<?>) value;
+      List<Object> interned = new ArrayList<>(list.size());
+      for(Object o : list)
+        interned.add(o instanceof String ? internValue(key, (String) o) : o);
+
+      return interned;
+    }
+
+    return value;
+  }
+
+  /**
+   * Get the number of distinct labels and property keys
+   */
+  public int size(){
+    return strings.size();
+  }
+
+  /**
+   * Get the keys whose values are no longer being encoded, as they have too many distinct values
+   */
+  public Set<String> getHighCardinalityKeys(){
+    return Collections.unmodifiableSet(highCardinalityKeys);
+  }
+
+  private String internValue(String key, String value){
+    if(value.length() > maxValueLength || highCardinalityKeys.contains(key))
+      return value;
+
+    Map<String, String> dictionary = values.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    String existing = dictionary.get(value);
+    if(existing != null)
+      return existing;
+
+    if(dictionary.size() >= maxDistinctValues){
+      highCardinalityKeys.add(key);
+      values.remove(key);
+      return value;
+    }
+
+    existing = dictionary.putIfAbsent(value, value);
+    return existing == null ? value : existing;
+  }
+}
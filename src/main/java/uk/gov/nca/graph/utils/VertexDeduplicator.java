@@ -0,0 +1,204 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class for merging duplicate vertices within a graph.
+ *
+ * Vertices are considered duplicates if they have the same label, and the same
+ * normalised values for each of the blocking keys. Vertices missing any of the
+ * blocking keys are never considered duplicates.
+ *
+ * For each group of duplicates, a single vertex is kept and the properties and
+ * edges of the other vertices are merged into it before they are removed.
+ */
+public class VertexDeduplicator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VertexDeduplicator.class);
+
+  private final List<String> keys;
+  private final int batchSize;
+
+  /**
+   * Create a new VertexDeduplicator with the given blocking keys, and the default
+   * batch size of 10000
+   */
+  public VertexDeduplicator(List<String> keys){
+    this(keys, 10000);
+  }
+
+  /**
+   * Create a new VertexDeduplicator with the given blocking keys, committing
+   * after every batchSize merged vertices
+   */
+  public VertexDeduplicator(List<String> keys, int batchSize){
+    if(keys.isEmpty())
+      throw new IllegalArgumentException("At least one blocking key must be provided");
+    if(batchSize < 1)
+      throw new IllegalArgumentException("Batch size must be at least 1");
+
+    this.keys = new ArrayList<>(keys);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Find and merge duplicate vertices in the graph, returning the number of vertices removed
+   */
+  public long deduplicate(Graph graph){
+    LOGGER.info("Grouping vertices by blocking keys {}", keys);
+    long start = System.nanoTime();
+    ConcurrentMap<String, List<Object>> groups = StreamSupport.stream(Spliterators.spliteratorUnknownSize(graph.vertices(), 0), true)
+        .filter(v -> ElementUtils.hasProperty(v, keys.toArray(new String[0])))
+        .collect(Collectors.groupingByConcurrent(this::blockingKey, Collectors.mapping(Vertex::id, Collectors.toList())));
+
+    GraphUtils.getMetrics().phaseCompleted("group", System.nanoTime() - start);
+
+    LOGGER.info("Merging duplicate vertices");
+    start = System.nanoTime();
+    long removed = 0;
+    long groupCount = 0;
+
+    for(List<Object> ids : groups.values()){
+      if(ids.size() < 2)
+        continue;
+
+      groupCount++;
+
+      //Sort so that the vertex with the lowest ID survives, regardless of the order vertices
+      //were grouped in or returned by the graph
+      List<Vertex> duplicates = new ArrayList<>();
+      graph.vertices(ids.toArray()).forEachRemaining(duplicates::add);
+      duplicates.sort((a, b) -> compareIds(a.id(), b.id()));
+
+      Iterator<Vertex> vertices = duplicates.iterator();
+      Vertex survivor = vertices.next();
+      while(vertices.hasNext()){
+        merge(vertices.next(), survivor);
+        removed++;
+
+        if(removed % batchSize == 0){
+          GraphUtils.commitGraph(graph);
+          LOGGER.info("{} duplicate vertices merged", removed);
+        }
+      }
+    }
+
+    GraphUtils.commitGraph(graph);
+    GraphUtils.getMetrics().phaseCompleted("merge", System.nanoTime() - start);
+    LOGGER.info("Finished deduplicating graph - {} duplicate vertices merged from {} groups", removed, groupCount);
+
+    return removed;
+  }
+
+  private void merge(Vertex duplicate, Vertex survivor){
+    ElementUtils.copyProperties(duplicate, survivor);
+
+    duplicate.edges(Direction.OUT).forEachRemaining(e -> {
+      Vertex tgt = e.inVertex().equals(duplicate) ? survivor : e.inVertex();
+
+      Edge newE = survivor.addEdge(e.label(), tgt);
+      ElementUtils.copyProperties(e, newE);
+    });
+
+    duplicate.edges(Direction.IN).forEachRemaining(e -> {
+      //Self-loops will already have been handled as out edges
+      if(e.outVertex().equals(duplicate))
+        return;
+
+      Edge newE = e.outVertex().addEdge(e.label(), survivor);
+      ElementUtils.copyProperties(e, newE);
+    });
+
+    duplicate.remove();
+  }
+
+  /**
+   * Compare two IDs, numerically if they are both integers, by their natural order if they
+   * are of the same comparable type, and otherwise by their string representation
+   */
+  @SuppressWarnings("unchecked")
+  private static int compareIds(Object a, Object b){
+    if(isInteger(a) && isInteger(b))
+      return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+
+    if(a instanceof Comparable && a.getClass().equals(b.getClass()))
+      return ((Comparable<Object>) a).compareTo(b);
+
+    return String.valueOf(a).compareTo(String.valueOf(b));
+  }
+
+  private static boolean isInteger(Object o){
+    return o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte;
+  }
+
+  private String blockingKey(Vertex v){
+    StringBuilder sb = new StringBuilder(v.label());
+    for(String key : keys){
+      sb.append('\u0000');
+
+      Object value = ElementUtils.getProperty(v, key);
+      if(value instanceof List){
+        sb.append(((List<?>) value).stream()
+            .map(VertexDeduplicator::normalise)
+            .sorted()
+            .collect(Collectors.joining("\u0001")));
+      }else{
+        sb.append(normalise(value));
+      }
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Normalise a value for comparison, by converting it to lower case and
+   * collapsing any whitespace
+   */
+  protected static String normalise(Object value){
+    return Objects.toString(value, "").trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Return the size of each group of duplicates in the graph, without merging them
+   */
+  public List<Integer> findDuplicateGroupSizes(Graph graph){
+    Map<String, Long> counts = StreamSupport.stream(Spliterators.spliteratorUnknownSize(graph.vertices(), 0), true)
+        .filter(v -> ElementUtils.hasProperty(v, keys.toArray(new String[0])))
+        .collect(Collectors.groupingByConcurrent(this::blockingKey, Collectors.counting()));
+
+    return counts.values().stream()
+        .filter(c -> c > 1)
+        .map(Long::intValue)
+        .collect(Collectors.toList());
+  }
+}
@@ -1,17 +1,18 @@
 package uk.gov.nca.graph.utils.cli;
 
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
 import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphCleaner;
 
 public class CleanGraph {
     private static final Logger LOGGER = LoggerFactory.getLogger(CleanGraph.class);
@@ -21,22 +22,29 @@ public class CleanGraph {
 
         options.addOption(createRequiredOption("i", "input", true, "File to read dirty input from"));
         options.addOption(createRequiredOption("o", "output", true, "File to write cleaned output to"));
+        options.addOption(new Option("t", "threads", true, "The number of threads to clean the file with (defaults to the number of available processors)"));
+        options.addOption(createMetricsOption());
 
         CommandLine cmd = parseCommandLine(args, options, CleanGraph.class, "Clean a graph file of unsupported characters (e.g. control characters)");
         if(cmd == null)
             return;
-
-        try(
-                BufferedReader reader = new BufferedReader(new FileReader(cmd.getOptionValue('i')));
-                BufferedWriter writer = new BufferedWriter(new FileWriter(cmd.getOptionValue('o')))
-        ){
-            int r;
-            while ((r = reader.read()) != -1) {
-                if(clean(r))
-                    writer.write(r);
+        startMetricsReporter(cmd);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        if(cmd.hasOption('t')) {
+            try {
+                threads = Integer.parseInt(cmd.getOptionValue('t'));
+            } catch (NumberFormatException nfe) {
+                LOGGER.warn("Unable to parse number of threads. Default value of {} will be used", threads);
             }
+        }
+
+        try {
+            GraphCleaner.cleanFile(new File(cmd.getOptionValue('i')), new File(cmd.getOptionValue('o')),
+                GraphCleaner.DEFAULT_BUFFER_SIZE, threads);
         }catch (IOException ioe){
             LOGGER.error("Failed to clean file", ioe);
+            return;
         }
 
         LOGGER.info("File {} cleaned and written to {}", cmd.getOptionValue('i'), cmd.getOptionValue('o'));
@@ -47,7 +55,7 @@ public class CleanGraph {
      * Returns true if the character is not a control character
      */
     protected static boolean clean(int ch){
-        return !((ch >= 0 && ch <= 8) || (ch >= 11 && ch <= 31) || ch == 127);
+        return GraphCleaner.isClean(ch);
     }
 
 }
@@ -1,5 +1,8 @@
 package uk.gov.nca.graph.utils.cli;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -7,8 +10,18 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.ElementFilter;
+import uk.gov.nca.graph.utils.GraphUtils;
+import uk.gov.nca.graph.utils.MetricsReporter;
+import uk.gov.nca.graph.utils.StringInterner;
 
 public class CommandLineUtils {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandLineUtils.class);
+
+    private static volatile boolean metricsReporterEnabled = true;
+
     private CommandLineUtils(){}
 
     public static Option createRequiredOption(String opt, String longOpt, boolean hasArg, String description){
@@ -37,4 +50,122 @@ public class CommandLineUtils {
             "",
             true);
     }
+
+    public static Option createMetricsOption(){
+        return new Option("r", "report", true, "Log progress metrics (e.g. throughput and commit times) at this interval, in seconds");
+    }
+
+    /**
+     * Set whether {@link #startMetricsReporter(CommandLine)} should start a reporter. This should be
+     * disabled when several tools run in the same JVM (e.g. in {@link GraphDaemon}), as the reporter
+     * is shared by all graph operations.
+     */
+    public static void setMetricsReporterEnabled(boolean enabled){
+        metricsReporterEnabled = enabled;
+    }
+
+    /**
+     * If the metrics option is set, start a periodic reporter and use it for all graph operations.
+     * A summary will be logged when the JVM exits.
+     */
+    public static void startMetricsReporter(CommandLine cmd){
+        if(!cmd.hasOption('r'))
+            return;
+
+        if(!metricsReporterEnabled){
+            LOGGER.warn("Metrics reporting can't be configured for this tool, so the report option will be ignored");
+            return;
+        }
+
+        long interval = 60;
+        try {
+            interval = Long.parseLong(cmd.getOptionValue('r'));
+        } catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse report interval. Default value of {} will be used", interval);
+        }
+
+        MetricsReporter reporter = new MetricsReporter(interval, TimeUnit.SECONDS);
+        GraphUtils.setMetrics(reporter);
+        Runtime.getRuntime().addShutdownHook(new Thread(reporter::close));
+    }
+
+    public static Option createInternOption(){
+        Option o = new Option("n", "intern", true, "Share repeated labels and property keys between elements to reduce memory usage. "
+            + "If a value is given, the String values of any property with no more than that many distinct values will also be shared");
+        o.setOptionalArg(true);
+
+        return o;
+    }
+
+    /**
+     * If the intern option is set, create a new StringInterner to use for loading the graph.
+     * Otherwise, return null.
+     */
+    public static StringInterner createStringInterner(CommandLine cmd){
+        if(!cmd.hasOption('n'))
+            return null;
+
+        if(cmd.getOptionValue('n') == null)
+            return new StringInterner();
+
+        int maxDistinctValues = 0;
+        try {
+            maxDistinctValues = Integer.parseInt(cmd.getOptionValue('n'));
+        } catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse maximum number of distinct values. Property values will not be interned");
+        }
+
+        return new StringInterner(maxDistinctValues, StringInterner.DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Add options for filtering elements by label and property, and for choosing which properties to keep
+     */
+    public static void addFilterOptions(Options options){
+        options.addOption(new Option("l", "vertexlabels", true, "Comma separated list of vertex labels to keep (defaults to all labels)"));
+        options.addOption(new Option("m", "edgelabels", true, "Comma separated list of edge labels to keep (defaults to all labels)"));
+        options.addOption(new Option("x", "excludevertexlabels", true, "Comma separated list of vertex labels to remove"));
+        options.addOption(new Option("y", "excludeedgelabels", true, "Comma separated list of edge labels to remove"));
+        options.addOption(new Option("k", "keys", true, "Comma separated list of property keys to keep (defaults to all properties)"));
+
+        options.addOption(new Option("w", "where", true, "A predicate that vertices must match to be kept, e.g. age>=18, name!=Bob, name or !name (can be repeated)"));
+        options.addOption(new Option("e", "edgewhere", true, "A predicate that edges must match to be kept (can be repeated)"));
+    }
+
+    /**
+     * If any of the filter options are set, create a new ElementFilter from them. Otherwise, return null.
+     * An IllegalArgumentException is thrown if a predicate can't be parsed.
+     */
+    public static ElementFilter createElementFilter(CommandLine cmd){
+        if(!(cmd.hasOption('l') || cmd.hasOption('m') || cmd.hasOption('x') || cmd.hasOption('y')
+            || cmd.hasOption('k') || cmd.hasOption('w') || cmd.hasOption('e')))
+            return null;
+
+        ElementFilter filter = new ElementFilter();
+        if(cmd.hasOption('l'))
+            filter.setIncludedVertexLabels(splitList(cmd.getOptionValue('l')));
+        if(cmd.hasOption('m'))
+            filter.setIncludedEdgeLabels(splitList(cmd.getOptionValue('m')));
+        if(cmd.hasOption('x'))
+            filter.setExcludedVertexLabels(splitList(cmd.getOptionValue('x')));
+        if(cmd.hasOption('y'))
+            filter.setExcludedEdgeLabels(splitList(cmd.getOptionValue('y')));
+        if(cmd.hasOption('k'))
+            filter.setPropertyKeys(splitList(cmd.getOptionValue('k')));
+
+        if(cmd.hasOption('w')) {
+            for (String predicate : cmd.getOptionValues('w'))
+                filter.addVertexPredicate(predicate);
+        }
+        if(cmd.hasOption('e')) {
+            for (String predicate : cmd.getOptionValues('e'))
+                filter.addEdgePredicate(predicate);
+        }
+
+        return filter;
+    }
+
+    private static List<String> splitList(String s){
+        return Arrays.asList(s.split("\\s*,\\s*"));
+    }
 }
@@ -1,15 +1,24 @@
 package uk.gov.nca.graph.utils.cli;
 
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.addFilterOptions;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createElementFilter;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createInternOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createStringInterner;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
 
 import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.ElementFilter;
 import uk.gov.nca.graph.utils.GraphUtils;
+import uk.gov.nca.graph.utils.ReadOptions;
 
 public class ConvertGraph {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConvertGraph.class);
@@ -21,16 +30,30 @@ public class ConvertGraph {
         options.addOption(createRequiredOption("f", "inputformat", true, "The format of the input file, either GraphML, GraphSON or Gryo"));
         options.addOption(createRequiredOption("o", "output", true, "The output file to save the graph to"));
         options.addOption(createRequiredOption("g", "outputformat", true, "The format of the output file, either GraphML, GraphSON or Gryo"));
+        options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+        addFilterOptions(options);
+        options.addOption(createInternOption());
+        options.addOption(createMetricsOption());
 
         CommandLine cmd = parseCommandLine(args, options, ConvertGraph.class, "Convert a graph file between formats");
         if(cmd == null)
             return;
+        startMetricsReporter(cmd);
+
+        ElementFilter filter;
+        try {
+            filter = createElementFilter(cmd);
+        } catch (IllegalArgumentException iae) {
+            LOGGER.error("Unable to parse filter", iae);
+            return;
+        }
 
         LOGGER.info("Creating in memory graph");
         Graph graph = TinkerGraph.open();
 
-        GraphUtils.readGraphFile(cmd.getOptionValue('i'), cmd.getOptionValue('f'), graph);
-        GraphUtils.writeGraphFile(cmd.getOptionValue('o'), cmd.getOptionValue('f'), graph);
+        GraphUtils.readGraphFile(cmd.getOptionValue('i'), cmd.getOptionValue('f'), graph,
+            new ReadOptions().setClean(cmd.hasOption('c')).setInterner(createStringInterner(cmd)).setFilter(filter));
+        GraphUtils.writeGraphFile(cmd.getOptionValue('o'), cmd.getOptionValue('g'), graph);
 
         GraphUtils.closeGraph(graph);
     }
@@ -0,0 +1,67 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.util.Arrays;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphUtils;
+import uk.gov.nca.graph.utils.ReadOptions;
+import uk.gov.nca.graph.utils.VertexDeduplicator;
+
+public class DeduplicateGraph {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicateGraph.class);
+
+    public static void main(String[] args){
+        Options options = new Options();
+
+        options.addOption(createRequiredOption("i", "input", true, "The input file to read the graph from"));
+        options.addOption(createRequiredOption("f", "inputformat", true, "The format of the input file, either GraphML, GraphSON or Gryo"));
+        options.addOption(createRequiredOption("o", "output", true, "The output file to save the deduplicated graph to"));
+        options.addOption(createRequiredOption("g", "outputformat", true, "The format of the output file, either GraphML, GraphSON or Gryo"));
+        options.addOption(createRequiredOption("k", "keys", true, "Comma separated list of property keys which, along with the label, identify duplicate vertices"));
+        options.addOption(new Option("b", "batchsize", true, "The number of vertices to merge before committing"));
+        options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+        options.addOption(createMetricsOption());
+
+        CommandLine cmd = parseCommandLine(args, options, DeduplicateGraph.class, "Merge duplicate vertices within a graph");
+        if(cmd == null)
+            return;
+        startMetricsReporter(cmd);
+
+        int batchSize = 10000;
+        if(cmd.hasOption('b')) {
+            try {
+                batchSize = Integer.parseInt(cmd.getOptionValue('b'));
+            } catch (NumberFormatException nfe) {
+                LOGGER.warn("Unable to parse batch size. Default value of {} will be used", batchSize);
+            }
+
+            if(batchSize < 1) {
+                batchSize = 10000;
+                LOGGER.warn("Batch size must be at least 1. Default value of {} will be used", batchSize);
+            }
+        }
+
+        LOGGER.info("Creating in memory graph");
+        Graph graph = TinkerGraph.open();
+
+        GraphUtils.readGraphFile(cmd.getOptionValue('i'), cmd.getOptionValue('f'), graph, new ReadOptions().setClean(cmd.hasOption('c')));
+
+        VertexDeduplicator vd = new VertexDeduplicator(Arrays.asList(cmd.getOptionValue('k').split("\\s*,\\s*")), batchSize);
+        long removed = vd.deduplicate(graph);
+        LOGGER.info("{} duplicate vertices removed", removed);
+
+        GraphUtils.writeGraphFile(cmd.getOptionValue('o'), cmd.getOptionValue('g'), graph);
+
+        GraphUtils.closeGraph(graph);
+    }
+}
@@ -0,0 +1,82 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphDiff;
+
+public class DiffGraph {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DiffGraph.class);
+
+  public static void main(String[] args){
+    Options options = new Options();
+
+    options.addOption(createRequiredOption("i", "input", true, "The first file to read the graph from"));
+    options.addOption(createRequiredOption("f", "inputformat", true, "The format of the first file, either GraphML, GraphSON or Gryo"));
+    options.addOption(createRequiredOption("j", "compare", true, "The second file to read the graph from, which will be compared to the first"));
+    options.addOption(new Option("k", "compareformat", true, "The format of the second file, either GraphML, GraphSON or Gryo (defaults to the format of the first file)"));
+    options.addOption(new Option("o", "output", true, "The file to save the differences to (if not set, differences will be printed)"));
+    options.addOption(new Option("p", "properties", true, "Comma separated list of property keys to identify elements by, instead of their IDs"));
+    options.addOption(new Option("s", "partitions", true, "The number of partitions to split the graphs into whilst comparing (defaults to 64)"));
+    options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input files as they are read"));
+    options.addOption(createMetricsOption());
+
+    CommandLine cmd = parseCommandLine(args, options, DiffGraph.class, "Report the vertices and edges added, removed or changed between two graph files");
+    if(cmd == null)
+      return;
+    startMetricsReporter(cmd);
+
+    int partitions = 64;
+    if(cmd.hasOption('s')) {
+      try {
+        partitions = Integer.parseInt(cmd.getOptionValue('s'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse number of partitions. Default value of {} will be used", partitions);
+      }
+    }
+
+    GraphDiff diff = new GraphDiff(partitions);
+    diff.setClean(cmd.hasOption('c'));
+    if(cmd.hasOption('p'))
+      diff.setKeyProperties(Arrays.asList(cmd.getOptionValue('p').split("\\s*,\\s*")));
+
+    String format = cmd.getOptionValue('f');
+    String compareFormat = cmd.getOptionValue('k', format);
+
+    File left = new File(cmd.getOptionValue('i'));
+    File right = new File(cmd.getOptionValue('j'));
+
+    if(cmd.hasOption('o')) {
+      try (Writer report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(cmd.getOptionValue('o')), StandardCharsets.UTF_8))) {
+        if (diff.diff(left, format, right, compareFormat, report))
+          LOGGER.info("Differences written to {}", cmd.getOptionValue('o'));
+      } catch (IOException ioe) {
+        LOGGER.error("Unable to write differences", ioe);
+      }
+    }else{
+      //Flush rather than close the writer, so that System.out remains open
+      Writer report = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+      try {
+        diff.diff(left, format, right, compareFormat, report);
+        report.flush();
+      } catch (IOException ioe) {
+        LOGGER.error("Unable to write differences", ioe);
+      }
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package uk.gov.nca.graph.utils.cli;
 
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
@@ -20,10 +22,12 @@ public class ExportGraph {
         options.addOption(createRequiredOption("c", "inputconfiguration", true, "Configuration file to connect to Gremlin graph"));
         options.addOption(createRequiredOption("o", "output", true, "The output file to save the graph to"));
         options.addOption(createRequiredOption("g", "outputformat", true, "The format of the output file, either GraphML, GraphSON or Gryo"));
+        options.addOption(createMetricsOption());
 
         CommandLine cmd = parseCommandLine(args, options, ExportGraph.class, "Export from a Gremlin graph into a file format (e.g. GraphML)");
         if(cmd == null)
             return;
+        startMetricsReporter(cmd);
 
         LOGGER.info("Connecting to Gremlin graph");
         Graph graph = GraphFactory.open(cmd.getOptionValue('i'));
@@ -0,0 +1,77 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.io.File;
+import java.util.Arrays;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphGenerator;
+
+public class GenerateGraph {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenerateGraph.class);
+
+    public static void main(String[] args){
+        Options options = new Options();
+
+        options.addOption(createRequiredOption("o", "output", true, "The output file to save the graph to"));
+        options.addOption(createRequiredOption("g", "outputformat", true, "The format of the output file, either GraphML, GraphSON or Gryo"));
+        options.addOption(createRequiredOption("n", "vertices", true, "The number of vertices to generate"));
+        options.addOption(new Option("d", "degree", true, "The average degree of each vertex (defaults to 4)"));
+        options.addOption(new Option("s", "seed", true, "The seed for the random number generator (defaults to 0)"));
+        options.addOption(new Option("G", "giant", true, "The fraction of vertices, between 0 and 1, in a single giant component (defaults to 0)"));
+        options.addOption(new Option("e", "exponent", true, "The exponent of the power law that component sizes are drawn from (defaults to 2.5)"));
+        options.addOption(new Option("c", "maxcomponent", true, "The maximum number of vertices in each non-giant component (defaults to no limit)"));
+        options.addOption(new Option("x", "shardsize", true, "The number of vertices generated in each shard; changing this changes the graph (defaults to 100000)"));
+        options.addOption(new Option("l", "vertexlabels", true, "Comma separated list of vertex labels"));
+        options.addOption(new Option("m", "edgelabels", true, "Comma separated list of edge labels"));
+        options.addOption(new Option("p", "properties", true, "The number of properties on each vertex (defaults to 3)"));
+        options.addOption(new Option("t", "threads", true, "The number of threads to generate the graph with (defaults to the number of available processors)"));
+        options.addOption(createMetricsOption());
+
+        CommandLine cmd = parseCommandLine(args, options, GenerateGraph.class, "Generate a synthetic graph for testing");
+        if(cmd == null)
+            return;
+        startMetricsReporter(cmd);
+
+        GraphGenerator generator;
+        try {
+            generator = new GraphGenerator(Long.parseLong(cmd.getOptionValue('n')),
+                Double.parseDouble(cmd.getOptionValue('d', "4")),
+                Long.parseLong(cmd.getOptionValue('s', "0")));
+
+            if(cmd.hasOption('G'))
+                generator.setGiantComponentFraction(Double.parseDouble(cmd.getOptionValue('G')));
+            if(cmd.hasOption('e'))
+                generator.setComponentSizeExponent(Double.parseDouble(cmd.getOptionValue('e')));
+            if(cmd.hasOption('c'))
+                generator.setMaxComponentSize(Long.parseLong(cmd.getOptionValue('c')));
+            if(cmd.hasOption('x'))
+                generator.setShardSize(Integer.parseInt(cmd.getOptionValue('x')));
+            if(cmd.hasOption('p'))
+                generator.setProperties(Integer.parseInt(cmd.getOptionValue('p')), 3);
+            if(cmd.hasOption('t'))
+                generator.setThreads(Integer.parseInt(cmd.getOptionValue('t')));
+        }catch (IllegalArgumentException iae){
+            LOGGER.error("Invalid generator configuration: {}", iae.getMessage());
+            return;
+        }
+
+        if(cmd.hasOption('l'))
+            generator.setVertexLabels(Arrays.asList(cmd.getOptionValue('l').split("\\s*,\\s*")));
+        if(cmd.hasOption('m'))
+            generator.setEdgeLabels(Arrays.asList(cmd.getOptionValue('m').split("\\s*,\\s*")));
+
+        if(generator.generate(new File(cmd.getOptionValue('o')), cmd.getOptionValue('g'))){
+            LOGGER.info("Graph generated and written to {}", cmd.getOptionValue('o'));
+        }else{
+            LOGGER.error("Unable to generate graph");
+        }
+    }
+}
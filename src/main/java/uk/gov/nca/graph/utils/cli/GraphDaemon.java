@@ -0,0 +1,288 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.io.BufferedReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphCache;
+import uk.gov.nca.graph.utils.GraphUtils;
+
+/**
+ * Long running process that accepts the other command line tools as requests over a local
+ * socket, so that repeated requests don't pay the cost of starting a new JVM, and graph files
+ * that have been read recently are served from a {@link GraphCache} rather than read again.
+ *
+ * Each request is the name of a tool (e.g. ConvertGraph) followed by its arguments, one per line,
+ * and terminated by an empty line. The output of the tool is written back, followed by a final
+ * line of EXIT 0 if the tool ran, or EXIT 1 if it failed. The requests STATUS and SHUTDOWN report
+ * on the cache and stop the daemon respectively. Requests are run concurrently, up to the configured
+ * number of threads, and only connections from the local machine are accepted.
+ */
+public class GraphDaemon {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphDaemon.class);
+
+  public static final int DEFAULT_PORT = 7438;
+
+  private static final List<String> EXCLUDED_TOOLS = Arrays.asList(
+      GraphDaemon.class.getSimpleName(), GraphDaemonClient.class.getSimpleName(), CommandLineUtils.class.getSimpleName());
+
+  private static final ThreadLocal<OutputStream> REQUEST_OUTPUT = new ThreadLocal<>();
+
+  private static volatile ServerSocket serverSocket;
+
+  public static void main(String[] args){
+    Options options = new Options();
+
+    options.addOption(new Option("p", "port", true, "The port to listen on (defaults to " + DEFAULT_PORT + ")"));
+    options.addOption(new Option("t", "threads", true, "The maximum number of requests to run at once (defaults to the number of available processors)"));
+    options.addOption(new Option("m", "maxelements", true, "The maximum number of vertices and edges to hold in the cache of recently read graphs (defaults to 10000000)"));
+    options.addOption(new Option("s", "maxfilesize", true, "The maximum size of graph file to cache, in megabytes (defaults to " + (GraphCache.DEFAULT_MAX_FILE_SIZE / (1024 * 1024)) + ")"));
+    options.addOption(createMetricsOption());
+
+    CommandLine cmd = parseCommandLine(args, options, GraphDaemon.class, "Run the command line tools as requests to a long running process, caching recently read graphs");
+    if(cmd == null)
+      return;
+    startMetricsReporter(cmd);
+
+    //Requests share this process, so shouldn't replace the daemon's reporter or add shutdown hooks of their own
+    CommandLineUtils.setMetricsReporterEnabled(false);
+
+    int port = DEFAULT_PORT;
+    if(cmd.hasOption('p')) {
+      try {
+        port = Integer.parseInt(cmd.getOptionValue('p'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse port. Default value of {} will be used", port);
+      }
+    }
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    if(cmd.hasOption('t')) {
+      try {
+        threads = Integer.parseInt(cmd.getOptionValue('t'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse number of threads. Default value of {} will be used", threads);
+      }
+    }
+
+    long maxElements = 10000000L;
+    if(cmd.hasOption('m')) {
+      try {
+        maxElements = Long.parseLong(cmd.getOptionValue('m'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse maximum number of elements. Default value of {} will be used", maxElements);
+      }
+    }
+
+    long maxFileSize = GraphCache.DEFAULT_MAX_FILE_SIZE;
+    if(cmd.hasOption('s')) {
+      try {
+        maxFileSize = Long.parseLong(cmd.getOptionValue('s')) * 1024 * 1024;
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse maximum file size. Default value of {} bytes will be used", maxFileSize);
+      }
+    }
+
+    GraphCache cache = new GraphCache(maxElements, maxFileSize);
+    GraphUtils.setGraphCache(cache);
+
+    //Send anything a tool prints (including log messages on the same thread) back to the client,
+    //without letting a tool that closes System.out or System.err close them for later requests
+    try {
+      System.setOut(new NonClosingPrintStream(new RequestOutputStream(System.out)));
+      System.setErr(new NonClosingPrintStream(new RequestOutputStream(System.err)));
+    }catch (UnsupportedEncodingException uee){
+      LOGGER.error("Unable to redirect output", uee);
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try(ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())){
+      serverSocket = server;
+      LOGGER.info("Listening on port {}", port);
+
+      while(!server.isClosed()){
+        Socket socket;
+        try {
+          socket = server.accept();
+        }catch (SocketException se){
+          //Server socket was closed by a SHUTDOWN request
+          break;
+        }
+
+        executor.submit(() -> handle(socket, cache));
+      }
+    }catch (IOException ioe){
+      LOGGER.error("Unable to listen on port {}", port, ioe);
+    }finally{
+      executor.shutdown();
+      try {
+        executor.awaitTermination(1, TimeUnit.HOURS);
+      }catch (InterruptedException ie){
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    LOGGER.info("Daemon stopped");
+  }
+
+  private static void handle(Socket socket, GraphCache cache){
+    try(Socket s = socket;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(s.getOutputStream(), true, "UTF-8")){
+
+      List<String> request = new ArrayList<>();
+      String line;
+      while((line = reader.readLine()) != null && !line.isEmpty())
+        request.add(line);
+
+      if(request.isEmpty()){
+        out.println("EXIT 1 No command given");
+        return;
+      }
+
+      String tool = request.get(0);
+      String[] toolArgs = request.subList(1, request.size()).toArray(new String[0]);
+
+      if("STATUS".equals(tool)){
+        out.println("Cached graphs: " + cache.size());
+        out.println("Cached elements: " + cache.getCachedElements());
+        out.println("Cache hits: " + cache.getHits());
+        out.println("Cache misses: " + cache.getMisses());
+        cache.getKeys().forEach(out::println);
+        out.println("EXIT 0");
+        return;
+      }else if("SHUTDOWN".equals(tool)){
+        LOGGER.info("Shutdown requested");
+        out.println("EXIT 0");
+        serverSocket.close();
+        return;
+      }
+
+      LOGGER.info("Running {} {}", tool, String.join(" ", toolArgs));
+      long start = System.nanoTime();
+
+      REQUEST_OUTPUT.set(new NonClosingOutputStream(out));
+      try {
+        findTool(tool).invoke(null, (Object) toolArgs);
+
+        System.out.flush();
+        System.err.flush();
+        out.println("EXIT 0");
+      }catch (InvocationTargetException ite){
+        LOGGER.error("{} failed", tool, ite.getCause());
+        out.println("EXIT 1 " + ite.getCause());
+      }catch (IllegalArgumentException | ReflectiveOperationException e){
+        out.println("EXIT 1 Unrecognised tool " + tool);
+      }finally {
+        REQUEST_OUTPUT.remove();
+      }
+
+      LOGGER.info("Finished {} in {} ms", tool, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }catch (IOException ioe){
+      LOGGER.error("Unable to handle request", ioe);
+    }
+  }
+
+  private static Method findTool(String tool) throws ReflectiveOperationException {
+    if(EXCLUDED_TOOLS.contains(tool) || !tool.matches("[A-Za-z]+"))
+      throw new IllegalArgumentException("Unrecognised tool " + tool);
+
+    Method main = Class.forName(GraphDaemon.class.getPackage().getName() + "." + tool).getMethod("main", String[].class);
+    if(!Modifier.isStatic(main.getModifiers()))
+      throw new IllegalArgumentException("Unrecognised tool " + tool);
+
+    return main;
+  }
+
+  /**
+   * Writes to the output of the request being handled by the current thread, if there is one,
+   * and otherwise to the default output
+   */
+  private static class RequestOutputStream extends OutputStream {
+    private final OutputStream defaultOutput;
+
+    private RequestOutputStream(OutputStream defaultOutput){
+      this.defaultOutput = defaultOutput;
+    }
+
+    private OutputStream target(){
+      OutputStream os = REQUEST_OUTPUT.get();
+      return os == null ? defaultOutput : os;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      target().flush();
+    }
+  }
+
+  /**
+   * Replacement for System.out and System.err, which can't be closed by the tools
+   */
+  private static class NonClosingPrintStream extends PrintStream {
+    private NonClosingPrintStream(OutputStream out) throws UnsupportedEncodingException {
+      super(out, true, "UTF-8");
+    }
+
+    @Override
+    public void close() {
+      flush();
+    }
+  }
+
+  /**
+   * Prevents tools that close System.out from closing the connection before the response is complete
+   */
+  private static class NonClosingOutputStream extends FilterOutputStream {
+    private NonClosingOutputStream(OutputStream out){
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package uk.gov.nca.graph.utils.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a request to a running {@link GraphDaemon}, printing the output of the request and
+ * exiting with a non-zero status if it failed. For example:
+ *
+ * <pre>GraphDaemonClient -p 7438 ConvertGraph -i input.graphml -f graphml -o output.json -g graphson</pre>
+ */
+public class GraphDaemonClient {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GraphDaemonClient.class);
+
+  public static void main(String[] args){
+    Options options = new Options();
+    options.addOption(new Option("p", "port", true, "The port the daemon is listening on (defaults to " + GraphDaemon.DEFAULT_PORT + ")"));
+
+    CommandLine cmd;
+    try {
+      //Stop at the tool name, so that the tool's own options are passed through
+      cmd = new DefaultParser().parse(options, args, true);
+    } catch (ParseException e) {
+      cmd = null;
+    }
+
+    if(cmd == null || cmd.getArgs().length == 0){
+      CommandLineUtils.printHelp(GraphDaemonClient.class.getName() + " [options] <tool> [tool options]",
+          "Send a request (a tool and its options, or STATUS or SHUTDOWN) to a running GraphDaemon", options);
+      return;
+    }
+
+    int port = GraphDaemon.DEFAULT_PORT;
+    if(cmd.hasOption('p')) {
+      try {
+        port = Integer.parseInt(cmd.getOptionValue('p'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse port. Default value of {} will be used", port);
+      }
+    }
+
+    int status = 1;
+    try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        PrintStream out = new PrintStream(socket.getOutputStream(), true, "UTF-8");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))){
+
+      for(String arg : cmd.getArgs())
+        out.println(arg);
+      out.println();
+
+      String line;
+      while((line = reader.readLine()) != null){
+        if(line.startsWith("EXIT ")){
+          status = line.startsWith("EXIT 0") ? 0 : 1;
+          if(status != 0)
+            LOGGER.error("Request failed: {}", line.substring(5));
+          break;
+        }
+
+        System.out.println(line);
+      }
+    }catch (IOException ioe){
+      LOGGER.error("Unable to send request to daemon on port {}", port, ioe);
+    }
+
+    System.exit(status);
+  }
+}
@@ -1,15 +1,20 @@
 package uk.gov.nca.graph.utils.cli;
 
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
 
 import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.util.GraphFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.AdaptiveBatchSize;
 import uk.gov.nca.graph.utils.GraphUtils;
+import uk.gov.nca.graph.utils.ReadOptions;
 
 public class ImportGraph {
     private static final Logger LOGGER = LoggerFactory.getLogger(ImportGraph.class);
@@ -20,15 +25,43 @@ public class ImportGraph {
         options.addOption(createRequiredOption("d", "outputconfiguration", true, "Configuration file to connect to Gremlin graph"));
         options.addOption(createRequiredOption("i", "input", true, "The input file to read the graph from"));
         options.addOption(createRequiredOption("f", "inputformat", true, "The format of the input file, either GraphML, GraphSON or Gryo"));
+        options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+        options.addOption(new Option("a", "adaptive", true, "Adjust the number of elements committed at a time to suit the graph, between the given minimum and maximum (e.g. 1000,100000)"));
+        options.addOption(createMetricsOption());
 
         CommandLine cmd = parseCommandLine(args, options, ImportGraph.class, "Import to a Gremlin graph from a file");
         if(cmd == null)
             return;
+        startMetricsReporter(cmd);
+
+        AdaptiveBatchSize batchSize = null;
+        if(cmd.hasOption('a')){
+            long min = 1000;
+            long max = 100000;
+            try {
+                String[] bounds = cmd.getOptionValue('a').split("\\s*,\\s*");
+                long parsedMin = Long.parseLong(bounds[0]);
+                long parsedMax = Long.parseLong(bounds[1]);
+
+                min = parsedMin;
+                max = parsedMax;
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                LOGGER.warn("Unable to parse adaptive batch size bounds. Default values of {},{} will be used", min, max);
+            }
+
+            try {
+                batchSize = new AdaptiveBatchSize(min, max);
+            } catch (IllegalArgumentException iae) {
+                LOGGER.error("Invalid adaptive batch size bounds", iae);
+                return;
+            }
+        }
 
         LOGGER.info("Connecting to Gremlin graph");
-        Graph graph = GraphFactory.open(cmd.getOptionValue('o'));
+        Graph graph = GraphFactory.open(cmd.getOptionValue('d'));
 
-        GraphUtils.readGraphFile(cmd.getOptionValue('i'), cmd.getOptionValue('f'), graph);
+        GraphUtils.readGraphFile(cmd.getOptionValue('i'), cmd.getOptionValue('f'), graph,
+            new ReadOptions().setClean(cmd.hasOption('c')).setAdaptiveBatchSize(batchSize));
 
         GraphUtils.closeGraph(graph);
     }
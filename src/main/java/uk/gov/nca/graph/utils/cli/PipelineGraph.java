@@ -0,0 +1,96 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.addFilterOptions;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createElementFilter;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createInternOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createStringInterner;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.io.File;
+import java.util.List;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.ElementFilter;
+import uk.gov.nca.graph.utils.GraphPipeline;
+import uk.gov.nca.graph.utils.GraphSplitter;
+
+public class PipelineGraph {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PipelineGraph.class);
+
+  public static void main(String[] args){
+    Options options = new Options();
+
+    options.addOption(createRequiredOption("i", "input", true, "The input file to read the graph from"));
+    options.addOption(createRequiredOption("f", "inputformat", true, "The format of the input file, either GraphML, GraphSON or Gryo"));
+    options.addOption(createRequiredOption("o", "output", true, "The output file to save the graph to, or the output directory if splitting the graph"));
+    options.addOption(createRequiredOption("g", "outputformat", true, "The format of the output file, either GraphML, GraphSON or Gryo"));
+    options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+    options.addOption(new Option("s", "split", false, "Split the graph into multiple components"));
+    options.addOption(new Option("t", "threshold", true, "The minimum number of vertices a component should have before outputting when splitting (if under this, components will be aggregated)"));
+    options.addOption(new Option("q", "queuesize", true, "The maximum number of batches held between each stage of the pipeline"));
+    options.addOption(createInternOption());
+    addFilterOptions(options);
+    options.addOption(createMetricsOption());
+
+    CommandLine cmd = parseCommandLine(args, options, PipelineGraph.class, "Clean, filter, convert and split a graph in a single pass");
+    if(cmd == null)
+      return;
+    startMetricsReporter(cmd);
+
+    ElementFilter filter;
+    try {
+      filter = createElementFilter(cmd);
+    } catch (IllegalArgumentException iae) {
+      LOGGER.error("Unable to parse filter", iae);
+      return;
+    }
+
+    File inputFile = new File(cmd.getOptionValue('i'));
+
+    GraphPipeline pipeline = new GraphPipeline(inputFile, cmd.getOptionValue('f'));
+    pipeline.setClean(cmd.hasOption('c'));
+    pipeline.setStringInterner(createStringInterner(cmd));
+    pipeline.setElementFilter(filter);
+
+    if(cmd.hasOption('q')) {
+      try {
+        pipeline.setQueueSize(Integer.parseInt(cmd.getOptionValue('q')));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse queue size. Default value will be used");
+      }
+    }
+
+    if(cmd.hasOption('s')){
+      int threshold = 1000;
+      if(cmd.hasOption('t')) {
+        try {
+          threshold = Integer.parseInt(cmd.getOptionValue('t'));
+        } catch (NumberFormatException nfe) {
+          LOGGER.warn("Unable to parse threshold value. Default value of {} will be used", threshold);
+        }
+      }
+
+      String prefix = inputFile.getName().replaceFirst("[.][^.]+$", "");  //Replace everything after the last dot (i.e. remove extension)
+
+      GraphSplitter gs = new GraphSplitter(new File(cmd.getOptionValue('o')), prefix, cmd.getOptionValue('g'), threshold);
+      List<File> files = pipeline.split(gs);
+
+      if(!files.isEmpty()) {
+        LOGGER.info("Graph split into {} components, and saved to the following files", files.size());
+        files.forEach(f -> LOGGER.info(f.getAbsolutePath()));
+      }
+    }else{
+      if(pipeline.convert(new File(cmd.getOptionValue('o')), cmd.getOptionValue('g'))){
+        LOGGER.info("Graph written to {}", cmd.getOptionValue('o'));
+      }else{
+        LOGGER.error("Unable to process graph");
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphStatistics;
+
+public class ProfileGraph {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProfileGraph.class);
+
+  public static void main(String[] args){
+    Options options = new Options();
+
+    options.addOption(createRequiredOption("i", "input", true, "The input file to read the graph from"));
+    options.addOption(createRequiredOption("f", "inputformat", true, "The format of the input file, either GraphML, GraphSON or Gryo"));
+    options.addOption(new Option("o", "output", true, "The file to save the statistics to as JSON (if not set, statistics will be printed)"));
+    options.addOption(new Option("n", "supernodes", true, "The number of highest degree vertices to report (defaults to 10)"));
+    options.addOption(new Option("t", "threads", true, "The number of threads to parse GraphSON with (defaults to the number of available processors)"));
+    options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+    options.addOption(createMetricsOption());
+
+    CommandLine cmd = parseCommandLine(args, options, ProfileGraph.class, "Compute statistics for a graph file without loading it into memory");
+    if(cmd == null)
+      return;
+    startMetricsReporter(cmd);
+
+    int supernodes = 10;
+    if(cmd.hasOption('n')) {
+      try {
+        supernodes = Integer.parseInt(cmd.getOptionValue('n'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse number of supernodes. Default value of {} will be used", supernodes);
+      }
+    }
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    if(cmd.hasOption('t')) {
+      try {
+        threads = Integer.parseInt(cmd.getOptionValue('t'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse number of threads. Default value of {} will be used", threads);
+      }
+    }
+
+    GraphStatistics stats = GraphStatistics.compute(new File(cmd.getOptionValue('i')), cmd.getOptionValue('f'), cmd.hasOption('c'), threads, supernodes);
+    if(stats == null)
+      return;
+
+    if(cmd.hasOption('o')){
+      try {
+        Files.write(new File(cmd.getOptionValue('o')).toPath(), stats.toJson().getBytes(StandardCharsets.UTF_8));
+        LOGGER.info("Statistics written to {}", cmd.getOptionValue('o'));
+      }catch (IOException ioe){
+        LOGGER.error("Unable to write statistics to disk", ioe);
+      }
+    }else{
+      System.out.println(stats.toJson());
+    }
+
+    stats.close();
+  }
+}
@@ -0,0 +1,110 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Set;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphSampler;
+import uk.gov.nca.graph.utils.GraphUtils;
+
+public class SampleGraph {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SampleGraph.class);
+
+  public static void main(String[] args){
+    Options options = new Options();
+
+    options.addOption(createRequiredOption("i", "input", true, "The input file to read the graph from"));
+    options.addOption(createRequiredOption("f", "inputformat", true, "The format of the input file, either GraphML, GraphSON or Gryo"));
+    options.addOption(createRequiredOption("o", "output", true, "The output file to save the sampled graph to"));
+    options.addOption(createRequiredOption("g", "outputformat", true, "The format of the output file, either GraphML, GraphSON or Gryo"));
+    options.addOption(new Option("m", "method", true, "The sampling method, either reservoir, forestfire or snowball (defaults to reservoir)"));
+    options.addOption(new Option("n", "vertices", true, "The number of vertices to sample, or for snowball sampling the maximum number (defaults to 1000)"));
+    options.addOption(new Option("p", "probability", true, "The probability of a fire spreading along each edge for forest fire sampling (defaults to 0.5)"));
+    options.addOption(new Option("s", "seeds", true, "Comma separated list of vertex IDs to start snowball sampling from"));
+    options.addOption(new Option("k", "hops", true, "The number of hops from the seed vertices for snowball sampling (defaults to 2)"));
+    options.addOption(new Option("x", "seed", true, "The seed for the random number generator, so that samples can be reproduced (defaults to 0)"));
+    options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+    options.addOption(createMetricsOption());
+
+    CommandLine cmd = parseCommandLine(args, options, SampleGraph.class, "Sample a graph file and save the subgraph induced by the sampled vertices");
+    if(cmd == null)
+      return;
+    startMetricsReporter(cmd);
+
+    int vertices = 1000;
+    if(cmd.hasOption('n')) {
+      try {
+        vertices = Integer.parseInt(cmd.getOptionValue('n'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse number of vertices. Default value of {} will be used", vertices);
+      }
+    }
+
+    double probability = 0.5;
+    if(cmd.hasOption('p')) {
+      try {
+        probability = Double.parseDouble(cmd.getOptionValue('p'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse probability. Default value of {} will be used", probability);
+      }
+    }
+
+    int hops = 2;
+    if(cmd.hasOption('k')) {
+      try {
+        hops = Integer.parseInt(cmd.getOptionValue('k'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse number of hops. Default value of {} will be used", hops);
+      }
+    }
+
+    GraphSampler sampler = new GraphSampler(new File(cmd.getOptionValue('i')), cmd.getOptionValue('f'));
+    sampler.setClean(cmd.hasOption('c'));
+    if(cmd.hasOption('x')) {
+      try {
+        sampler.setSeed(Long.parseLong(cmd.getOptionValue('x')));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse seed. Default value will be used");
+      }
+    }
+
+    String method = cmd.getOptionValue('m', "reservoir");
+    Set<String> sample;
+    if("reservoir".equalsIgnoreCase(method)){
+      sample = sampler.reservoirSample(vertices);
+    }else if("forestfire".equalsIgnoreCase(method)){
+      sample = sampler.forestFireSample(vertices, probability);
+    }else if("snowball".equalsIgnoreCase(method)){
+      if(!cmd.hasOption('s')){
+        LOGGER.error("Seed vertices must be provided for snowball sampling");
+        return;
+      }
+      sample = sampler.snowballSample(Arrays.asList(cmd.getOptionValue('s').split("\\s*,\\s*")), hops, vertices);
+    }else{
+      LOGGER.error("Unrecognised sampling method {}", method);
+      return;
+    }
+
+    if(sample == null)
+      return;
+
+    LOGGER.info("Sampled {} vertices", sample.size());
+
+    Graph graph = TinkerGraph.open();
+    if(sampler.extract(sample, graph))
+      GraphUtils.writeGraphFile(cmd.getOptionValue('o'), cmd.getOptionValue('g'), graph);
+
+    GraphUtils.closeGraph(graph);
+  }
+}
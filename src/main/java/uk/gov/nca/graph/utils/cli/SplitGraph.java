@@ -1,9 +1,14 @@
 package uk.gov.nca.graph.utils.cli;
 
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createInternOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createStringInterner;
 import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
 
 import java.io.File;
+import java.io.UncheckedIOException;
 import java.util.List;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
@@ -14,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.nca.graph.utils.GraphSplitter;
 import uk.gov.nca.graph.utils.GraphUtils;
+import uk.gov.nca.graph.utils.ReadOptions;
 
 public class SplitGraph {
   private static final Logger LOGGER = LoggerFactory.getLogger(SplitGraph.class);
@@ -26,10 +32,14 @@ public class SplitGraph {
     options.addOption(createRequiredOption("o", "output", true, "The output directory to save the graph splits to"));
     options.addOption(createRequiredOption("g", "outputformat", true, "The format of the output file, either GraphML, GraphSON or Gryo"));
     options.addOption(new Option("t", "threshold", true, "The minimum number of vertices a component should have before outputting (if under this, components will be aggregated)"));
+    options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+    options.addOption(createInternOption());
+    options.addOption(createMetricsOption());
 
     CommandLine cmd = parseCommandLine(args, options, SplitGraph.class, "Split a graph into multiple components");
     if(cmd == null)
       return;
+    startMetricsReporter(cmd);
 
     LOGGER.info("Creating in memory graph");
     Graph graph = TinkerGraph.open();
@@ -37,7 +47,8 @@ public class SplitGraph {
     File inputFile = new File(cmd.getOptionValue('i'));
     String prefix = inputFile.getName().replaceFirst("[.][^.]+$", "");  //Replace everything after the last dot (i.e. remove extension)
 
-    GraphUtils.readGraphFile(inputFile, cmd.getOptionValue('f'), graph);
+    GraphUtils.readGraphFile(inputFile, cmd.getOptionValue('f'), graph,
+        new ReadOptions().setClean(cmd.hasOption('c')).setInterner(createStringInterner(cmd)));
 
     int threshold = 1000;
     if(cmd.hasOption('t')) {
@@ -49,13 +60,17 @@ public class SplitGraph {
     }
 
     GraphSplitter gs = new GraphSplitter(new File(cmd.getOptionValue('o')), prefix, cmd.getOptionValue('g'), threshold);
-    List<File> files = gs.splitGraph(graph);
+    try {
+      List<File> files = gs.splitGraph(graph);
 
-    if(!files.isEmpty()) {
-      LOGGER.info("Graph split into {} components, and saved to the following files", files.size());
-      files.forEach(f -> LOGGER.info(f.getAbsolutePath()));
+      if(!files.isEmpty()) {
+        LOGGER.info("Graph split into {} components, and saved to the following files", files.size());
+        files.forEach(f -> LOGGER.info(f.getAbsolutePath()));
+      }
+    }catch (UncheckedIOException uioe){
+      LOGGER.error("Unable to split graph", uioe);
+    }finally {
+      GraphUtils.closeGraph(graph);
     }
-
-    GraphUtils.closeGraph(graph);
   }
 }
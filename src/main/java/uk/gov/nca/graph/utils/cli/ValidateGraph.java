@@ -0,0 +1,86 @@
+package uk.gov.nca.graph.utils.cli;
+
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createMetricsOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.createRequiredOption;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.parseCommandLine;
+import static uk.gov.nca.graph.utils.cli.CommandLineUtils.startMetricsReporter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.nca.graph.utils.GraphValidator;
+
+public class ValidateGraph {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ValidateGraph.class);
+
+  public static void main(String[] args){
+    Options options = new Options();
+
+    options.addOption(createRequiredOption("i", "input", true, "The input file to validate"));
+    options.addOption(createRequiredOption("f", "inputformat", true, "The format of the input file, either GraphML, GraphSON or Gryo"));
+    options.addOption(new Option("o", "output", true, "The file to save the validation report to (if not set, the report will be printed)"));
+    options.addOption(new Option("m", "maxissues", true, "The maximum number of issues to describe in the report (defaults to 100)"));
+    options.addOption(new Option("t", "threads", true, "The number of threads to parse GraphSON with (defaults to the number of available processors)"));
+    options.addOption(new Option("c", "clean", false, "Remove unsupported characters (e.g. control characters) from the input file as it is read"));
+    options.addOption(createMetricsOption());
+
+    CommandLine cmd = parseCommandLine(args, options, ValidateGraph.class, "Check a graph file for dangling edges, duplicate IDs, unsupported characters and property type conflicts");
+    if(cmd == null)
+      return;
+    startMetricsReporter(cmd);
+
+    int maxIssues = 100;
+    if(cmd.hasOption('m')) {
+      try {
+        maxIssues = Integer.parseInt(cmd.getOptionValue('m'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse maximum number of issues. Default value of {} will be used", maxIssues);
+      }
+    }
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    if(cmd.hasOption('t')) {
+      try {
+        threads = Integer.parseInt(cmd.getOptionValue('t'));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Unable to parse number of threads. Default value of {} will be used", threads);
+      }
+    }
+
+    GraphValidator validator = GraphValidator.validate(new File(cmd.getOptionValue('i')), cmd.getOptionValue('f'), cmd.hasOption('c'), threads, maxIssues);
+    if(validator == null)
+      return;
+
+    if(validator.isValid()){
+      LOGGER.info("No issues found in {} vertices and {} edges", validator.getVertexCount(), validator.getEdgeCount());
+    }else{
+      LOGGER.warn("{} issues found in {} vertices and {} edges", validator.getIssueCount(), validator.getVertexCount(), validator.getEdgeCount());
+    }
+
+    if(cmd.hasOption('o')){
+      try(Writer report = new OutputStreamWriter(new FileOutputStream(cmd.getOptionValue('o')), StandardCharsets.UTF_8)) {
+        validator.writeReport(report);
+        LOGGER.info("Validation report written to {}", cmd.getOptionValue('o'));
+      }catch (IOException ioe){
+        LOGGER.error("Unable to write validation report to disk", ioe);
+      }
+    }else{
+      try {
+        validator.writeReport(new PrintWriter(System.out));
+      }catch (IOException ioe){
+        LOGGER.error("Unable to print validation report", ioe);
+      }
+    }
+
+    validator.close();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.util.detached.DetachedFactory;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testAimd(){
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 100, 1000, 100, 0.5, 1000);
+    assertEquals(100, batchSize.getBatchSize());
+
+    //Good commits increase the batch size additively, up to the maximum
+    for(int i = 0; i < 20; i++)
+      batchSize.batchCommitted(batchSize.getBatchSize(), batchSize.getBatchSize() * MS, MS);
+    assertEquals(1000, batchSize.getBatchSize());
+
+    //A slow commit halves it
+    batchSize.batchCommitted(1000, 2000 * MS, 1500 * MS);
+    assertEquals(500, batchSize.getBatchSize());
+
+    //As does a large drop in throughput
+    batchSize.batchCommitted(500, 5000 * MS, MS);
+    assertEquals(250, batchSize.getBatchSize());
+
+    //But never below the minimum
+    for(int i = 0; i < 5; i++)
+      batchSize.batchCommitted(100, 100 * MS, 5000 * MS);
+    assertEquals(100, batchSize.getBatchSize());
+
+    assertEquals(27, batchSize.getCommits());
+    assertEquals(7, batchSize.getDecreases());
+    assertTrue(batchSize.getThroughput() > 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBounds(){
+    new AdaptiveBatchSize(1000, 100);
+  }
+
+  @Test
+  public void testElementLoader() throws Exception{
+    Graph source = TinkerGraph.open();
+    for(long i = 0; i < 1000; i++)
+      source.addVertex(T.id, i);
+
+    Graph target = TinkerGraph.open();
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(10, 100);
+
+    ElementLoader loader = new ElementLoader(target);
+    loader.setAdaptiveBatchSize(batchSize);
+    source.vertices().forEachRemaining(v -> loader.accept(DetachedFactory.detach(v, true)));
+    loader.finish();
+
+    assertEquals(1000, IteratorUtils.count(target.vertices()));
+    assertTrue(batchSize.getCommits() > 0);
+    assertTrue(batchSize.getBatchSize() >= 10 && batchSize.getBatchSize() <= 100);
+
+    source.close();
+    target.close();
+  }
+}
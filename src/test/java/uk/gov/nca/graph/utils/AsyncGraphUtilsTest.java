@@ -0,0 +1,184 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.collections.IteratorUtils;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class AsyncGraphUtilsTest {
+
+  @Test
+  public void testWriteAndRead() throws Exception{
+    Graph g = createGraph();
+    File f = File.createTempFile("async", ".graphson");
+
+    AtomicLong written = new AtomicLong();
+    assertEquals(f, AsyncGraphUtils.writeGraphFile(f, "graphson", g, (completed, total) -> written.set(completed),
+        AsyncGraphUtils.getDefaultExecutor()).get());
+    assertEquals(f.length(), written.get());
+
+    AtomicLong read = new AtomicLong();
+    AtomicLong length = new AtomicLong();
+    Graph g2 = TinkerGraph.open();
+    assertEquals(g2, AsyncGraphUtils.readGraphFile(f, "graphson", g2, new ReadOptions(), (completed, total) -> {
+      read.set(completed);
+      length.set(total);
+    }, AsyncGraphUtils.getDefaultExecutor()).get());
+
+    assertEquals(f.length(), read.get());
+    assertEquals(f.length(), length.get());
+    assertEquals(3, IteratorUtils.toList(g2.vertices()).size());
+    assertEquals(2, IteratorUtils.toList(g2.edges()).size());
+
+    //Options are passed through to the read
+    ElementFilter filter = new ElementFilter();
+    filter.setPropertyKeys(Collections.singletonList("age"));
+
+    Graph g3 = TinkerGraph.open();
+    AsyncGraphUtils.readGraphFile(f, "graphson", g3, new ReadOptions().setFilter(filter), null,
+        AsyncGraphUtils.getDefaultExecutor()).get();
+    assertEquals(3, IteratorUtils.toList(g3.vertices()).size());
+    assertFalse(g3.vertices().next().property("name").isPresent());
+
+    g.close();
+    g2.close();
+    g3.close();
+    f.delete();
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception{
+    Graph g = createGraph();
+    File f = File.createTempFile("async", ".gryo");
+    assertTrue(GraphUtils.writeGraphFile(f, "gryo", g));
+
+    List<CompletableFuture<Graph>> futures = new ArrayList<>();
+    for(int i = 0; i < 4; i++)
+      futures.add(AsyncGraphUtils.readGraphFile(f, "gryo", TinkerGraph.open()));
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+    for(CompletableFuture<Graph> future : futures) {
+      Graph read = future.get();
+      assertEquals(3, IteratorUtils.toList(read.vertices()).size());
+      read.close();
+    }
+
+    g.close();
+    f.delete();
+  }
+
+  @Test
+  public void testFailure() throws Exception{
+    File f = File.createTempFile("async", ".graphml");
+    try {
+      AsyncGraphUtils.writeGraphFile(f, "unknown", createGraph()).get();
+      fail("Expected write to fail");
+    }catch (ExecutionException ee){
+      assertTrue(ee.getCause() instanceof IOException);
+    }
+
+    f.delete();
+  }
+
+  @Test
+  public void testCancel() throws Exception{
+    Graph g = createGraph();
+    File f = File.createTempFile("async", ".graphml");
+    assertTrue(GraphUtils.writeGraphFile(f, "graphml", g));
+
+    List<Runnable> tasks = new ArrayList<>();
+    Graph g2 = TinkerGraph.open();
+    CompletableFuture<Graph> future = AsyncGraphUtils.readGraphFile(f, "graphml", g2, null, null, tasks::add);
+
+    assertTrue(future.cancel(true));
+    tasks.forEach(Runnable::run);
+
+    assertTrue(future.isCancelled());
+    assertEquals(0, IteratorUtils.toList(g2.vertices()).size());
+
+    g.close();
+    g2.close();
+    f.delete();
+  }
+
+  @Test
+  public void testClear() throws Exception{
+    Graph g = createGraph();
+
+    AtomicLong dropped = new AtomicLong();
+    AsyncGraphUtils.clearGraph(g, (completed, total) -> dropped.set(completed), AsyncGraphUtils.getDefaultExecutor()).get();
+
+    assertEquals(3, dropped.get());
+    assertEquals(0, IteratorUtils.toList(g.vertices()).size());
+    assertEquals(0, IteratorUtils.toList(g.edges()).size());
+
+    g.close();
+  }
+
+  @Test
+  public void testSplit() throws Exception{
+    Graph g = createGraph();
+    g.addVertex("Person");
+
+    File outputDir = Files.createTempDirectory("asyncsplit").toFile();
+
+    AtomicLong processed = new AtomicLong();
+    List<File> results = AsyncGraphUtils.splitGraph(new GraphSplitter(outputDir, "graph", "graphml", 1), g,
+        (completed, total) -> processed.set(completed), AsyncGraphUtils.getDefaultExecutor()).get();
+
+    assertEquals(2, results.size());
+    assertEquals(4, processed.get());
+
+    results.forEach(File::delete);
+    outputDir.delete();
+
+    g.close();
+  }
+
+  private static Graph createGraph(){
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex("Person");
+    v1.property("name", "Alice");
+    Vertex v2 = g.addVertex("Person");
+    v2.property("name", "Bob");
+    Vertex v3 = g.addVertex("Person");
+    v3.property("name", "Carol");
+
+    v1.addEdge("knows", v2);
+    v2.addEdge("knows", v3);
+
+    return g;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class CachingElementUtilsTest {
+
+  @Test
+  public void testGetLinkedProperty() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person");
+    Vertex v2 = g.addVertex(T.label, "Email", "identifier", "michelle@example.com");
+    v1.addEdge("email", v2);
+
+    CachingElementUtils ceu = new CachingElementUtils(g);
+
+    assertEquals("michelle@example.com", ceu.getLinkedProperty(v1, "email", "identifier"));
+    assertEquals(0, ceu.getHitCount());
+    assertEquals(1, ceu.getMissCount());
+
+    assertEquals("michelle@example.com", ceu.getLinkedProperty(v1, "email", "identifier"));
+    assertEquals(1, ceu.getHitCount());
+    assertEquals(1, ceu.getMissCount());
+
+    assertNull(ceu.getLinkedProperty(v1, "parent", "identifier"));
+    assertNull(ceu.getLinkedProperty(v1, "parent", "identifier"));
+    assertEquals(2, ceu.getHitCount());
+    assertEquals(2, ceu.getMissCount());
+    assertEquals(0.5, ceu.getHitRate(), 0.0001);
+
+    g.close();
+  }
+
+  @Test
+  public void testGetLinkedPropertyList() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person");
+    v1.addEdge("email", g.addVertex(T.label, "Email", "identifier", "a@example.com"));
+    v1.addEdge("email", g.addVertex(T.label, "Email", "identifier", "b@example.com"));
+
+    CachingElementUtils ceu = new CachingElementUtils(g);
+
+    List<?> values = (List<?>) ceu.getLinkedProperty(v1, "email", "identifier");
+    assertEquals(2, values.size());
+    values.clear();
+
+    assertEquals(2, ((List<?>) ceu.getLinkedProperty(v1, "email", "identifier")).size());
+    assertEquals(1, ceu.getHitCount());
+
+    g.close();
+  }
+
+  @Test
+  public void testInvalidate() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person");
+    Vertex v2 = g.addVertex(T.label, "Person");
+    Vertex v3 = g.addVertex(T.label, "Person");
+    v1.addEdge("friendOf", v2);
+
+    CachingElementUtils ceu = new CachingElementUtils(g);
+
+    assertEquals(Arrays.asList(v2), ceu.getOneHopVertices(v1, "friendOf", Direction.OUT, "Person"));
+
+    v1.addEdge("friendOf", v3);
+    assertEquals(Arrays.asList(v2), ceu.getOneHopVertices(v1, "friendOf", Direction.OUT, "Person"));
+
+    ceu.invalidate(v1);
+    assertEquals(Arrays.asList(v2, v3), ceu.getOneHopVertices(v1, "friendOf", Direction.OUT, "Person"));
+
+    ceu.invalidateAll();
+    assertEquals(0, ceu.size());
+
+    g.close();
+  }
+
+  @Test
+  public void testEviction() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person");
+    Vertex v2 = g.addVertex(T.label, "Person");
+    Vertex v3 = g.addVertex(T.label, "Person");
+    Vertex v4 = g.addVertex(T.label, "Person");
+    v1.addEdge("friendOf", v2);
+    v2.addEdge("friendOf", v3);
+    v2.addEdge("friendOf", v4);
+
+    CachingElementUtils ceu = new CachingElementUtils(g, 2, 0, TimeUnit.MILLISECONDS);
+
+    ceu.getTwoHopVertices(v1, "friendOf", Direction.OUT, "Person", "friendOf", Direction.OUT);
+    ceu.getOneHopVertices(v2, "friendOf", Direction.OUT, "Person");
+    ceu.getTwoHopVertices(v1, "friendOf", Direction.OUT, "Person", "friendOf", Direction.OUT);  //Hit, so v2 query is now least recently used
+    ceu.getOneHopVertices(v3, "friendOf", Direction.OUT, "Person");
+
+    assertEquals(2, ceu.size());
+    assertEquals(1, ceu.getEvictionCount());
+
+    ceu.getTwoHopVertices(v1, "friendOf", Direction.OUT, "Person", "friendOf", Direction.OUT);
+    assertEquals(2, ceu.getHitCount());
+
+    g.close();
+  }
+
+  @Test
+  public void testExpiry() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person");
+    Vertex v2 = g.addVertex(T.label, "Person");
+    v1.addEdge("friendOf", v2);
+
+    CachingElementUtils ceu = new CachingElementUtils(g, 10, 1, TimeUnit.MILLISECONDS);
+
+    ceu.getOneHopVertices(v1, "friendOf", Direction.OUT, "Person");
+    Thread.sleep(10);
+    ceu.getOneHopVertices(v1, "friendOf", Direction.OUT, "Person");
+
+    assertEquals(0, ceu.getHitCount());
+    assertEquals(2, ceu.getMissCount());
+
+    g.close();
+  }
+}
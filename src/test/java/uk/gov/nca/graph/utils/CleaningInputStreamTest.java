@@ -0,0 +1,102 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class CleaningInputStreamTest {
+
+  @Test
+  public void testControlCharacters() throws Exception{
+    String dirty = "Hello\u0000 W\u0007örld!\r\n\t€😀\u007f";
+
+    assertEquals("Hello Wörld!\n\t€😀", readAll(new CleaningInputStream(stream(dirty))));
+    assertEquals("Hello Wörld!\n\t€😀", readAll(new CleaningInputStream(stream(dirty), true)));
+  }
+
+  @Test
+  public void testXml() throws Exception{
+    byte[] dirty = new byte[]{
+        'a',
+        (byte) 0xEF, (byte) 0xBF, (byte) 0xBE,  //U+FFFE
+        'b',
+        (byte) 0xED, (byte) 0xA0, (byte) 0x80,  //Surrogate
+        'c',
+        (byte) 0xC0, (byte) 0xAF,               //Overlong encoding
+        'd',
+        (byte) 0x80,                            //Orphaned continuation byte
+        'e',
+        (byte) 0xE2, (byte) 0x82,               //Truncated sequence
+        'f',
+        (byte) 0xEF, (byte) 0xBF, (byte) 0xBD,  //U+FFFD (valid)
+        (byte) 0xE2, (byte) 0x82                //Truncated at end of stream
+    };
+
+    assertEquals("abcdef�", readAll(new CleaningInputStream(new ByteArrayInputStream(dirty), true)));
+
+    //Without XML cleaning, only control characters are removed
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    copy(new CleaningInputStream(new ByteArrayInputStream(dirty)), baos);
+    assertArrayEquals(dirty, baos.toByteArray());
+  }
+
+  @Test
+  public void testSplitSequences() throws Exception{
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 10000; i++)
+      sb.append("ö€😀\u0001");
+
+    String expected = sb.toString().replace("\u0001", "");
+
+    //Return one byte at a time, so that every multi-byte sequence is split between reads
+    InputStream trickle = new FilterInputStream(stream(sb.toString())){
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 1));
+      }
+    };
+
+    assertEquals(expected, readAll(new CleaningInputStream(trickle, true)));
+  }
+
+  private static InputStream stream(String s){
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String readAll(InputStream is) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    copy(is, baos);
+
+    return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static void copy(InputStream is, ByteArrayOutputStream baos) throws IOException {
+    byte[] buffer = new byte[7];
+    int read;
+    while((read = is.read(buffer)) != -1)
+      baos.write(buffer, 0, read);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class ElementFilterTest {
+  @Test
+  public void testLabels() throws Exception{
+    Graph g = TinkerGraph.open();
+    Vertex person = g.addVertex("Person");
+    Vertex car = g.addVertex("Car");
+    Edge owns = person.addEdge("owns", car);
+
+    ElementFilter filter = new ElementFilter();
+    assertTrue(filter.test(person));
+    assertTrue(filter.test(owns));
+
+    filter.setIncludedVertexLabels(Collections.singletonList("Person"));
+    assertTrue(filter.test(person));
+    assertFalse(filter.test(car));
+
+    filter.setIncludedVertexLabels(null);
+    filter.setExcludedVertexLabels(Collections.singletonList("Person"));
+    assertFalse(filter.test(person));
+    assertTrue(filter.test(car));
+
+    filter.setExcludedEdgeLabels(Collections.singletonList("owns"));
+    assertFalse(filter.test(owns));
+
+    g.close();
+  }
+
+  @Test
+  public void testPredicates() throws Exception{
+    Graph g = TinkerGraph.open();
+    Vertex alice = g.addVertex(T.label, "Person", "name", "Alice", "age", 30, "nicknames", Arrays.asList("Al", "Ally"));
+    Vertex bob = g.addVertex(T.label, "Person", "name", "Bob", "age", 9);
+
+    assertTrue(test("age>18", alice));
+    assertFalse(test("age>18", bob));
+    assertTrue(test("age <= 9", bob));
+    assertTrue(test("name=Alice", alice));
+    assertTrue(test("name!=Alice", bob));
+    assertTrue(test("name<B", alice));
+    assertTrue(test("nicknames=Ally", alice));
+    assertTrue(test("nicknames", alice));
+    assertFalse(test("nicknames", bob));
+    assertTrue(test("!nicknames", bob));
+    assertFalse(test("nicknames=Ally", bob));
+
+    try {
+      new ElementFilter().addVertexPredicate("a b");
+      fail("Expected IllegalArgumentException");
+    }catch (IllegalArgumentException iae){
+      //Expected
+    }
+
+    g.close();
+  }
+
+  @Test
+  public void testPropertyKeys(){
+    ElementFilter filter = new ElementFilter();
+    assertTrue(filter.keepProperty("name"));
+
+    filter.setPropertyKeys(Collections.singletonList("name"));
+    assertTrue(filter.keepProperty("name"));
+    assertFalse(filter.keepProperty("age"));
+  }
+
+  private static boolean test(String predicate, Vertex v){
+    ElementFilter filter = new ElementFilter();
+    filter.addVertexPredicate(predicate);
+
+    return filter.test(v);
+  }
+}
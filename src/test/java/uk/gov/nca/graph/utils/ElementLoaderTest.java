@@ -0,0 +1,57 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.detached.DetachedEdge;
+import org.apache.tinkerpop.gremlin.structure.util.star.StarGraph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class ElementLoaderTest {
+  @Test
+  public void testLoad() throws Exception{
+    Graph g = TinkerGraph.open();
+    ElementLoader loader = new ElementLoader(g, 2);
+
+    //Edge arrives before its target vertex, and should be deferred
+    loader.accept(StarGraph.open().addVertex(T.id, 1L, T.label, "Person", "name", "Michelle"));
+    loader.accept(new DetachedEdge(10L, "knows", Collections.singletonMap("weight", 0.5), 1L, "Person", 2L, "Person"));
+    loader.accept(StarGraph.open().addVertex(T.id, 2L, T.label, "Person", "name", "Shell"));
+
+    //Edge to a vertex that never arrives should be dropped
+    loader.accept(new DetachedEdge(11L, "knows", Collections.emptyMap(), 1L, "Person", 3L, "Person"));
+    loader.finish();
+
+    assertEquals(2, loader.getVertexCount());
+    assertEquals(1, loader.getEdgeCount());
+    assertEquals(1, loader.getDroppedEdgeCount());
+
+    Vertex v = g.vertices(1L).next();
+    assertEquals("Person", v.label());
+    assertEquals("Michelle", v.value("name"));
+    assertEquals(0.5, g.edges(10L).next().value("weight"), 0.0);
+    assertEquals(2L, g.edges(10L).next().inVertex().id());
+
+    g.close();
+  }
+}
@@ -19,9 +19,11 @@ package uk.gov.nca.graph.utils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.stream.Collectors;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.T;
@@ -84,6 +86,26 @@ public class ElementUtilsTest {
     g.close();
   }
 
+  @Test
+  public void testCopyPropertiesInterned() throws Exception{
+    Graph g = TinkerGraph.open();
+    StringInterner interner = new StringInterner(10, StringInterner.DEFAULT_MAX_VALUE_LENGTH);
+
+    Vertex v1 = g.addVertex(T.label, "Person", "gender", new String("female"));
+    Vertex v2 = g.addVertex(T.label, "Person", "gender", new String("female"));
+    Vertex v3 = g.addVertex("Person");
+    Vertex v4 = g.addVertex("Person");
+
+    ElementUtils.copyProperties(v1, v3, interner);
+    ElementUtils.copyProperties(v2, v4, interner);
+
+    assertEquals("female", v3.property("gender").value());
+    assertSame(v3.property("gender").value(), v4.property("gender").value());
+    assertSame(v3.property("gender").key(), v4.property("gender").key());
+
+    g.close();
+  }
+
   @Test
   public void testGetProperties() throws Exception{
     Graph g = TinkerGraph.open();
@@ -204,4 +226,61 @@ public class ElementUtilsTest {
 
     g.close();
   }
+
+  @Test
+  public void testStreamOneHopVertices() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person");
+    Vertex v2 = g.addVertex(T.label, "Person");
+    Vertex v3 = g.addVertex(T.label, "Person");
+    v1.addEdge("friendOf", v2);
+    v1.addEdge("friendOf", v3);
+    v1.addEdge("friendOf", v1);
+    v3.addEdge("friendOf", v1);
+
+    assertEquals(Arrays.asList(v2, v3),
+        ElementUtils.streamOneHopVertices(g, v1, "friendOf", Direction.OUT, "Person").collect(Collectors.toList()));
+    assertEquals(Arrays.asList(v2, v3, v3),
+        ElementUtils.streamOneHopVertices(g, v1, "friendOf", Direction.BOTH, "Person").collect(Collectors.toList()));
+    assertEquals(Arrays.asList(v2, v3),
+        ElementUtils.streamOneHopVertices(g, v1, "friendOf", Direction.BOTH, "Person", true, 0).collect(Collectors.toList()));
+    assertEquals(Arrays.asList(v2),
+        ElementUtils.streamOneHopVertices(g, v1, "friendOf", Direction.BOTH, "Person", true, 1).collect(Collectors.toList()));
+
+    assertEquals(0, ElementUtils.streamOneHopVertices(g, v1, "friendOf", Direction.OUT, "Email").count());
+
+    g.close();
+  }
+
+  @Test
+  public void testStreamTwoHopVertices() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person");
+    Vertex v2 = g.addVertex(T.label, "Person");
+    Vertex v3 = g.addVertex(T.label, "Person");
+    Vertex v4 = g.addVertex(T.label, "Email");
+    Vertex v5 = g.addVertex(T.label, "Person");
+    v1.addEdge("friendOf", v2);
+    v1.addEdge("friendOf", v5);
+    v2.addEdge("friendOf", v3);
+    v2.addEdge("friendOf", v4);
+    v5.addEdge("friendOf", v3);
+
+    assertEquals(Arrays.asList(v3, v4, v3),
+        ElementUtils.streamTwoHopVertices(g, v1, "friendOf", Direction.OUT, "Person", "friendOf", Direction.OUT).collect(Collectors.toList()));
+    assertEquals(Arrays.asList(v3, v3),
+        ElementUtils.streamTwoHopVertices(g, v1, "friendOf", Direction.OUT, "Person", "friendOf", Direction.OUT, "Person", false, 0).collect(Collectors.toList()));
+    assertEquals(Arrays.asList(v3),
+        ElementUtils.streamTwoHopVertices(g, v1, "friendOf", Direction.OUT, "Person", "friendOf", Direction.OUT, "Person", true, 0).collect(Collectors.toList()));
+    assertEquals(Arrays.asList(v3),
+        ElementUtils.streamTwoHopVertices(g, v1, "friendOf", Direction.OUT, "Person", "friendOf", Direction.OUT, null, false, 1).collect(Collectors.toList()));
+
+    //Original vertex is reachable twice via BOTH, and should never be returned
+    assertFalse(ElementUtils.streamTwoHopVertices(g, v1, "friendOf", Direction.BOTH, "Person", "friendOf", Direction.BOTH)
+        .anyMatch(v1::equals));
+
+    g.close();
+  }
 }
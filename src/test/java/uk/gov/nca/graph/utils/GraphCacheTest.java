@@ -0,0 +1,131 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.Collections;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Test;
+
+public class GraphCacheTest {
+  private static File createGraphFile(int vertices) throws Exception{
+    Graph g = TinkerGraph.open();
+    for(long i = 0; i < vertices; i++)
+      g.addVertex(T.id, i, T.label, i % 2 == 0 ? "Person" : "Car", "name", "Vertex " + i);
+
+    File f = File.createTempFile("cache", ".graphson");
+    assertTrue(GraphUtils.writeGraphFile(f, "graphson", g));
+    g.close();
+
+    return f;
+  }
+
+  @Test
+  public void testCache() throws Exception{
+    File f = createGraphFile(10);
+    GraphCache cache = new GraphCache(100);
+
+    Graph g1 = TinkerGraph.open();
+    assertTrue(cache.readGraphFile(f, "graphson", g1, new ReadOptions()));
+    assertEquals(10, IteratorUtils.count(g1.vertices()));
+
+    //Modifying the returned graph doesn't change the cached graph
+    g1.vertices(0L).next().remove();
+
+    ElementFilter filter = new ElementFilter();
+    filter.setIncludedVertexLabels(Collections.singletonList("Person"));
+
+    Graph g2 = TinkerGraph.open();
+    assertTrue(cache.readGraphFile(f, "graphson", g2, new ReadOptions().setFilter(filter)));
+    assertEquals(5, IteratorUtils.count(g2.vertices()));
+    assertTrue(g2.vertices(0L).hasNext());
+
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.size());
+    assertEquals(10, cache.getCachedElements());
+
+    g1.close();
+    g2.close();
+    f.delete();
+  }
+
+  @Test
+  public void testEviction() throws Exception{
+    File f1 = createGraphFile(10);
+    File f2 = createGraphFile(10);
+    GraphCache cache = new GraphCache(15);
+
+    assertTrue(cache.readGraphFile(f1, "graphson", TinkerGraph.open(), new ReadOptions()));
+    assertEquals(1, cache.size());
+
+    assertTrue(cache.readGraphFile(f2, "graphson", TinkerGraph.open(), new ReadOptions()));
+    assertEquals(1, cache.size());
+    assertTrue(cache.getKeys().get(0).startsWith(f2.getCanonicalPath()));
+
+    assertFalse(cache.readGraphFile(new File(f1.getParentFile(), "missing.graphson"), "graphson", TinkerGraph.open(), new ReadOptions()));
+    assertEquals(1, cache.size());
+
+    f1.delete();
+    f2.delete();
+  }
+
+  @Test
+  public void testNotCacheable() throws Exception{
+    File f = createGraphFile(10);
+    GraphCache cache = new GraphCache(100, f.length() - 1);
+
+    Graph g = TinkerGraph.open();
+    assertFalse(cache.isCacheable(f, g));
+    assertTrue(cache.readGraphFile(f, "graphson", g, new ReadOptions()));
+    assertEquals(10, IteratorUtils.count(g.vertices()));
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getMisses());
+
+    cache = new GraphCache(100);
+    assertTrue(cache.isCacheable(f, g));
+    assertFalse(cache.isCacheable(f, mock(Graph.class)));
+
+    g.close();
+    f.delete();
+  }
+
+  @Test
+  public void testGraphUtils() throws Exception{
+    File f = createGraphFile(10);
+    GraphCache cache = new GraphCache(100);
+
+    GraphUtils.setGraphCache(cache);
+    try {
+      assertTrue(GraphUtils.readGraphFile(f, "graphson", TinkerGraph.open()));
+      assertTrue(GraphUtils.readGraphFile(f, "graphson", TinkerGraph.open()));
+      assertEquals(1, cache.getHits());
+    }finally{
+      GraphUtils.setGraphCache(null);
+    }
+
+    f.delete();
+  }
+}
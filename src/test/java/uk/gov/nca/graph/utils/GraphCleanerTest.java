@@ -0,0 +1,97 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Test;
+
+public class GraphCleanerTest {
+
+  private static final String DIRTY = "<node id=\"1\">\u0000Hello\u0007 Wörld!\r\n\t€😀\u001f\u007f</node>\n";
+  private static final String CLEAN = "<node id=\"1\">Hello Wörld!\n\t€😀</node>\n";
+
+  @Test
+  public void testIsClean(){
+    assertFalse(GraphCleaner.isClean(0));
+    assertFalse(GraphCleaner.isClean(8));
+    assertTrue(GraphCleaner.isClean('\t'));
+    assertTrue(GraphCleaner.isClean('\n'));
+    assertFalse(GraphCleaner.isClean('\r'));
+    assertFalse(GraphCleaner.isClean(31));
+    assertTrue(GraphCleaner.isClean(' '));
+    assertFalse(GraphCleaner.isClean(127));
+    assertTrue(GraphCleaner.isClean(0xE9));
+  }
+
+  @Test
+  public void testCleanBytes(){
+    byte[] bytes = ("xx" + DIRTY + "xx").getBytes(StandardCharsets.UTF_8);
+    int offset = 2;
+    int length = bytes.length - 4;
+
+    int len = GraphCleaner.clean(bytes, offset, length);
+    assertEquals(CLEAN, new String(bytes, offset, len, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCleanStream() throws Exception{
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    long written = GraphCleaner.clean(new ByteArrayInputStream(DIRTY.getBytes(StandardCharsets.UTF_8)), baos);
+
+    assertEquals(CLEAN, new String(baos.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(baos.size(), written);
+  }
+
+  @Test
+  public void testCleanFile() throws Exception{
+    StringBuilder dirty = new StringBuilder();
+    StringBuilder clean = new StringBuilder();
+    for(int i = 0; i < 100; i++) {
+      dirty.append(DIRTY);
+      clean.append(CLEAN);
+    }
+
+    File input = File.createTempFile("dirty", ".graphml");
+    Files.write(input.toPath(), dirty.toString().getBytes(StandardCharsets.UTF_8));
+
+    byte[] expected = clean.toString().getBytes(StandardCharsets.UTF_8);
+
+    File output = File.createTempFile("clean", ".graphml");
+
+    //Use a chunk size that doesn't divide the input evenly, so chunks break mid-character
+    assertEquals(expected.length, GraphCleaner.cleanFile(input, output, 7, 1));
+    assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+
+    assertEquals(expected.length, GraphCleaner.cleanFile(input, output, 7, 4));
+    assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+
+    assertEquals(expected.length, GraphCleaner.cleanFile(input, output));
+    assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+
+    input.delete();
+    output.delete();
+  }
+}
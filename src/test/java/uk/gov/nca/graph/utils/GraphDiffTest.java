@@ -0,0 +1,140 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class GraphDiffTest {
+  @Test
+  public void testDiffById() throws Exception{
+    Graph g1 = TinkerGraph.open();
+    Vertex a = g1.addVertex(T.id, 1L, T.label, "Person", "name", "Alice");
+    Vertex b = g1.addVertex(T.id, 2L, T.label, "Person", "name", "Bob");
+    Vertex c = g1.addVertex(T.id, 3L, T.label, "Person", "name", "Carol");
+    a.addEdge("knows", b, T.id, 10L);
+    b.addEdge("knows", c, T.id, 11L);
+
+    Graph g2 = TinkerGraph.open();
+    Vertex a2 = g2.addVertex(T.id, 1L, T.label, "Person", "name", "Alice");
+    Vertex b2 = g2.addVertex(T.id, 2L, T.label, "Person", "name", "Robert");
+    Vertex d2 = g2.addVertex(T.id, 4L, T.label, "Person", "name", "Dave");
+    a2.addEdge("knows", b2, T.id, 10L);
+    a2.addEdge("knows", d2, T.id, 12L);
+
+    File f1 = File.createTempFile("diff", ".graphson");
+    File f2 = File.createTempFile("diff", ".graphml");
+    assertTrue(GraphUtils.writeGraphFile(f1, "graphson", g1));
+    assertTrue(GraphUtils.writeGraphFile(f2, "graphml", g2));
+
+    GraphDiff diff = new GraphDiff(4);
+    StringWriter report = new StringWriter();
+    assertTrue(diff.diff(f1, "graphson", f2, "graphml", report));
+
+    assertEquals(1, diff.getAddedVertexCount());
+    assertEquals(1, diff.getRemovedVertexCount());
+    assertEquals(1, diff.getChangedVertexCount());
+    assertEquals(1, diff.getUnchangedVertexCount());
+    assertEquals(1, diff.getAddedEdgeCount());
+    assertEquals(1, diff.getRemovedEdgeCount());
+    assertEquals(0, diff.getChangedEdgeCount());
+    assertEquals(1, diff.getUnchangedEdgeCount());
+
+    String s = report.toString();
+    assertTrue(s.contains("+ vertex 4\n"));
+    assertTrue(s.contains("- vertex 3\n"));
+    assertTrue(s.contains("~ vertex 2\n"));
+    assertTrue(s.contains("+ edge 12\n"));
+    assertTrue(s.contains("- edge 11\n"));
+
+    f1.delete();
+    f2.delete();
+    g1.close();
+    g2.close();
+  }
+
+  @Test
+  public void testDiffByProperties() throws Exception{
+    Graph g1 = TinkerGraph.open();
+    Vertex a = g1.addVertex(T.id, 1L, T.label, "Person", "name", "Alice", "age", 30);
+    Vertex b = g1.addVertex(T.id, 2L, T.label, "Person", "name", "Bob", "age", 40);
+    g1.addVertex(T.id, 3L, T.label, "Person", "name", "Bob", "age", 50);
+    a.addEdge("knows", b, "since", 2000);
+
+    Graph g2 = TinkerGraph.open();
+    Vertex a2 = g2.addVertex(T.id, 100L, T.label, "Person", "name", "Alice", "age", 31);
+    Vertex b2 = g2.addVertex(T.id, 101L, T.label, "Person", "name", "Bob", "age", 40);
+    g2.addVertex(T.id, 102L, T.label, "Person", "name", "Bob", "age", 50);
+    a2.addEdge("knows", b2, "since", 2000);
+
+    File f1 = File.createTempFile("diff", ".gryo");
+    File f2 = File.createTempFile("diff", ".gryo");
+    assertTrue(GraphUtils.writeGraphFile(f1, "gryo", g1));
+    assertTrue(GraphUtils.writeGraphFile(f2, "gryo", g2));
+
+    GraphDiff diff = new GraphDiff();
+    StringWriter report = new StringWriter();
+
+    //By ID, everything has changed
+    assertTrue(diff.diff(f1, "gryo", f2, "gryo", report));
+    assertEquals(3, diff.getAddedVertexCount());
+    assertEquals(3, diff.getRemovedVertexCount());
+
+    //By name, only Alice's age has changed, and the duplicate Bobs are matched on content
+    diff.setKeyProperties(Collections.singletonList("name"));
+    report = new StringWriter();
+    assertTrue(diff.diff(f1, "gryo", f2, "gryo", report));
+
+    assertEquals(0, diff.getAddedVertexCount());
+    assertEquals(0, diff.getRemovedVertexCount());
+    assertEquals(1, diff.getChangedVertexCount());
+    assertEquals(2, diff.getUnchangedVertexCount());
+    assertEquals(1, diff.getUnchangedEdgeCount());
+    assertEquals("~ vertex Person[name=Alice]\n", report.toString());
+
+    diff.setKeyProperties(Arrays.asList("name", "age"));
+    assertTrue(diff.diff(f1, "gryo", f2, "gryo", new StringWriter()));
+    assertEquals(1, diff.getAddedVertexCount());
+    assertEquals(1, diff.getRemovedVertexCount());
+    assertEquals(1, diff.getAddedEdgeCount());
+    assertEquals(1, diff.getRemovedEdgeCount());
+
+    f1.delete();
+    f2.delete();
+    g1.close();
+    g2.close();
+  }
+
+  @Test
+  public void testMissingFile() throws Exception{
+    File f = File.createTempFile("diff", ".graphson");
+    assertFalse(new GraphDiff().diff(f, "graphson", new File(f.getParentFile(), "missing.graphson"), "graphson", new StringWriter()));
+
+    f.delete();
+  }
+}
@@ -0,0 +1,168 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+import uk.gov.nca.graph.utils.GraphGenerator.Component;
+
+public class GraphGeneratorTest {
+
+  @Test
+  public void testPlanComponents(){
+    GraphGenerator gg = new GraphGenerator(10000, 4.0, 0L);
+    gg.setGiantComponentFraction(0.5);
+
+    List<Component> components = new ArrayList<>();
+    gg.planComponents().forEachRemaining(components::add);
+    assertEquals(5000, components.get(0).getSize());
+    assertEquals(10000, components.get(0).getEdges());
+    assertEquals(10000, components.stream().mapToLong(Component::getSize).sum());
+    assertTrue(components.stream().skip(1).allMatch(c -> c.getSize() <= 5000));
+    assertTrue(components.stream().filter(c -> c.getSize() == 1).allMatch(c -> c.getEdges() == 0));
+  }
+
+  @Test
+  public void testGenerate() throws Exception{
+    GraphGenerator gg = new GraphGenerator(1000, 4.0, 123L);
+    gg.setGiantComponentFraction(0.2);
+
+    Graph g1 = TinkerGraph.open();
+    gg.generate(g1);
+
+    long edges = 0;
+    for(Iterator<Component> it = gg.planComponents(); it.hasNext(); )
+      edges += it.next().getEdges();
+    assertEquals(1000L, g1.traversal().V().count().next().longValue());
+    assertEquals(edges, g1.traversal().E().count().next().longValue());
+
+    //Same seed should give the same graph
+    Graph g2 = TinkerGraph.open();
+    gg.generate(g2);
+
+    for(long id : new long[]{0L, 10L, 500L, 999L}){
+      Vertex v1 = g1.vertices(id).next();
+      Vertex v2 = g2.vertices(id).next();
+
+      assertEquals(v1.label(), v2.label());
+      assertEquals(v1.<Object>value("property0"), v2.<Object>value("property0"));
+      assertEquals(g1.traversal().V(id).both().id().toList(), g2.traversal().V(id).both().id().toList());
+    }
+
+    //Different seed should give a different graph
+    Graph g3 = TinkerGraph.open();
+    new GraphGenerator(1000, 4.0, 456L).generate(g3);
+    assertFalse(g1.traversal().V().values("property0").toList().equals(g3.traversal().V().values("property0").toList()));
+
+    g1.close();
+    g2.close();
+    g3.close();
+  }
+
+  @Test
+  public void testGenerateFile() throws Exception{
+    for(String format : new String[]{"graphml", "graphson", "gryo"}) {
+      GraphGenerator gg = new GraphGenerator(2000, 3.0, 0L);
+      gg.setGiantComponentFraction(0.1);
+      gg.setThreads(2);
+
+      File f = File.createTempFile("generated", "." + format);
+      assertTrue(gg.generate(f, format));
+
+      Graph expected = TinkerGraph.open();
+      gg.generate(expected);
+
+      Graph g = TinkerGraph.open();
+      assertTrue(GraphUtils.readGraphFile(f, format, g));
+      assertEquals(2000L, g.traversal().V().count().next().longValue());
+      assertEquals(expected.traversal().E().count().next(), g.traversal().E().count().next());
+
+      g.close();
+      expected.close();
+      f.delete();
+    }
+  }
+
+  @Test
+  public void testMaxComponentSize(){
+    GraphGenerator gg = new GraphGenerator(10000, 2.0, 0L);
+    gg.setComponentSizeExponent(1.5);
+    gg.setMaxComponentSize(10);
+
+    List<Component> components = new ArrayList<>();
+    gg.planComponents().forEachRemaining(components::add);
+    assertTrue(components.stream().allMatch(c -> c.getSize() <= 10));
+    assertEquals(10000, components.stream().mapToLong(Component::getSize).sum());
+  }
+
+  @Test
+  public void testShards() throws Exception{
+    GraphGenerator gg = new GraphGenerator(2002, 4.0, 1L);
+    gg.setGiantComponentFraction(0.5);
+    gg.setShardSize(100);
+    gg.setThreads(3);
+
+    Component giant = gg.planComponents().next();
+    //Doesn't divide evenly, so the shards are balanced rather than leaving a single vertex over
+    assertEquals(1001, giant.getSize());
+    assertEquals(11, giant.getShards());
+
+    Graph expected = TinkerGraph.open();
+    gg.generate(expected);
+
+    for(String format : new String[]{"graphson", "gryo"}) {
+      File f = File.createTempFile("sharded", "." + format);
+      assertTrue(gg.generate(f, format));
+
+      //The giant component is still a single component, despite being generated in shards
+      try(GraphStatistics stats = GraphStatistics.compute(f, format, false, 1, 0)) {
+        assertEquals(1001, stats.getLargestComponentSize());
+        assertEquals(0, stats.getMissingVertexCount());
+      }
+
+      Graph g = TinkerGraph.open();
+      assertTrue(GraphUtils.readGraphFile(f, format, g));
+      assertEquals(2002L, g.traversal().V().count().next().longValue());
+      assertEquals(expected.traversal().E().count().next(), g.traversal().E().count().next());
+
+      //Writing to file gives the same graph as generating into a graph
+      for(long id : new long[]{0L, 90L, 91L, 1000L, 1500L}){
+        Vertex v1 = expected.vertices(id).next();
+        Vertex v2 = g.vertices(id).next();
+
+        assertEquals(v1.label(), v2.label());
+        assertEquals(v1.<Object>value("property0"), v2.<Object>value("property0"));
+        assertEquals(expected.traversal().V(id).both().id().order().toList(), g.traversal().V(id).both().id().order().toList());
+      }
+
+      g.close();
+      f.delete();
+    }
+
+    expected.close();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class GraphPipelineTest {
+  @Test
+  public void testConvert() throws Exception{
+    File input = writeGraph("graphson");
+    File output = File.createTempFile("pipeline", ".graphml");
+
+    GraphPipeline pipeline = new GraphPipeline(input, "graphson");
+    pipeline.setElementBatchSize(1);
+    pipeline.setQueueSize(1);
+    assertTrue(pipeline.convert(output, "graphml"));
+    assertEquals(5, pipeline.getElementsRead());
+
+    Graph g = TinkerGraph.open();
+    assertTrue(GraphUtils.readGraphFile(output, "graphml", g));
+    assertEquals(3L, g.traversal().V().count().next().longValue());
+    assertEquals(2L, g.traversal().E().count().next().longValue());
+    g.close();
+
+    input.delete();
+    output.delete();
+  }
+
+  @Test
+  public void testFilter() throws Exception{
+    for(String format : new String[]{"graphml", "graphson", "gryo"}) {
+      File input = writeGraph(format);
+
+      GraphPipeline pipeline = new GraphPipeline(input, format);
+      ElementFilter filter = new ElementFilter();
+      filter.setIncludedVertexLabels(Collections.singletonList("Person"));
+      pipeline.setElementFilter(filter);
+
+      Graph g = TinkerGraph.open();
+      assertTrue(pipeline.load(g));
+      assertEquals(2L, g.traversal().V().count().next().longValue());
+      assertEquals(1L, g.traversal().E().count().next().longValue());
+      assertEquals(2, pipeline.getElementsFiltered());  //Car vertex, and the owns edge to it
+      assertEquals(0, pipeline.getEdgesDropped());
+      g.close();
+
+      input.delete();
+    }
+  }
+
+  @Test
+  public void testClean() throws Exception{
+    File input = writeGraph("graphml");
+    String dirty = new String(Files.readAllBytes(input.toPath()), StandardCharsets.UTF_8)
+        .replace("Michelle", "Mich\u0000elle\uFFFF");
+    Files.write(input.toPath(), dirty.getBytes(StandardCharsets.UTF_8));
+
+    GraphPipeline pipeline = new GraphPipeline(input, "graphml");
+    Graph g1 = TinkerGraph.open();
+    assertFalse(pipeline.load(g1));
+    g1.close();
+
+    pipeline.setClean(true);
+    Graph g2 = TinkerGraph.open();
+    assertTrue(pipeline.load(g2));
+    assertEquals("Michelle", g2.traversal().V().has("name", "Michelle").next().value("name"));
+    g2.close();
+
+    input.delete();
+  }
+
+  @Test
+  public void testSplit() throws Exception{
+    File input = writeGraph("gryo");
+    File outputDir = Files.createTempDirectory("pipeline").toFile();
+
+    GraphPipeline pipeline = new GraphPipeline(input, "gryo");
+    ElementFilter filter = new ElementFilter();
+    filter.setExcludedEdgeLabels(Collections.singletonList("owns"));
+    pipeline.setElementFilter(filter);
+
+    List<File> results = pipeline.split(new GraphSplitter(outputDir, "pipeline", "graphson", 1));
+    assertEquals(2, results.size());
+
+    results.forEach(File::delete);
+    outputDir.delete();
+    input.delete();
+  }
+
+  private static File writeGraph(String format) throws Exception{
+    Graph g = TinkerGraph.open();
+    Vertex v1 = g.addVertex(T.id, 1L, T.label, "Person", "name", "Michelle");
+    Vertex v2 = g.addVertex(T.id, 2L, T.label, "Person", "name", "Shell");
+    Vertex v3 = g.addVertex(T.id, 3L, T.label, "Car", "make", "Ford");
+    v1.addEdge("knows", v2, T.id, 10L);
+    v1.addEdge("owns", v3, T.id, 11L);
+
+    File f = File.createTempFile("pipeline", "." + format);
+    GraphUtils.writeGraphFile(f, format, g);
+    g.close();
+
+    return f;
+  }
+}
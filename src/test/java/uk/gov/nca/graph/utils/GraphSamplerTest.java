@@ -0,0 +1,117 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Test;
+
+public class GraphSamplerTest {
+  private static File createChain(String format) throws Exception{
+    //A chain of 100 vertices, 0 -> 1 -> 2 -> ... -> 99
+    Graph g = TinkerGraph.open();
+    Vertex prev = g.addVertex(T.id, 0L, T.label, "Person");
+    for(long i = 1; i < 100; i++){
+      Vertex v = g.addVertex(T.id, i, T.label, "Person");
+      prev.addEdge("knows", v);
+      prev = v;
+    }
+
+    File f = File.createTempFile("sampler", "." + format);
+    assertTrue(GraphUtils.writeGraphFile(f, format, g));
+    g.close();
+
+    return f;
+  }
+
+  @Test
+  public void testReservoir() throws Exception{
+    File f = createChain("graphson");
+
+    GraphSampler sampler = new GraphSampler(f, "graphson");
+    sampler.setSeed(123L);
+    Set<String> sample = sampler.reservoirSample(10);
+    assertEquals(10, sample.size());
+    assertEquals(1, sampler.getPassCount());
+
+    GraphSampler sampler2 = new GraphSampler(f, "graphson");
+    sampler2.setSeed(123L);
+    assertEquals(sample, sampler2.reservoirSample(10));
+
+    assertEquals(100, sampler.reservoirSample(200).size());
+
+    f.delete();
+  }
+
+  @Test
+  public void testForestFire() throws Exception{
+    File f = createChain("gryo");
+
+    GraphSampler sampler = new GraphSampler(f, "gryo");
+    sampler.setSeed(1L);
+    Set<String> sample = sampler.forestFireSample(20, 0.9);
+    assertEquals(20, sample.size());
+
+    GraphSampler sampler2 = new GraphSampler(f, "gryo");
+    sampler2.setSeed(1L);
+    assertEquals(sample, sampler2.forestFireSample(20, 0.9));
+
+    //With no spread, the sample is filled with random vertices
+    sampler.setMaxPasses(3);
+    assertEquals(20, sampler.forestFireSample(20, 0.0).size());
+
+    f.delete();
+  }
+
+  @Test
+  public void testSnowballAndExtract() throws Exception{
+    File f = createChain("graphml");
+
+    GraphSampler sampler = new GraphSampler(f, "graphml");
+    Set<String> sample = sampler.snowballSample(Collections.singletonList("50"), 2, 0);
+    assertEquals(new HashSet<>(Arrays.asList("48", "49", "50", "51", "52")), sample);
+    assertEquals(2, sampler.getPassCount());
+
+    assertEquals(3, sampler.snowballSample(Collections.singletonList("50"), 2, 3).size());
+
+    Graph g = TinkerGraph.open();
+    assertTrue(sampler.extract(sample, g));
+    assertEquals(5, IteratorUtils.count(g.vertices()));
+    assertEquals(4, IteratorUtils.count(g.edges()));
+    g.close();
+
+    f.delete();
+  }
+
+  @Test
+  public void testMissingFile(){
+    GraphSampler sampler = new GraphSampler(new File("missing.graphson"), "graphson");
+    assertNull(sampler.reservoirSample(10));
+  }
+}
@@ -19,10 +19,12 @@ package uk.gov.nca.graph.utils;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.net.URI;
 import java.nio.file.Files;
 import java.util.List;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
 import org.junit.Test;
 
@@ -91,6 +93,29 @@ public class GraphSplitterTest {
     g.close();
   }
 
+  @Test
+  public void testOtherIdTypes() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    //IDs of types other than Long, Integer, UUID and String are held as strings in the ID dictionary
+    Vertex a = g.addVertex(T.id, new URI("urn:a"));
+    Vertex b = g.addVertex(T.id, new URI("urn:b"));
+    g.addVertex(T.id, new URI("urn:c"));
+    a.addEdge("link", b);
+
+    File outputDir = Files.createTempDirectory("graphsplitter").toFile();
+
+    GraphSplitter gs = new GraphSplitter(outputDir, "graph", "graphml", 1);
+
+    List<File> results = gs.splitGraph(g);
+    assertEquals(2, results.size());
+
+    results.forEach(File::delete);
+    outputDir.delete();
+
+    g.close();
+  }
+
   private void createGraph(Graph g){
     // G -> A -> B -> C
     // D -> E
@@ -0,0 +1,113 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.detached.DetachedEdge;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class GraphStatisticsTest {
+  @Test
+  public void testCompute() throws Exception{
+    Graph g = TinkerGraph.open();
+    Vertex hub = g.addVertex(T.id, 0L, T.label, "Person");
+    for(long i = 1; i <= 5; i++)
+      hub.addEdge("knows", g.addVertex(T.id, i, T.label, "Person"));
+
+    Vertex a = g.addVertex(T.id, 10L, T.label, "Car");
+    a.addEdge("near", g.addVertex(T.id, 11L, T.label, "Car"));
+    g.addVertex(T.id, 20L, T.label, "Phone");
+
+    for(String format : new String[]{"graphml", "graphson", "gryo"}) {
+      File f = File.createTempFile("stats", "." + format);
+      assertTrue(GraphUtils.writeGraphFile(f, format, g));
+
+      for(int threads : new int[]{1, 4}) {
+        GraphStatistics stats = GraphStatistics.compute(f, format, false, threads, 2);
+        assertNotNull(stats);
+
+        assertEquals(9, stats.getVertexCount());
+        assertEquals(6, stats.getEdgeCount());
+        assertEquals(0, stats.getMissingVertexCount());
+        assertEquals(6L, stats.getVertexLabels().get("Person").longValue());
+        assertEquals(1L, stats.getEdgeLabels().get("near").longValue());
+
+        SortedMap<Integer, Long> degrees = stats.getDegreeDistribution();
+        assertEquals(1L, degrees.get(0).longValue());
+        assertEquals(7L, degrees.get(1).longValue());
+        assertEquals(1L, degrees.get(5).longValue());
+
+        Map<Object, Integer> supernodes = stats.getSupernodes();
+        assertEquals(2, supernodes.size());
+        assertEquals(5, supernodes.values().iterator().next().intValue());
+
+        assertEquals(3, stats.getComponentCount());
+        assertEquals(6, stats.getLargestComponentSize());
+        assertEquals(1L, stats.getComponentSizes().get(2).longValue());
+
+        assertTrue(stats.toJson().contains("\"vertices\": 9"));
+        stats.close();
+      }
+
+      f.delete();
+    }
+
+    g.close();
+  }
+
+  @Test
+  public void testManyVertices() throws Exception{
+    Graph g = TinkerGraph.open();
+    for(long i = 0; i < 3000; i++)
+      g.addVertex(T.id, i);
+
+    File f = File.createTempFile("stats", ".graphson");
+    assertTrue(GraphUtils.writeGraphFile(f, "graphson", g));
+
+    GraphStatistics stats = GraphStatistics.compute(f, "graphson", false, 1, 0);
+    assertNotNull(stats);
+    assertEquals(3000, stats.getVertexCount());
+    assertEquals(3000, stats.getComponentCount());
+    stats.close();
+
+    f.delete();
+    g.close();
+  }
+
+  @Test
+  public void testMissingVertices() throws Exception{
+    GraphStatistics stats = new GraphStatistics();
+    stats.accept(new DetachedEdge(1L, "knows",
+        Collections.emptyMap(), 1L, "Person", 2L, "Person"));
+
+    assertEquals(0, stats.getVertexCount());
+    assertEquals(2, stats.getMissingVertexCount());
+    assertEquals(1, stats.getComponentCount());
+    stats.close();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class GraphStreamReaderTest {
+  @Test
+  public void testGraphML() throws Exception{
+    Graph g = createGraph();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    g.io(IoCore.graphml()).writer().create().writeGraph(baos, g);
+    g.close();
+
+    List<Element> elements = readAll(baos.toByteArray(), "graphml");
+    assertEquals(3, elements.size());
+
+    Vertex v = (Vertex) elements.stream().filter(e -> "1".equals(e.id())).findFirst().get();
+    assertEquals("Person", v.label());
+    assertEquals("Michelle", v.value("name"));
+    assertEquals(34, (int) v.value("age"));
+
+    Edge e = (Edge) elements.stream().filter(x -> x instanceof Edge).findFirst().get();
+    assertEquals("knows", e.label());
+    assertEquals("1", e.outVertex().id());
+    assertEquals("2", e.inVertex().id());
+    assertEquals(0.5, e.value("weight"), 0.0);
+  }
+
+  @Test
+  public void testGraphSON() throws Exception{
+    testStarFormat("graphson");
+  }
+
+  @Test
+  public void testGryo() throws Exception{
+    testStarFormat("gryo");
+  }
+
+  private void testStarFormat(String format) throws Exception{
+    Graph g = createGraph();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    GraphUtils.appendGraph(baos, format, g);
+    g.close();
+
+    List<Element> elements = readAll(baos.toByteArray(), format);
+    assertEquals(3, elements.size());
+
+    //Each vertex should be followed by its outgoing edges
+    int vertexIndex = -1;
+    for(int i = 0; i < elements.size(); i++){
+      if(elements.get(i) instanceof Vertex && elements.get(i).id().equals(1L))
+        vertexIndex = i;
+    }
+    assertTrue(elements.get(vertexIndex + 1) instanceof Edge);
+
+    Vertex v = (Vertex) elements.get(vertexIndex);
+    assertEquals("Person", v.label());
+    assertEquals("Michelle", v.value("name"));
+    assertEquals(34, (int) v.value("age"));
+
+    Edge e = (Edge) elements.get(vertexIndex + 1);
+    assertEquals(10L, e.id());
+    assertEquals("knows", e.label());
+    assertEquals(1L, e.outVertex().id());
+    assertEquals(2L, e.inVertex().id());
+    assertEquals(0.5, e.value("weight"), 0.0);
+  }
+
+  @Test
+  public void testEmpty() throws Exception{
+    try(GraphStreamReader reader = new GraphStreamReader(new ByteArrayInputStream(new byte[0]), "graphson")){
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownFormat() throws Exception{
+    new GraphStreamReader(new ByteArrayInputStream(new byte[0]), "csv");
+  }
+
+  private static Graph createGraph(){
+    Graph g = TinkerGraph.open();
+    Vertex v1 = g.addVertex(T.id, 1L, T.label, "Person", "name", "Michelle", "age", 34);
+    Vertex v2 = g.addVertex(T.id, 2L, T.label, "Person", "name", "Shell");
+    v1.addEdge("knows", v2, T.id, 10L, "weight", 0.5);
+
+    return g;
+  }
+
+  private static List<Element> readAll(byte[] data, String format) throws Exception{
+    List<Element> elements = new ArrayList<>();
+    try(GraphStreamReader reader = new GraphStreamReader(new ByteArrayInputStream(data), format)){
+      reader.forEachRemaining(elements::add);
+    }
+
+    return elements;
+  }
+}
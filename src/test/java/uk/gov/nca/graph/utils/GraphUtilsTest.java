@@ -16,11 +16,23 @@ limitations under the License.
 
 package uk.gov.nca.graph.utils;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
 import org.junit.Test;
 
 public class GraphUtilsTest {
@@ -35,4 +47,108 @@ public class GraphUtilsTest {
       fail("Exception thrown");
     }
   }
+
+  @Test
+  public void testReadDirtyGraph() throws Exception{
+    Graph g = TinkerGraph.open();
+    g.addVertex("name", "Michelle");
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    g.io(IoCore.graphml()).writer().create().writeGraph(baos, g);
+    g.close();
+
+    String dirty = new String(baos.toByteArray(), StandardCharsets.UTF_8)
+        .replace("Michelle", "Mich\u0000elle\uFFFF");
+
+    Graph g1 = TinkerGraph.open();
+    assertFalse(GraphUtils.readGraph(new ByteArrayInputStream(dirty.getBytes(StandardCharsets.UTF_8)), "graphml", g1, new ReadOptions()));
+    g1.close();
+
+    Graph g2 = TinkerGraph.open();
+    assertTrue(GraphUtils.readGraph(new ByteArrayInputStream(dirty.getBytes(StandardCharsets.UTF_8)), "graphml", g2, new ReadOptions().setClean(true)));
+    assertEquals("Michelle", g2.vertices().next().value("name"));
+    g2.close();
+  }
+
+  @Test
+  public void testAppendGraph() throws Exception{
+    Graph g1 = TinkerGraph.open();
+    g1.addVertex(T.id, 1L, "name", "Michelle").addEdge("knows", g1.addVertex(T.id, 2L), T.id, 1L);
+
+    Graph g2 = TinkerGraph.open();
+    g2.addVertex(T.id, 3L, "name", "Shell");
+
+    for(String format : new String[]{"graphson", "gryo"}) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      assertTrue(GraphUtils.appendGraph(baos, format, g1));
+      assertTrue(GraphUtils.appendGraph(baos, format, g2));
+
+      Graph g = TinkerGraph.open();
+      assertTrue(GraphUtils.readGraph(new ByteArrayInputStream(baos.toByteArray()), format, g));
+      assertEquals(3L, g.traversal().V().count().next().longValue());
+      assertEquals(1L, g.traversal().E().count().next().longValue());
+      g.close();
+    }
+
+    assertFalse(GraphUtils.appendGraph(new ByteArrayOutputStream(), "graphml", g1));
+
+    g1.close();
+    g2.close();
+  }
+
+  @Test
+  public void testReadFilteredGraph() throws Exception{
+    Graph g1 = TinkerGraph.open();
+    Vertex alice = g1.addVertex(T.id, 1L, T.label, "Person", "name", "Alice", "age", 30);
+    Vertex bob = g1.addVertex(T.id, 2L, T.label, "Person", "name", "Bob", "age", 12);
+    Vertex car = g1.addVertex(T.id, 3L, T.label, "Car", "make", "Ford");
+    alice.addEdge("knows", bob);
+    alice.addEdge("owns", car);
+
+    ElementFilter filter = new ElementFilter();
+    filter.setExcludedVertexLabels(Collections.singletonList("Car"));
+    filter.addVertexPredicate("age>=18");
+    filter.setPropertyKeys(Collections.singletonList("name"));
+
+    for(String format : new String[]{"graphml", "graphson", "gryo"}) {
+      File f = File.createTempFile("filtered", "." + format);
+      assertTrue(GraphUtils.writeGraphFile(f, format, g1));
+
+      Graph g = TinkerGraph.open();
+      assertTrue(GraphUtils.readGraphFile(f, format, g, new ReadOptions().setFilter(filter)));
+      f.delete();
+      assertEquals(1L, g.traversal().V().count().next().longValue());
+      assertEquals(0L, g.traversal().E().count().next().longValue());
+
+      Vertex v = g.vertices().next();
+      assertEquals("Alice", v.value("name"));
+      assertFalse(v.property("age").isPresent());
+      g.close();
+    }
+
+    g1.close();
+  }
+
+  @Test
+  public void testReadOptions() throws Exception{
+    Graph g1 = TinkerGraph.open();
+    g1.addVertex(T.id, 1L, "name", "Alice").addEdge("knows", g1.addVertex(T.id, 2L, "name", "Bob"));
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    assertTrue(GraphUtils.writeGraph(baos, "graphson", g1));
+    g1.close();
+
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1, 10);
+    for(ReadOptions options : new ReadOptions[]{null, new ReadOptions().setAdaptiveBatchSize(null), new ReadOptions().setAdaptiveBatchSize(batchSize), new ReadOptions().setStreaming(true)}) {
+      Graph g = TinkerGraph.open();
+      assertTrue(GraphUtils.readGraph(new ByteArrayInputStream(baos.toByteArray()), "graphson", g, options));
+      assertEquals(2L, g.traversal().V().count().next().longValue());
+      assertEquals(1L, g.traversal().E().count().next().longValue());
+      g.close();
+    }
+
+    assertTrue(batchSize.getCommits() > 0);
+    assertFalse(new ReadOptions().isStreaming());
+    assertTrue(new ReadOptions().setStreaming(true).isStreaming());
+  }
 }
@@ -0,0 +1,165 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class GraphValidatorTest {
+
+  @Test
+  public void testValid() throws Exception{
+    for(String format : Arrays.asList("graphml", "graphson", "gryo")) {
+      File f = writeGraph(createGraph(), format);
+
+      try (GraphValidator validator = GraphValidator.validate(f, format, false, 2, 100)) {
+        assertTrue(format, validator.isValid());
+        assertEquals(3, validator.getVertexCount());
+        assertEquals(2, validator.getEdgeCount());
+        assertTrue(validator.getIssues().isEmpty());
+      }
+
+      f.delete();
+    }
+  }
+
+  @Test
+  public void testGraphSONIssues() throws Exception{
+    Graph g = createGraph();
+    g.vertices(1L).next().property("age", 30);
+    g.vertices(3L).next().property("age", "thirty");
+    g.vertices(3L).next().property("name", "Car\u0001ol");
+
+    File f = writeGraph(g, "graphson");
+    List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+
+    List<String> modified = new ArrayList<>();
+    modified.add(lines.get(0));
+    modified.add(lines.get(0));   //Duplicate vertex 1 and its edge
+    modified.add("{ not valid");
+    modified.add(lines.get(2));   //Drop vertex 2, leaving its edges dangling
+    Files.write(f.toPath(), modified, StandardCharsets.UTF_8);
+
+    try (GraphValidator validator = GraphValidator.validate(f, "graphson", false, 2, 100)) {
+      assertFalse(validator.isValid());
+      assertEquals(3, validator.getVertexCount());
+      assertEquals(1, validator.getDuplicateVertexCount());
+      assertEquals(1, validator.getDuplicateEdgeCount());
+      assertEquals(1, validator.getParseErrorCount());
+      assertEquals(1, validator.getMissingVertexCount());
+      assertEquals(2, validator.getDanglingEdgeCount());
+      assertEquals(1, validator.getBadCharacterCount());
+      assertEquals(1, validator.getTypeConflicts().size());
+      assertEquals(2, validator.getTypeConflicts().get("vertex.age").size());
+      assertEquals(6, validator.getIssueCount());
+      assertEquals(6, validator.getIssues().size());
+      assertTrue(validator.getIssues().stream().anyMatch(i -> i.startsWith("Unable to parse line 3 ")));
+    }
+
+    f.delete();
+  }
+
+  @Test
+  public void testMaxIssues() throws Exception{
+    Graph g = TinkerGraph.open();
+    Vertex v = g.addVertex(T.id, 1L, T.label, "Person");
+    for(long i = 2; i < 12; i++)
+      v.addEdge("knows", g.addVertex(T.id, i, T.label, "Person"));
+
+    File f = writeGraph(g, "graphson");
+    List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+    Files.write(f.toPath(), lines.subList(0, 1), StandardCharsets.UTF_8);
+
+    try (GraphValidator validator = GraphValidator.validate(f, "graphson", false, 1, 3)) {
+      assertEquals(10, validator.getMissingVertexCount());
+      assertEquals(10, validator.getIssueCount());
+      assertEquals(3, validator.getIssues().size());
+
+      StringWriter report = new StringWriter();
+      validator.writeReport(report);
+      assertTrue(report.toString().contains("missing vertices: 10\n"));
+      assertTrue(report.toString().endsWith("... 7 more issue(s) not shown\n"));
+    }
+
+    f.delete();
+  }
+
+  @Test
+  public void testGraphMLParseError() throws Exception{
+    File f = writeGraph(createGraph(), "graphml");
+    byte[] bytes = Files.readAllBytes(f.toPath());
+    Files.write(f.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+    try (GraphValidator validator = GraphValidator.validate(f, "graphml", false, 1, 100)) {
+      assertFalse(validator.isValid());
+      assertEquals(1, validator.getParseErrorCount());
+    }
+
+    f.delete();
+  }
+
+  @Test
+  public void testMissingFile(){
+    assertNull(GraphValidator.validate(new File("does-not-exist.graphml"), "graphml", false, 1, 100));
+  }
+
+  @Test
+  public void testFindBadCharacter(){
+    assertEquals(-1, GraphValidator.findBadCharacter("Hello\tWorld\n"));
+    assertEquals(-1, GraphValidator.findBadCharacter("Caf\u00e9 \ud83d\ude00"));
+    assertEquals(3, GraphValidator.findBadCharacter("Car\u0001ol"));
+    assertEquals(1, GraphValidator.findBadCharacter("a\uFFFDb"));
+    assertEquals(1, GraphValidator.findBadCharacter("a\ud83d"));
+    assertEquals(0, GraphValidator.findBadCharacter("\ude00a"));
+  }
+
+  private static Graph createGraph(){
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.id, 1L, T.label, "Person", "name", "Alice");
+    Vertex v2 = g.addVertex(T.id, 2L, T.label, "Person", "name", "Bob");
+    Vertex v3 = g.addVertex(T.id, 3L, T.label, "Person", "name", "Carol");
+
+    v1.addEdge("knows", v2, T.id, 10L);
+    v2.addEdge("knows", v3, T.id, 11L);
+
+    return g;
+  }
+
+  private static File writeGraph(Graph g, String format) throws Exception{
+    File f = File.createTempFile("validator", "." + format);
+    assertTrue(GraphUtils.writeGraphFile(f, format, g));
+    g.close();
+
+    return f;
+  }
+}
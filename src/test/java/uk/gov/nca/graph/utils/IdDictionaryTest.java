@@ -0,0 +1,79 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.UUID;
+import org.junit.Test;
+
+public class IdDictionaryTest {
+  @Test
+  public void testTypes() throws Exception{
+    UUID uuid = UUID.randomUUID();
+
+    try(IdDictionary dictionary = new IdDictionary()) {
+      assertEquals(0, dictionary.getOrAdd(1L));
+      assertEquals(1, dictionary.getOrAdd(1));
+      assertEquals(2, dictionary.getOrAdd("1"));
+      assertEquals(3, dictionary.getOrAdd(uuid));
+      assertEquals(0, dictionary.getOrAdd(1L));
+      assertEquals(4, dictionary.size());
+
+      assertEquals(1L, dictionary.getId(0));
+      assertEquals(1, dictionary.getId(1));
+      assertEquals("1", dictionary.getId(2));
+      assertEquals(uuid, dictionary.getId(3));
+
+      assertEquals(2, dictionary.get("1"));
+      assertEquals(-1, dictionary.get("2"));
+      assertFalse(dictionary.contains(2L));
+
+      //Other types don't collide with a String of the same text
+      assertEquals(4, dictionary.getOrAdd(URI.create("1")));
+      assertEquals(4, dictionary.get(URI.create("1")));
+      assertEquals(2, dictionary.get("1"));
+      assertEquals("1", dictionary.getId(4));
+    }
+  }
+
+  @Test
+  public void testResize() throws Exception{
+    File parent = Files.createTempDirectory("iddictionarytest").toFile();
+
+    try(IdDictionary dictionary = new IdDictionary(parent)) {
+      for (long i = 0; i < 200000; i++)
+        assertEquals(i, dictionary.getOrAdd(i * 7));
+
+      for (long i = 0; i < 200000; i++)
+        assertEquals(i, dictionary.get(i * 7));
+
+      assertEquals(200000, dictionary.size());
+      assertEquals(7L * 199999, dictionary.getId(199999));
+      assertEquals(-1, dictionary.get(1L));
+    }
+
+    //Dictionary files should be removed on close
+    assertEquals(0, parent.listFiles().length);
+    assertTrue(parent.delete());
+  }
+}
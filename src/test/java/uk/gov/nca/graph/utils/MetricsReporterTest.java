@@ -0,0 +1,103 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class MetricsReporterTest {
+  @Test
+  public void testReporter(){
+    MetricsReporter reporter = new MetricsReporter();
+    reporter.elementsRead(10);
+    reporter.elementsWritten(5);
+    reporter.bytesRead(100);
+    reporter.batchCommitted(1000000);
+    reporter.componentFound(3);
+    reporter.queueDepth("parsed", 2);
+    reporter.phaseCompleted("read", 2000000);
+    reporter.phaseCompleted("read", 3000000);
+
+    assertEquals(10, reporter.getElementsRead());
+    assertEquals(5, reporter.getElementsWritten());
+    assertEquals(100, reporter.getBytesRead());
+    assertEquals(1, reporter.getCommits());
+    assertEquals(1, reporter.getComponents());
+    assertEquals(5L, reporter.getPhaseTimes().get("read").longValue());
+
+    reporter.report();
+    reporter.close();
+  }
+
+  @Test
+  public void testGraphOperations() throws Exception{
+    MetricsReporter reporter = new MetricsReporter();
+    GraphUtils.setMetrics(reporter);
+
+    try {
+      Graph g = TinkerGraph.open();
+      Vertex v = g.addVertex(T.id, 1L);
+      v.addEdge("knows", g.addVertex(T.id, 2L));
+
+      File f = File.createTempFile("metrics", ".graphson");
+      assertTrue(GraphUtils.writeGraphFile(f, "graphson", g));
+      assertEquals(f.length(), reporter.getBytesWritten());
+      assertEquals(3, reporter.getElementsWritten());
+      g.close();
+
+      GraphPipeline pipeline = new GraphPipeline(f, "graphson");
+      Graph g2 = TinkerGraph.open();
+      assertTrue(pipeline.load(g2));
+      g2.close();
+
+      assertEquals(f.length(), reporter.getBytesRead());
+      assertEquals(3, reporter.getElementsRead());
+      assertEquals(6, reporter.getElementsWritten());
+      assertTrue(reporter.getPhaseTimes().containsKey("write"));
+      assertTrue(reporter.getPhaseTimes().containsKey("parse"));
+      assertTrue(reporter.getPhaseTimes().containsKey("load"));
+
+      //Reads that would use TinkerPop's reader are streamed, so elements are reported as they are read
+      Graph g3 = TinkerGraph.open();
+      g3.addVertex(T.id, 3L);
+      assertTrue(GraphUtils.readGraphFile(f, "graphson", g3));
+
+      assertEquals(6, reporter.getElementsRead());
+      assertEquals(9, reporter.getElementsWritten());
+
+      //Each element is reported once by the writers, including GraphML
+      assertTrue(GraphUtils.writeGraph(new ByteArrayOutputStream(), "graphml", g3));
+      assertEquals(13, reporter.getElementsWritten());
+      assertTrue(GraphUtils.appendGraph(new ByteArrayOutputStream(), "gryo", g3));
+      assertEquals(17, reporter.getElementsWritten());
+      g3.close();
+
+      f.delete();
+    }finally {
+      GraphUtils.setMetrics(null);
+      reporter.close();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+import uk.gov.nca.graph.utils.NeighbourhoodExtractor.Hop;
+
+public class NeighbourhoodExtractorTest {
+
+  @Test
+  public void testKHops() throws Exception{
+    Graph g = TinkerGraph.open();
+    createGraph(g);
+
+    Vertex a = g.vertices("A").next();
+
+    assertEquals(ids("A", "B", "G"), ids(NeighbourhoodExtractor.kHops(1, Direction.BOTH).findNeighbourhood(a)));
+    assertEquals(ids("A", "B", "C", "G"), ids(NeighbourhoodExtractor.kHops(2, Direction.BOTH).findNeighbourhood(a)));
+    assertEquals(ids("A", "B", "C"), ids(NeighbourhoodExtractor.kHops(5, Direction.OUT, "link").findNeighbourhood(a)));
+    assertEquals(ids("A"), ids(NeighbourhoodExtractor.kHops(5, Direction.OUT, "other").findNeighbourhood(a)));
+
+    g.close();
+  }
+
+  @Test
+  public void testHopFilters() throws Exception{
+    Graph g = TinkerGraph.open();
+    createGraph(g);
+
+    Vertex a = g.vertices("A").next();
+
+    NeighbourhoodExtractor ne = new NeighbourhoodExtractor(Arrays.asList(
+        new Hop(Direction.OUT, null, "link"),
+        new Hop(Direction.OUT, "Email", "link")));
+    assertEquals(ids("A", "B"), ids(ne.findNeighbourhood(a)));
+
+    ne = new NeighbourhoodExtractor(Arrays.asList(
+        new Hop(Direction.OUT, null, "link"),
+        new Hop(Direction.OUT, "Person", "link")));
+    assertEquals(ids("A", "B", "C"), ids(ne.findNeighbourhood(a)));
+
+    g.close();
+  }
+
+  @Test
+  public void testLimits() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex hub = g.addVertex(T.id, "hub");
+    for(int i = 0; i < 100; i++){
+      Vertex v = g.addVertex(T.id, "v" + i);
+      hub.addEdge("link", v);
+      v.addEdge("link", g.addVertex(T.id, "w" + i));
+    }
+
+    assertEquals(11, new NeighbourhoodExtractor(Arrays.asList(new Hop(Direction.OUT, null)), 10, 0, false)
+        .findNeighbourhood(hub).size());
+    assertEquals(50, new NeighbourhoodExtractor(Arrays.asList(new Hop(Direction.OUT, null), new Hop(Direction.OUT, null)), 0, 50, false)
+        .findNeighbourhood(hub).size());
+    assertEquals(50, new NeighbourhoodExtractor(Arrays.asList(new Hop(Direction.OUT, null), new Hop(Direction.OUT, null)), 0, 50, true)
+        .findNeighbourhood(hub).size());
+    assertEquals(201, new NeighbourhoodExtractor(Arrays.asList(new Hop(Direction.OUT, null), new Hop(Direction.OUT, null)), 0, 0, true)
+        .findNeighbourhood(hub).size());
+
+    g.close();
+  }
+
+  @Test
+  public void testExtractSubgraph() throws Exception{
+    Graph g = TinkerGraph.open();
+    createGraph(g);
+
+    Graph subgraph = NeighbourhoodExtractor.kHops(2, Direction.BOTH).extractSubgraph(g.vertices("A").next());
+
+    assertEquals(4L, subgraph.traversal().V().count().next().longValue());
+    assertEquals(3L, subgraph.traversal().E().count().next().longValue());
+    assertEquals(1L, subgraph.traversal().V().has("greeting", "Hallo Welt!").count().next().longValue());
+
+    File f = File.createTempFile("neighbourhood", ".graphml");
+    assertTrue(NeighbourhoodExtractor.kHops(2, Direction.BOTH).extractToFile(g.vertices("A").next(), f, "graphml"));
+    assertTrue(f.length() > 0);
+    f.delete();
+
+    subgraph.close();
+    g.close();
+  }
+
+  private static Collection<Object> ids(Object... ids){
+    return new HashSet<>(Arrays.asList(ids));
+  }
+
+  private static Collection<Object> ids(Collection<Vertex> vertices){
+    Collection<Object> ids = new HashSet<>();
+    vertices.forEach(v -> ids.add(v.id()));
+    return ids;
+  }
+
+  private void createGraph(Graph g){
+    // G -> A -> B -> C
+    // D -> E
+
+    g.traversal().addV("Person").property(T.id, "A").property("greeting", "Hello World!").as("a").
+        addV("Person").property(T.id, "B").property("greeting", "Bonjour le Monde!").as("b").
+        addV("Person").property(T.id, "C").property("greeting", "Hallo Welt!").as("c").
+        addV("Person").property(T.id, "D").property("greeting", "Hola Mundo!").as("d").
+        addV("Person").property(T.id, "E").property("greeting", "Hallo Wereld!").as("e").
+        addV("Person").property(T.id, "G").as("g").
+        addE("link").from("a").to("b").
+        addE("link").from("b").to("c").
+        addE("link").from("d").to("e").
+        addE("link").from("g").to("a").iterate();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.decoration.EventStrategy;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerVertex;
+import org.junit.Test;
+
+public class PropertyIndexTest {
+
+  @Test
+  public void testBuild() throws Exception{
+    TinkerGraph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person", "name", "Michelle", "nationality", "British");
+    Vertex v2 = g.addVertex(T.label, "Person", "name", "Shell", "nationality", Arrays.asList("British", "French"));
+    Vertex v3 = g.addVertex(T.label, "Organisation", "name", "Shell");
+
+    PropertyIndex pi = PropertyIndex.build(g, Collections.emptySet(), Arrays.asList("name", "nationality"), true);
+
+    assertEquals(Collections.singleton(v1), pi.lookup("name", "Michelle"));
+    assertEquals(new HashSet<>(Arrays.asList(v2, v3)), pi.lookup("name", "Shell"));
+    assertEquals(new HashSet<>(Arrays.asList(v1, v2)), pi.lookup("nationality", "British"));
+    assertEquals(Collections.singleton(v2), pi.lookup("nationality", "French"));
+    assertTrue(pi.lookup("name", "Bob").isEmpty());
+
+    pi = PropertyIndex.build(g, Collections.singleton("Organisation"), Collections.singleton("name"), false);
+    assertEquals(Collections.singleton(v3), pi.lookup("name", "Shell"));
+
+    g.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotIndexed() throws Exception{
+    TinkerGraph g = TinkerGraph.open();
+
+    PropertyIndex pi = PropertyIndex.build(g, Collections.emptySet(), Collections.singleton("name"), false);
+    pi.lookup("age", 37);
+
+    g.close();
+  }
+
+  @Test
+  public void testMutation() throws Exception{
+    TinkerGraph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.label, "Person", "name", "Michelle");
+    PropertyIndex pi = PropertyIndex.build(g, Collections.emptySet(), Collections.singleton("name"), false);
+
+    pi.setProperty(v1, "name", "Shell");
+    assertTrue(pi.lookup("name", "Michelle").isEmpty());
+    assertEquals(Collections.singleton(v1), pi.lookup("name", "Shell"));
+
+    Vertex v2 = g.addVertex(T.label, "Person", "name", "Shell");
+    pi.add(v2);
+    assertEquals(new HashSet<>(Arrays.asList(v1, v2)), pi.lookup("name", "Shell"));
+
+    pi.remove(v1);
+    v1.remove();
+    assertEquals(Collections.singleton(v2), pi.lookup("name", "Shell"));
+
+    pi.createTinkerGraphIndexes(g);
+    assertEquals(Collections.singleton("name"), g.getIndexedKeys(Vertex.class));
+
+    g.close();
+  }
+
+  @Test
+  public void testMutationListener() throws Exception{
+    TinkerGraph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.id, 1L, T.label, "Person", "name", "Michelle");
+    PropertyIndex pi = PropertyIndex.build(g, Collections.singleton("Person"), Collections.singleton("name"), false);
+
+    GraphTraversalSource gts = g.traversal().withStrategies(
+        EventStrategy.build().addListener(pi.createMutationListener(g)).create());
+
+    gts.V(1L).property("name", "Shell").iterate();
+    assertTrue(pi.lookup("name", "Michelle").isEmpty());
+    assertEquals(Collections.singleton(v1), pi.lookup("name", "Shell"));
+
+    Vertex v2 = gts.addV("Person").property(T.id, 2L).property("name", "Shell").next();
+    gts.addV("Car").property("name", "Shell").iterate();
+    assertEquals(new HashSet<>(Arrays.asList(v1, v2)), pi.lookup("name", "Shell"));
+    assertTrue(pi.lookup("name", "Shell").stream().allMatch(v -> v instanceof TinkerVertex));
+
+    gts.V(1L).properties("name").drop().iterate();
+    assertEquals(Collections.singleton(v2), pi.lookup("name", "Shell"));
+
+    gts.V(2L).drop().iterate();
+    assertTrue(pi.lookup("name", "Shell").isEmpty());
+
+    g.close();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class StringInternerTest {
+  @Test
+  public void testIntern(){
+    StringInterner interner = new StringInterner();
+
+    String a = interner.intern(new String("Person"));
+    String b = interner.intern(new String("Person"));
+
+    assertSame(a, b);
+    assertEquals(1, interner.size());
+
+    String value = new String("female");
+    assertSame(value, interner.internValue("gender", value));
+  }
+
+  @Test
+  public void testInternValue(){
+    StringInterner interner = new StringInterner(2, 10);
+
+    String a = (String) interner.internValue("gender", new String("female"));
+    assertSame(a, interner.internValue("gender", new String("female")));
+    assertEquals(37, interner.internValue("age", 37));
+
+    List<?> list = (List<?>) interner.internValue("gender", Arrays.asList(new String("female"), 1));
+    assertSame(a, list.get(0));
+    assertEquals(1, list.get(1));
+
+    String longValue = new String("A value longer than ten characters");
+    assertSame(longValue, interner.internValue("gender", longValue));
+
+    interner.internValue("gender", "male");
+    interner.internValue("gender", "other");
+    assertTrue(interner.getHighCardinalityKeys().contains("gender"));
+
+    String female = new String("female");
+    assertSame(female, interner.internValue("gender", female));
+  }
+
+  @Test
+  public void testConcurrent() throws Exception{
+    StringInterner interner = new StringInterner(100, 10);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    List<Future<String>> futures = new ArrayList<>();
+    for(int i = 0; i < 100; i++)
+      futures.add(executor.submit(() -> (String) interner.internValue("colour", new String("red"))));
+
+    String first = futures.get(0).get();
+    for(Future<String> f : futures)
+      assertSame(first, f.get());
+
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,102 @@
+/*
+National Crime Agency (c) Crown Copyright 2018
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package uk.gov.nca.graph.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+public class VertexDeduplicatorTest {
+
+  @Test
+  public void testDeduplicate() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    Vertex v1 = g.addVertex(T.id, "A", T.label, "Email", "identifier", "michelle@example.com");
+    Vertex v2 = g.addVertex(T.id, "B", T.label, "Email", "identifier", " Michelle@Example.com", "source", "web");
+    Vertex v3 = g.addVertex(T.id, "C", T.label, "Person", "identifier", "michelle@example.com");
+    Vertex v4 = g.addVertex(T.id, "D", T.label, "Person", "name", "Michelle");
+    Vertex v5 = g.addVertex(T.id, "E", T.label, "Person", "name", "Shell");
+
+    v4.addEdge("email", v1);
+    v5.addEdge("email", v2);
+    v2.addEdge("sameAs", v1);
+
+    VertexDeduplicator vd = new VertexDeduplicator(Collections.singletonList("identifier"));
+    assertEquals(Collections.singletonList(2), vd.findDuplicateGroupSizes(g));
+    assertEquals(1, vd.deduplicate(g));
+
+    assertEquals(4L, g.traversal().V().count().next().longValue());
+    assertFalse(g.vertices("B").hasNext());
+
+    //Survivor has properties and edges from duplicate
+    Vertex survivor = g.vertices("A").next();
+    assertEquals(Arrays.asList("michelle@example.com", " Michelle@Example.com"), survivor.value("identifier"));
+    assertEquals("web", survivor.value("source"));
+    assertEquals(2L, g.traversal().V("A").in("email").count().next().longValue());
+    assertTrue(g.traversal().V("A").out("sameAs").hasId("A").hasNext());
+
+    //Different label, so not merged
+    assertTrue(g.vertices("C").hasNext());
+
+    g.close();
+  }
+
+  @Test
+  public void testMissingKeys() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    g.addVertex(T.label, "Person", "name", "Michelle");
+    g.addVertex(T.label, "Person", "name", "Michelle", "dob", "1981-01-01");
+    g.addVertex(T.label, "Person", "name", "michelle", "dob", "1981-01-01");
+    g.addVertex(T.label, "Person", "name", "Michelle", "dob", "1982-01-01");
+
+    VertexDeduplicator vd = new VertexDeduplicator(Arrays.asList("name", "dob"), 1);
+    assertEquals(1, vd.deduplicate(g));
+    assertEquals(3L, g.traversal().V().count().next().longValue());
+
+    g.close();
+  }
+
+  @Test
+  public void testNumericSurvivor() throws Exception{
+    Graph g = TinkerGraph.open();
+
+    g.addVertex(T.id, 10L, T.label, "Person", "name", "Michelle");
+    g.addVertex(T.id, 9L, T.label, "Person", "name", "Michelle");
+    g.addVertex(T.id, 100L, T.label, "Person", "name", "Michelle");
+
+    VertexDeduplicator vd = new VertexDeduplicator(Collections.singletonList("name"));
+    assertEquals(2, vd.deduplicate(g));
+    assertTrue(g.vertices(9L).hasNext());
+
+    g.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBatchSize(){
+    new VertexDeduplicator(Collections.singletonList("name"), 0);
+  }
+}